@@ -5,11 +5,15 @@
  */
 package com.github.toolarium.common;
 
+import com.github.toolarium.common.util.BytePattern;
 import com.github.toolarium.common.util.ByteUtil;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -18,7 +22,7 @@ import java.nio.channels.WritableByteChannel;
  * @author patrick
  */
 public class ByteArray 
-    implements Serializable, WritableByteChannel, ReadableByteChannel, Cloneable {
+    implements IByteArray, Serializable, WritableByteChannel, ReadableByteChannel, Cloneable {
     
     /** The new line character as byte array */
     public static final ByteArray NL = new ByteArray("\n");
@@ -47,6 +51,9 @@ public class ByteArray
     private byte[] bytes;
     private int length = 0;
     private boolean isOpen; //nio
+    private IByteArrayGrowthStrategy growthStrategy;
+    private transient int hash; // cached hash code, 0 if not yet calculated
+    private transient boolean hashIsZero;
 
     
     /**
@@ -57,6 +64,7 @@ public class ByteArray
     private ByteArray(int size) {
         bytes = new byte[size];
         isOpen = true;
+        growthStrategy = ByteArrayGrowthStrategy.DOUBLING;
     }    
     
     
@@ -170,6 +178,21 @@ public class ByteArray
 
         return newArray;
     }
+
+
+    /**
+     * Wraps an array of bytes without copying it, the given bytes become the internal buffer of the byte array.
+     * Changes of the given bytes are visible in the byte array as long as it doesn't grow.
+     *
+     * @param data the bytes, must not be empty
+     * @return the byte array
+     */
+    static ByteArray wrap(byte[] data) {
+        ByteArray newArray = new ByteArray(0);
+        newArray.bytes = data;
+        newArray.length = data.length;
+        return newArray;
+    }
     
     
     /**
@@ -243,6 +266,21 @@ public class ByteArray
     }
 
     
+    /**
+     * Append a slice
+     * 
+     * @param data the data
+     * @return the byte array (no copy)
+     */
+    public ByteArray append(ByteArraySlice data) {
+        if (data == null) {
+            return this;
+        }
+
+        return append(data.getInternalBytes(), data.getInternalOffset(), data.length());
+    }
+
+    
     /**
      * Append an array of bytes
      * 
@@ -311,12 +349,10 @@ public class ByteArray
      * @return the byte array (no copy)
      */
     public ByteArray append(ByteBuffer data) {
-        while (data.hasRemaining()) {
-            int size = data.remaining();
-            byte[] d = new byte[size];
-            data.get(d, 0, size);
-            append(d);
-        }
+        int size = data.remaining();
+        crowUpDataSize(size);
+        data.get(bytes, length, size);
+        length += size;
 
         data.rewind();
         return this;
@@ -399,6 +435,7 @@ public class ByteArray
             }
         }
 
+        resetHash();
         if (count == length) {
             length = 0;
         } else {
@@ -423,6 +460,7 @@ public class ByteArray
             return this;
         }
 
+        resetHash();
         for (int i = 0; i < length; i++) {
             if (bytes[i] == toReplace) {
                 bytes[i] = newByte;
@@ -454,8 +492,10 @@ public class ByteArray
         int maxLength = length();
         int len = replaceData.length();
 
+        // the pattern is searched repeatedly, compile it once
+        BytePattern pattern = new BytePattern(replaceData.bytes, 0, replaceData.length);
         int start = 0;
-        int end = ByteUtil.getInstance().indexOf(bytes, 0, length, replaceData.bytes, 0, replaceData.length, 0);
+        int end = pattern.indexOf(bytes, 0, length, 0);
         while (start >= 0 && end >= 0) {
             if (end > start) {
                 workData.append(bytes, start, end - start);
@@ -463,7 +503,7 @@ public class ByteArray
             workData.append(newData);
             start = end + len;
 
-            end = ByteUtil.getInstance().indexOf(bytes, 0, length, replaceData.bytes, 0, replaceData.length, start);
+            end = pattern.indexOf(bytes, 0, length, start);
         }
 
         if (start < maxLength) {
@@ -473,6 +513,35 @@ public class ByteArray
     }
 
     
+    /**
+     * Replaces data in a given byte array in a single pass, see {@link ByteArrayMatcher}. In case multiple 
+     * keys match at the same position the longest key is replaced. Entries with an empty key or a null value are ignored.
+     * 
+     * @param replacements the data to replace and the corresponding new data
+     * @return the replaced byte array as a copy (copy)
+     */
+    public ByteArray replace(Map<ByteArray, ByteArray> replacements) {
+        if (replacements == null || replacements.isEmpty()) {
+            return this;
+        }
+
+        List<ByteArray> patterns = new ArrayList<ByteArray>(replacements.size());
+        List<ByteArray> newDataList = new ArrayList<ByteArray>(replacements.size());
+        for (Map.Entry<ByteArray, ByteArray> entry : replacements.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().length() > 0 && entry.getValue() != null) {
+                patterns.add(entry.getKey());
+                newDataList.add(entry.getValue());
+            }
+        }
+
+        if (patterns.isEmpty()) {
+            return this;
+        }
+
+        return new ByteArrayMatcher(patterns).replace(this, newDataList);
+    }
+
+    
     /**
      * Finds a byte in the data
      * 
@@ -704,16 +773,52 @@ public class ByteArray
      * @return the byte array as hex string
      */
     public String toHex() {
-        StringBuilder hexNumber = new StringBuilder(length * 2);
-        for (int i = 0; i < length; i++) {
-            int b = bytes[i] & 0xFF;
-            if (b < 0x10) {
-                hexNumber.append('0');
-            }
-            hexNumber.append(Integer.toHexString(b).toUpperCase());
+        return ByteUtil.getInstance().toHex(bytes, 0, length, true);
+    }
+
+
+    /**
+     * Convert to Base64 string (RFC 4648, with padding)
+     * 
+     * @return the byte array as Base64 string
+     */
+    public String toBase64() {
+        return ByteUtil.getInstance().toBase64(bytes, 0, length);
+    }
+
+
+    /**
+     * Decodes hex characters and appends the bytes, all characters which are not hex digits are ignored.
+     * 
+     * @param hex the hex characters
+     * @return the byte array (no copy)
+     */
+    public ByteArray appendHex(CharSequence hex) {
+        if (hex == null) {
+            return this;
         }
 
-        return hexNumber.toString();
+        crowUpDataSize(hex.length() / 2);
+        length += ByteUtil.getInstance().decodeHex(hex, 0, hex.length(), bytes, length);
+        return this;
+    }
+
+
+    /**
+     * Decodes Base64 characters and appends the bytes, see {@link ByteUtil#decodeBase64(CharSequence, int, int, byte[], int)}.
+     * 
+     * @param base64 the Base64 characters
+     * @return the byte array (no copy)
+     * @throws IllegalArgumentException in case of an invalid character
+     */
+    public ByteArray appendBase64(CharSequence base64) {
+        if (base64 == null) {
+            return this;
+        }
+
+        crowUpDataSize(base64.length() * 3 / 4);
+        length += ByteUtil.getInstance().decodeBase64(base64, 0, base64.length(), bytes, length);
+        return this;
     }
 
     
@@ -850,6 +955,35 @@ public class ByteArray
     }
 
     
+    /**
+     * Return a read-only view of the whole data, see {@link ByteArraySlice}.
+     * 
+     * @return the slice (no copy)
+     */
+    public ByteArraySlice slice() {
+        return new ByteArraySlice(bytes, 0, length);
+    }
+
+    
+    /**
+     * Return a read-only view of a sub part of the data, see {@link ByteArraySlice}. 
+     * The positions are handled the same way as by {@link #getBytes(int, int)}.
+     * 
+     * @param startPos the start position
+     * @param endPos the end position
+     * @return the slice (no copy)
+     */
+    public ByteArraySlice slice(int startPos, int endPos) {
+        int start = Math.min(Math.max(startPos, 0), length);
+        int end = Math.min(Math.max(endPos, 0), length);
+        if (start >= end) {
+            return new ByteArraySlice(bytes, 0, 0);
+        }
+        
+        return new ByteArraySlice(bytes, start, end - start);
+    }
+
+    
     /**
      * Concat a given byte and return a new byte array
      * 
@@ -906,6 +1040,7 @@ public class ByteArray
     public byte set(int pos, byte b) throws ArrayIndexOutOfBoundsException {
         if (pos < length()) {
             byte result = bytes[pos];
+            resetHash();
             bytes[pos] = b;
             return result;
         }
@@ -923,12 +1058,49 @@ public class ByteArray
     }
 
     
+    /**
+     * Gets the growth strategy of the internal buffer
+     * 
+     * @return the growth strategy
+     */
+    public IByteArrayGrowthStrategy getGrowthStrategy() {
+        if (growthStrategy == null) {
+            return ByteArrayGrowthStrategy.DOUBLING;
+        }
+        
+        return growthStrategy;
+    }
+
+    
+    /**
+     * Sets the growth strategy of the internal buffer, see {@link ByteArrayGrowthStrategy}.
+     * 
+     * @param growthStrategy the growth strategy, null for the default ({@link ByteArrayGrowthStrategy#DOUBLING})
+     * @return the byte array (no copy)
+     */
+    public ByteArray setGrowthStrategy(IByteArrayGrowthStrategy growthStrategy) {
+        this.growthStrategy = growthStrategy;
+        return this;
+    }
+
+    
+    /**
+     * Return the capacity of the internal buffer
+     * 
+     * @return the number of bytes which can be hold without growing the internal buffer
+     */
+    public int capacity() {
+        return bytes.length;
+    }
+
+    
     /**
      * Erase the byte array
      * 
      * @return the byte array (no copy)
      */
     public ByteArray erase() {
+        resetHash();
         length = 0;
         return this;
     }
@@ -951,6 +1123,7 @@ public class ByteArray
      * @return the byte array (no copy)
      */
     public ByteArray chopRight(int num) {
+        resetHash();
         length -= num;
 
         if (length < 0) {
@@ -979,6 +1152,7 @@ public class ByteArray
      */
     public ByteArray chopLeft(int num) {
         if (num <= length) {
+            resetHash();
             System.arraycopy(bytes, num, bytes, 0, length - num);
             length -= num;
         } else {
@@ -1003,9 +1177,9 @@ public class ByteArray
             return 0;
         }
 
-        byte[] d = new byte[size];
-        src.get(d);
-        append(d);
+        crowUpDataSize(size);
+        src.get(bytes, length, size);
+        length += size;
         return size;
     }
 
@@ -1092,24 +1266,39 @@ public class ByteArray
     
     
     /**
+     * The hash code is cached and invalidated by every modification of the byte array, like {@link String#hashCode()}.
+     * Changes through the buffer of {@link #toByteBuffer()} are not tracked, don't modify a byte array this way while it is used as key.
+     * 
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        if (bytes.length == 0) {
-            return 0;
-        }
-        
-        int off = 0;
-        int len = length;
-        int hash = 0;
+        int h = hash;
+        if (h == 0 && !hashIsZero) {
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + bytes[i];
+            }
 
-        for (int i = 0; i < len; i++) {
-            hash = 31 * hash + bytes[off++];
+            if (h == 0) {
+                hashIsZero = true;
+            } else {
+                hash = h;
+            }
         }
 
-        return hash;
+        return h;
     }    
+
+
+    /**
+     * Calculates a fast, non-cryptographic 64-bit hash of the content, see {@link ByteUtil#hash64(byte[], int, int)}.
+     * It is stable across JVMs and can be used for sharding and deduplication.
+     * 
+     * @return the 64-bit hash
+     */
+    public long hash64() {
+        return ByteUtil.getInstance().hash64(bytes, 0, length);
+    }
     
     
     /**
@@ -1121,12 +1310,45 @@ public class ByteArray
     }
         
 
+    /**
+     * Gets the internal buffer, only the first {@link #length()} bytes are valid
+     * 
+     * @return the internal buffer (no copy)
+     */
+    byte[] getInternalBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * Gets a buffer on the unused capacity of the internal buffer. The bytes written into the buffer become part of
+     * the byte array by {@link #commitSpareBuffer(int)}.
+     * 
+     * @return the buffer on the unused capacity (no copy)
+     */
+    ByteBuffer getSpareBuffer() {
+        return ByteBuffer.wrap(bytes, length, bytes.length - length);
+    }
+
+
+    /**
+     * Adds the given number of bytes which were written into the buffer of {@link #getSpareBuffer()}.
+     * 
+     * @param count the number of bytes
+     */
+    void commitSpareBuffer(int count) {
+        resetHash();
+        length += count;
+    }
+
+    
     /**
      * Gets the additional size
      * 
      * @param requestedSpace the requested space
      */
     protected void crowUpDataSize(int requestedSpace) {
+        resetHash();
         if ((bytes.length - length) < requestedSpace) {
             byte[] tmpbytes = bytes;
             bytes = new byte[getNewDataSize(requestedSpace)];
@@ -1148,13 +1370,15 @@ public class ByteArray
             size = bytes.length;
         }
         
-        // the minimum new space
-        int minLen = requestedSpace + size;
-
-        // allocate in block size
-        int rest = DEFAULT_BLOCK_SIZE - (minLen % DEFAULT_BLOCK_SIZE);
-        return minLen + rest;
+        return getGrowthStrategy().getNewCapacity(size, length + requestedSpace);
     }
 
-    
+
+    /**
+     * Resets the cached hash code, has to be called before the content is modified
+     */
+    private void resetHash() {
+        hash = 0;
+        hashIsZero = false;
+    }
 }
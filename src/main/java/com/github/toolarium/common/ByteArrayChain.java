@@ -0,0 +1,253 @@
+/*
+ * ByteArrayChain.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Defines a composite of byte array fragments. The fragments are not copied, they are written to a
+ * {@link GatheringByteChannel} by a single gathering write instead of concatenating them before. The
+ * counterpart {@link #read(ScatteringByteChannel, ByteArray...)} fills several byte arrays by a scattering read.
+ *
+ * @author patrick
+ */
+public class ByteArrayChain implements Iterable<IByteArray> {
+    private final List<IByteArray> fragments;
+    private long length;
+
+
+    /**
+     * Constructor for ByteArrayChain
+     */
+    public ByteArrayChain() {
+        fragments = new ArrayList<IByteArray>();
+        length = 0;
+    }
+
+
+    /**
+     * Constructor for ByteArrayChain
+     *
+     * @param fragments the fragments
+     */
+    public ByteArrayChain(IByteArray... fragments) {
+        this();
+        for (IByteArray fragment : fragments) {
+            add(fragment);
+        }
+    }
+
+
+    /**
+     * Add a fragment. The fragment is not copied, it should not be modified until the chain is written.
+     *
+     * @param fragment the fragment, null or empty fragments are ignored
+     * @return the chain
+     */
+    public ByteArrayChain add(IByteArray fragment) {
+        if (fragment != null && fragment.length() > 0) {
+            fragments.add(fragment);
+            length += fragment.length();
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Add a fragment. The fragment is wrapped without copying, it should not be modified until the chain is written.
+     *
+     * @param fragment the fragment, null or empty fragments are ignored
+     * @return the chain
+     */
+    public ByteArrayChain add(byte[] fragment) {
+        if (fragment == null || fragment.length == 0) {
+            return this;
+        }
+
+        return add(ByteArray.wrap(fragment));
+    }
+
+
+    /**
+     * Gets the number of fragments
+     *
+     * @return the number of fragments
+     */
+    public int size() {
+        return fragments.size();
+    }
+
+
+    /**
+     * Gets a fragment
+     *
+     * @param index the index of the fragment
+     * @return the fragment
+     */
+    public IByteArray get(int index) {
+        return fragments.get(index);
+    }
+
+
+    /**
+     * Gets the total number of bytes of all fragments
+     *
+     * @return the number of bytes
+     */
+    public long length() {
+        return length;
+    }
+
+
+    /**
+     * Removes all fragments
+     *
+     * @return the chain
+     */
+    public ByteArrayChain clear() {
+        fragments.clear();
+        length = 0;
+        return this;
+    }
+
+
+    /**
+     * Return a buffer of each fragment
+     *
+     * @return the buffers (no copy)
+     */
+    public ByteBuffer[] toByteBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[fragments.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = fragments.get(i).toByteBuffer();
+        }
+
+        return buffers;
+    }
+
+
+    /**
+     * Concatenates all fragments
+     *
+     * @return the byte array (copy)
+     */
+    public ByteArray toByteArray() {
+        ByteArray result = ByteArray.createByteArrayWithSize((int) Math.min(length, Integer.MAX_VALUE));
+        for (IByteArray fragment : fragments) {
+            result.append(fragment.toByteBuffer());
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Writes all fragments by gathering writes. The channel is written until all bytes are written.
+     *
+     * @param channel the channel
+     * @return the number of bytes written
+     * @throws IOException in case of an I/O error
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] buffers = toByteBuffers();
+        long written = 0;
+        int offset = 0;
+        while (offset < buffers.length) {
+            written += channel.write(buffers, offset, buffers.length - offset);
+            while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+
+        return written;
+    }
+
+
+    /**
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<IByteArray> iterator() {
+        return Collections.unmodifiableList(fragments).iterator();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return toByteArray().toString();
+    }
+
+
+    /**
+     * Fills the unused capacity of the given byte arrays by a single scattering read, the read bytes are appended
+     * to the byte arrays in the given order. Use {@link ByteArray#createByteArrayWithSize(int)} to define how many
+     * bytes should be read into a byte array.
+     *
+     * @param channel the channel
+     * @param targets the byte arrays to fill
+     * @return the number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
+     * @throws IOException in case of an I/O error
+     */
+    public static long read(ScatteringByteChannel channel, ByteArray... targets) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            buffers[i] = targets[i].getSpareBuffer();
+        }
+
+        long count = channel.read(buffers);
+        for (int i = 0; i < targets.length; i++) {
+            targets[i].commitSpareBuffer(buffers[i].position() - targets[i].length());
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Fills the unused capacity of the given byte arrays completely, see {@link #read(ScatteringByteChannel, ByteArray...)}.
+     *
+     * @param channel the channel
+     * @param targets the byte arrays to fill
+     * @return the number of bytes read or -1 if the channel has reached end-of-stream before any byte was read
+     * @throws IOException in case of an I/O error
+     */
+    public static long readFully(ScatteringByteChannel channel, ByteArray... targets) throws IOException {
+        long total = 0;
+        boolean hasSpace = true;
+        while (hasSpace) {
+            long count = read(channel, targets);
+            if (count < 0) {
+                if (total == 0) {
+                    return -1;
+                }
+
+                return total;
+            }
+
+            total += count;
+            hasSpace = false;
+            for (ByteArray target : targets) {
+                if (target.length() < target.capacity()) {
+                    hasSpace = true;
+                }
+            }
+        }
+
+        return total;
+    }
+}
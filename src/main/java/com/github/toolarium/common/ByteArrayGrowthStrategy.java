@@ -0,0 +1,120 @@
+/*
+ * ByteArrayGrowthStrategy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+
+/**
+ * Implements the common growth strategies of a {@link ByteArray}:
+ * <ul>
+ *   <li>{@link #FIXED_BLOCK}: grows in blocks of {@link ByteArray#DEFAULT_BLOCK_SIZE} bytes.</li>
+ *   <li>{@link #DOUBLING}: doubles the capacity, which gives amortized constant time appends.</li>
+ *   <li>{@link #cappedDoubling(int)}: doubles the capacity but grows at most by the given number of bytes.</li>
+ * </ul>
+ *
+ * @author patrick
+ */
+public final class ByteArrayGrowthStrategy implements IByteArrayGrowthStrategy {
+    /** Grows in blocks of {@link ByteArray#DEFAULT_BLOCK_SIZE} bytes */
+    public static final IByteArrayGrowthStrategy FIXED_BLOCK = new ByteArrayGrowthStrategy(ByteArray.DEFAULT_BLOCK_SIZE, 0);
+
+    /** Doubles the capacity */
+    public static final IByteArrayGrowthStrategy DOUBLING = new ByteArrayGrowthStrategy(0, Integer.MAX_VALUE);
+
+    /** The maximal array size, some VMs reserve header words in an array */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final long serialVersionUID = -4153609823340138436L;
+    private final int blockSize;
+    private final int maxIncrement;
+
+
+    /**
+     * Constructor for ByteArrayGrowthStrategy
+     *
+     * @param blockSize the block size or 0 to grow geometric
+     * @param maxIncrement the maximal increment of a geometric growth
+     */
+    private ByteArrayGrowthStrategy(int blockSize, int maxIncrement) {
+        this.blockSize = blockSize;
+        this.maxIncrement = maxIncrement;
+    }
+
+
+    /**
+     * Creates a growth strategy which grows in blocks of the given size
+     *
+     * @param blockSize the block size
+     * @return the growth strategy
+     * @throws IllegalArgumentException in case of an invalid block size
+     */
+    public static IByteArrayGrowthStrategy fixedBlock(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize + "!");
+        }
+
+        return new ByteArrayGrowthStrategy(blockSize, 0);
+    }
+
+
+    /**
+     * Creates a growth strategy which doubles the capacity but grows at most by the given number of bytes
+     *
+     * @param maxIncrement the maximal increment
+     * @return the growth strategy
+     * @throws IllegalArgumentException in case of an invalid increment
+     */
+    public static IByteArrayGrowthStrategy cappedDoubling(int maxIncrement) {
+        if (maxIncrement <= 0) {
+            throw new IllegalArgumentException("Invalid max increment " + maxIncrement + "!");
+        }
+
+        return new ByteArrayGrowthStrategy(0, maxIncrement);
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArrayGrowthStrategy#getNewCapacity(int, int)
+     */
+    @Override
+    public int getNewCapacity(int currentCapacity, int requiredCapacity) {
+        if (requiredCapacity < 0 || requiredCapacity > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required array size too large (" + requiredCapacity + ")!");
+        }
+
+        long newCapacity;
+        if (blockSize > 0) {
+            newCapacity = ((long) requiredCapacity / blockSize + 1L) * blockSize;
+        } else {
+            newCapacity = (long) currentCapacity + Math.min(Math.max(currentCapacity, 1), maxIncrement);
+        }
+
+        if (newCapacity < requiredCapacity) {
+            newCapacity = requiredCapacity;
+        }
+
+        if (newCapacity > MAX_ARRAY_SIZE) {
+            newCapacity = MAX_ARRAY_SIZE;
+        }
+
+        return (int) newCapacity;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (blockSize > 0) {
+            return "fixed block (" + blockSize + ")";
+        }
+
+        if (maxIncrement == Integer.MAX_VALUE) {
+            return "doubling";
+        }
+
+        return "capped doubling (" + maxIncrement + ")";
+    }
+}
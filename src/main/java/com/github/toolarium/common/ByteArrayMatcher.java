@@ -0,0 +1,409 @@
+/*
+ * ByteArrayMatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Searches a set of byte patterns at once. The matcher is built once as Aho-Corasick automaton and finds all
+ * patterns in a single pass over the data, independent of the number of patterns. Instances are immutable and
+ * can be shared between threads.
+ *
+ * @author patrick
+ */
+public final class ByteArrayMatcher {
+    private static final int ALPHABET_SIZE = 256;
+    private final ByteArray[] patterns;
+    private final int maxPatternLength;
+    private final int[][] transitions;
+    private final int[][] outputs;
+
+
+    /**
+     * Constructor for ByteArrayMatcher
+     *
+     * @param patterns the patterns to search for
+     * @throws IllegalArgumentException in case there is no pattern or an empty pattern
+     */
+    public ByteArrayMatcher(ByteArray... patterns) {
+        this(Arrays.asList(patterns));
+    }
+
+
+    /**
+     * Constructor for ByteArrayMatcher
+     *
+     * @param patterns the patterns to search for, the pattern index corresponds to the iteration order
+     * @throws IllegalArgumentException in case there is no pattern or an empty pattern
+     */
+    public ByteArrayMatcher(Collection<ByteArray> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            throw new IllegalArgumentException("At least one pattern is required!");
+        }
+
+        this.patterns = new ByteArray[patterns.size()];
+        int totalLength = 0;
+        int maxLength = 0;
+        int idx = 0;
+        for (ByteArray pattern : patterns) {
+            if (pattern == null || pattern.length() == 0) {
+                throw new IllegalArgumentException("Empty pattern at index " + idx + "!");
+            }
+
+            this.patterns[idx++] = pattern.clone();
+            totalLength += pattern.length();
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+
+        this.maxPatternLength = maxLength;
+
+        // build the trie
+        List<int[]> trie = new ArrayList<int[]>(totalLength + 1);
+        List<int[]> trieOutputs = new ArrayList<int[]>(totalLength + 1);
+        trie.add(newState());
+        trieOutputs.add(new int[0]);
+        for (int p = 0; p < this.patterns.length; p++) {
+            byte[] data = this.patterns[p].getInternalBytes();
+            int state = 0;
+            for (int i = 0; i < this.patterns[p].length(); i++) {
+                int b = data[i] & 0xFF;
+                if (trie.get(state)[b] < 0) {
+                    trie.get(state)[b] = trie.size();
+                    trie.add(newState());
+                    trieOutputs.add(new int[0]);
+                }
+
+                state = trie.get(state)[b];
+            }
+
+            trieOutputs.set(state, append(trieOutputs.get(state), p));
+        }
+
+        // compute the failure links in breadth first order and complete the transitions to a deterministic automaton
+        this.transitions = trie.toArray(new int[trie.size()][]);
+        this.outputs = trieOutputs.toArray(new int[trieOutputs.size()][]);
+        int[] fail = new int[transitions.length];
+        int[] queue = new int[transitions.length];
+        int head = 0;
+        int tail = 0;
+        for (int b = 0; b < ALPHABET_SIZE; b++) {
+            int next = transitions[0][b];
+            if (next < 0) {
+                transitions[0][b] = 0;
+            } else {
+                fail[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            outputs[state] = merge(outputs[state], outputs[fail[state]]);
+            for (int b = 0; b < ALPHABET_SIZE; b++) {
+                int next = transitions[state][b];
+                if (next < 0) {
+                    transitions[state][b] = transitions[fail[state]][b];
+                } else {
+                    fail[next] = transitions[fail[state]][b];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Gets the number of patterns
+     *
+     * @return the number of patterns
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+
+    /**
+     * Gets a pattern
+     *
+     * @param patternIndex the index of the pattern
+     * @return the pattern (copy)
+     */
+    public ByteArray getPattern(int patternIndex) {
+        return patterns[patternIndex].clone();
+    }
+
+
+    /**
+     * Finds all occurrences of all patterns, including overlapping occurrences. The matches are ordered by their end position.
+     *
+     * @param data the data to search
+     * @return the matches
+     */
+    public List<Match> findAll(ByteArray data) {
+        List<Match> result = new ArrayList<Match>();
+        if (data == null) {
+            return result;
+        }
+
+        byte[] bytes = data.getInternalBytes();
+        int len = data.length();
+        int state = 0;
+        for (int i = 0; i < len; i++) {
+            state = transitions[state][bytes[i] & 0xFF];
+            for (int p : outputs[state]) {
+                result.add(new Match(i - patterns[p].length() + 1, patterns[p].length(), p));
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Finds the leftmost occurrence of any pattern, in case more patterns start at the same position the longest is taken.
+     *
+     * @param data the data to search
+     * @return the match or null if no pattern was found
+     */
+    public Match findFirst(ByteArray data) {
+        List<Match> result = new ArrayList<Match>(1);
+        scanLeftmostLongest(data, result, true);
+        if (result.isEmpty()) {
+            return null;
+        }
+
+        return result.get(0);
+    }
+
+
+    /**
+     * Finds the leftmost longest, non overlapping occurrences of the patterns. This corresponds to the occurrences
+     * which are replaced by {@link #replace(ByteArray, List)}.
+     *
+     * @param data the data to search
+     * @return the matches ordered by their start position
+     */
+    public List<Match> findNonOverlapping(ByteArray data) {
+        List<Match> result = new ArrayList<Match>();
+        scanLeftmostLongest(data, result, false);
+        return result;
+    }
+
+
+    /**
+     * Replaces the leftmost longest, non overlapping occurrences of the patterns in a single pass.
+     *
+     * @param data the data
+     * @param replacements the replacement of each pattern, the index corresponds to the pattern index
+     * @return the replaced byte array (copy)
+     * @throws IllegalArgumentException in case the number of replacements does not match the number of patterns
+     */
+    public ByteArray replace(ByteArray data, List<ByteArray> replacements) {
+        if (replacements == null || replacements.size() != patterns.length) {
+            throw new IllegalArgumentException("Invalid number of replacements, expected " + patterns.length + "!");
+        }
+
+        if (data == null) {
+            return null;
+        }
+
+        List<Match> matches = findNonOverlapping(data);
+        byte[] bytes = data.getInternalBytes();
+        ByteArray result = ByteArray.createByteArrayWithSize(data.length());
+        int start = 0;
+        for (Match match : matches) {
+            if (match.getStart() > start) {
+                result.append(bytes, start, match.getStart() - start);
+            }
+
+            ByteArray replacement = replacements.get(match.getPatternIndex());
+            if (replacement != null) {
+                result.append(replacement);
+            }
+
+            start = match.getEnd();
+        }
+
+        if (start < data.length()) {
+            result.append(bytes, start, data.length() - start);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Scans the data and reports the leftmost longest, non overlapping matches. The best match of every start position
+     * is kept in a ring buffer; a start position is final as soon as no longer pattern can start there.
+     *
+     * @param data the data to search
+     * @param result the result list
+     * @param firstOnly true to stop after the first match
+     */
+    private void scanLeftmostLongest(ByteArray data, List<Match> result, boolean firstOnly) {
+        if (data == null) {
+            return;
+        }
+
+        byte[] bytes = data.getInternalBytes();
+        int len = data.length();
+        int[] bestPattern = new int[maxPatternLength];
+        Arrays.fill(bestPattern, -1);
+        int nextFree = 0;
+        int state = 0;
+        for (int i = 0; i <= len + maxPatternLength; i++) {
+            // the start position i - maxPatternLength can not get any further match
+            int finalStart = i - maxPatternLength;
+            if (finalStart >= 0) {
+                int slot = finalStart % maxPatternLength;
+                int p = bestPattern[slot];
+                bestPattern[slot] = -1;
+                if (p >= 0 && finalStart >= nextFree) {
+                    result.add(new Match(finalStart, patterns[p].length(), p));
+                    if (firstOnly) {
+                        return;
+                    }
+
+                    nextFree = finalStart + patterns[p].length();
+                }
+            }
+
+            if (i < len) {
+                state = transitions[state][bytes[i] & 0xFF];
+                for (int p : outputs[state]) {
+                    int start = i - patterns[p].length() + 1;
+                    int slot = start % maxPatternLength;
+                    if (bestPattern[slot] < 0 || patterns[bestPattern[slot]].length() < patterns[p].length()) {
+                        bestPattern[slot] = p;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Creates a new state without transitions
+     *
+     * @return the new state
+     */
+    private static int[] newState() {
+        int[] state = new int[ALPHABET_SIZE];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+
+    /**
+     * Appends a value to an array
+     *
+     * @param array the array
+     * @param value the value
+     * @return the new array
+     */
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+
+    /**
+     * Merges two arrays
+     *
+     * @param array1 the first array
+     * @param array2 the second array
+     * @return the merged array
+     */
+    private static int[] merge(int[] array1, int[] array2) {
+        if (array2.length == 0) {
+            return array1;
+        }
+
+        int[] result = Arrays.copyOf(array1, array1.length + array2.length);
+        System.arraycopy(array2, 0, result, array1.length, array2.length);
+        return result;
+    }
+
+
+    /**
+     * Defines a match of a pattern
+     *
+     * @author patrick
+     */
+    public static final class Match {
+        private final int start;
+        private final int length;
+        private final int patternIndex;
+
+
+        /**
+         * Constructor for Match
+         *
+         * @param start the start position
+         * @param length the length
+         * @param patternIndex the pattern index
+         */
+        Match(int start, int length, int patternIndex) {
+            this.start = start;
+            this.length = length;
+            this.patternIndex = patternIndex;
+        }
+
+
+        /**
+         * Gets the start position of the match
+         *
+         * @return the start position
+         */
+        public int getStart() {
+            return start;
+        }
+
+
+        /**
+         * Gets the end position of the match (exclusive)
+         *
+         * @return the end position
+         */
+        public int getEnd() {
+            return start + length;
+        }
+
+
+        /**
+         * Gets the length of the match
+         *
+         * @return the length
+         */
+        public int getLength() {
+            return length;
+        }
+
+
+        /**
+         * Gets the index of the matched pattern
+         *
+         * @return the pattern index
+         */
+        public int getPatternIndex() {
+            return patternIndex;
+        }
+
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "Match [start=" + start + ", length=" + length + ", patternIndex=" + patternIndex + "]";
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * ByteArrayReader.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import com.github.toolarium.common.util.ByteUtil;
+import java.nio.ByteOrder;
+
+
+/**
+ * Reads primitive values from a byte array with an explicit byte order. The values are read directly from the backing
+ * array, nothing is allocated. The relative read methods advance the position, the absolute get methods don't.
+ * A reader is not thread safe.
+ *
+ * @author patrick
+ */
+public class ByteArrayReader {
+    private final byte[] bytes;
+    private final int offset;
+    private final int limit;
+    private int position;
+    private ByteOrder order;
+
+
+    /**
+     * Constructor for ByteArrayReader, the byte order is big endian
+     *
+     * @param data the data, the reader is only valid as long as the data is not modified
+     */
+    public ByteArrayReader(ByteArray data) {
+        this(data.getInternalBytes(), 0, data.length());
+    }
+
+
+    /**
+     * Constructor for ByteArrayReader, the byte order is big endian
+     *
+     * @param data the data, the reader is only valid as long as the underlying data is not modified
+     */
+    public ByteArrayReader(ByteArraySlice data) {
+        this(data.getInternalBytes(), data.getInternalOffset(), data.length());
+    }
+
+
+    /**
+     * Constructor for ByteArrayReader, the byte order is big endian
+     *
+     * @param bytes the bytes
+     * @param offset the offset of the data
+     * @param length the length of the data
+     * @throws IllegalArgumentException in case of an invalid offset or length
+     */
+    public ByteArrayReader(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IllegalArgumentException("Invalid offset (" + offset + ") or length (" + length + ")!");
+        }
+
+        this.bytes = bytes;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.position = offset;
+        this.order = ByteOrder.BIG_ENDIAN;
+    }
+
+
+    /**
+     * Gets the byte order
+     *
+     * @return the byte order
+     */
+    public ByteOrder order() {
+        return order;
+    }
+
+
+    /**
+     * Sets the byte order
+     *
+     * @param order the byte order
+     * @return the reader
+     */
+    public ByteArrayReader order(ByteOrder order) {
+        this.order = order;
+        return this;
+    }
+
+
+    /**
+     * Gets the position
+     *
+     * @return the position relative to the start of the data
+     */
+    public int position() {
+        return position - offset;
+    }
+
+
+    /**
+     * Sets the position
+     *
+     * @param newPosition the position relative to the start of the data
+     * @return the reader
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public ByteArrayReader position(int newPosition) {
+        if (newPosition < 0 || newPosition > length()) {
+            throw new ArrayIndexOutOfBoundsException("Invalid position at " + newPosition + " (length:" + length() + ")!");
+        }
+
+        position = offset + newPosition;
+        return this;
+    }
+
+
+    /**
+     * Gets the length of the data
+     *
+     * @return the length
+     */
+    public int length() {
+        return limit - offset;
+    }
+
+
+    /**
+     * Gets the number of remaining bytes
+     *
+     * @return the number of remaining bytes
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+
+    /**
+     * Check if there are remaining bytes
+     *
+     * @return true if there are remaining bytes
+     */
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+
+    /**
+     * Skips some bytes
+     *
+     * @param count the number of bytes to skip
+     * @return the reader
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public ByteArrayReader skip(int count) {
+        position = checkIndex(position, count) + count;
+        return this;
+    }
+
+
+    /**
+     * Reads a byte
+     *
+     * @return the byte
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public byte readByte() {
+        byte result = bytes[checkIndex(position, 1)];
+        position++;
+        return result;
+    }
+
+
+    /**
+     * Reads an unsigned byte
+     *
+     * @return the unsigned byte
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public int readUnsignedByte() {
+        return readByte() & 0xFF;
+    }
+
+
+    /**
+     * Reads a short
+     *
+     * @return the short
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public short readShort() {
+        short result = ByteUtil.getInstance().getShort(bytes, checkIndex(position, 2), order);
+        position += 2;
+        return result;
+    }
+
+
+    /**
+     * Reads an unsigned short
+     *
+     * @return the unsigned short
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public int readUnsignedShort() {
+        return readShort() & 0xFFFF;
+    }
+
+
+    /**
+     * Reads an int
+     *
+     * @return the int
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public int readInt() {
+        int result = ByteUtil.getInstance().getInt(bytes, checkIndex(position, 4), order);
+        position += 4;
+        return result;
+    }
+
+
+    /**
+     * Reads an unsigned int
+     *
+     * @return the unsigned int
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public long readUnsignedInt() {
+        return readInt() & 0xFFFFFFFFL;
+    }
+
+
+    /**
+     * Reads a long
+     *
+     * @return the long
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public long readLong() {
+        long result = ByteUtil.getInstance().getLong(bytes, checkIndex(position, 8), order);
+        position += 8;
+        return result;
+    }
+
+
+    /**
+     * Reads a float
+     *
+     * @return the float
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+
+    /**
+     * Reads a double
+     *
+     * @return the double
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+
+    /**
+     * Reads an unsigned variable length int (LEB128), the byte order is not relevant.
+     *
+     * @return the int
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public int readVarInt() {
+        long result = readVarLong();
+        if ((result >>> 32) != 0) {
+            throw new IllegalArgumentException("Malformed variable length int at position " + position() + "!");
+        }
+
+        return (int) result;
+    }
+
+
+    /**
+     * Reads an unsigned variable length long (LEB128), the byte order is not relevant.
+     *
+     * @return the long
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable length long at position " + position() + "!");
+    }
+
+
+    /**
+     * Reads a signed variable length int (zigzag and LEB128)
+     *
+     * @return the int
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public int readSignedVarInt() {
+        return ByteUtil.getInstance().decodeZigZag(readVarInt());
+    }
+
+
+    /**
+     * Reads a signed variable length long (zigzag and LEB128)
+     *
+     * @return the long
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public long readSignedVarLong() {
+        return ByteUtil.getInstance().decodeZigZag(readVarLong());
+    }
+
+
+    /**
+     * Reads a sequence of delta encoded ints, see {@link ByteArrayWriter#writeDeltaVarInts(int[], int, int)}.
+     *
+     * @param dst the destination
+     * @param dstOffset the offset in the destination
+     * @param count the number of values
+     * @return the reader
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public ByteArrayReader readDeltaVarInts(int[] dst, int dstOffset, int count) {
+        position += ByteUtil.getInstance().decodeDeltaVarInt(bytes, position, remaining(), dst, dstOffset, count);
+        return this;
+    }
+
+
+    /**
+     * Reads a sequence of delta encoded longs, see {@link ByteArrayWriter#writeDeltaVarLongs(long[], int, int)}.
+     *
+     * @param dst the destination
+     * @param dstOffset the offset in the destination
+     * @param count the number of values
+     * @return the reader
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public ByteArrayReader readDeltaVarLongs(long[] dst, int dstOffset, int count) {
+        position += ByteUtil.getInstance().decodeDeltaVarLong(bytes, position, remaining(), dst, dstOffset, count);
+        return this;
+    }
+
+
+    /**
+     * Reads bytes into the given array
+     *
+     * @param dst the destination
+     * @param dstOffset the offset in the destination
+     * @param len the number of bytes
+     * @return the reader
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public ByteArrayReader readBytes(byte[] dst, int dstOffset, int len) {
+        System.arraycopy(bytes, checkIndex(position, len), dst, dstOffset, len);
+        position += len;
+        return this;
+    }
+
+
+    /**
+     * Reads bytes as view without copying
+     *
+     * @param len the number of bytes
+     * @return the slice (no copy)
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    public ByteArraySlice readSlice(int len) {
+        ByteArraySlice result = new ByteArraySlice(bytes, checkIndex(position, len), len);
+        position += len;
+        return result;
+    }
+
+
+    /**
+     * Gets a byte at the given position
+     *
+     * @param index the position relative to the start of the data
+     * @return the byte
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public byte getByte(int index) {
+        return bytes[checkIndex(offset + index, 1)];
+    }
+
+
+    /**
+     * Gets a short at the given position
+     *
+     * @param index the position relative to the start of the data
+     * @return the short
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public short getShort(int index) {
+        return ByteUtil.getInstance().getShort(bytes, checkIndex(offset + index, 2), order);
+    }
+
+
+    /**
+     * Gets an int at the given position
+     *
+     * @param index the position relative to the start of the data
+     * @return the int
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public int getInt(int index) {
+        return ByteUtil.getInstance().getInt(bytes, checkIndex(offset + index, 4), order);
+    }
+
+
+    /**
+     * Gets a long at the given position
+     *
+     * @param index the position relative to the start of the data
+     * @return the long
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public long getLong(int index) {
+        return ByteUtil.getInstance().getLong(bytes, checkIndex(offset + index, 8), order);
+    }
+
+
+    /**
+     * Checks if the given number of bytes are available at the given absolute index
+     *
+     * @param index the absolute index
+     * @param count the number of bytes
+     * @return the absolute index
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     */
+    private int checkIndex(int index, int count) {
+        if (index < offset || count < 0 || index > limit - count) {
+            throw new ArrayIndexOutOfBoundsException("Invalid access of " + count + " bytes at position " + (index - offset) + " (length:" + length() + ")!");
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * ByteArrayRecordSplitter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import com.github.toolarium.common.util.BytePattern;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+
+/**
+ * Splits a byte stream into records. The channel is consumed incrementally in chunks of a fixed size, a delimiter
+ * which spans chunk boundaries is found as well. The records are returned as views on the internal buffer and are
+ * only valid until the next call of {@link #nextRecord()}; use {@link ByteArraySlice#toByteArray()} to keep them.
+ * The memory is bounded by the maximal record size plus the chunk size.
+ *
+ * <pre>
+ * try (ByteArrayRecordSplitter splitter = new ByteArrayRecordSplitter(channel)) {
+ *     ByteArraySlice line;
+ *     while ((line = splitter.nextRecord()) != null) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author patrick
+ */
+public class ByteArrayRecordSplitter implements Closeable {
+    /** The default chunk size */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+    /** The default maximal record size */
+    public static final int DEFAULT_MAX_RECORD_SIZE = 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final BytePattern delimiter;
+    private final int chunkSize;
+    private final int maxRecordSize;
+    private final ByteArray buffer;
+    private int start;
+    private int searchFrom;
+    private boolean endOfStream;
+    private long recordCount;
+
+
+    /**
+     * Constructor for ByteArrayRecordSplitter, splits lines by {@link ByteArray#NL}
+     *
+     * @param channel the channel to read from
+     */
+    public ByteArrayRecordSplitter(ReadableByteChannel channel) {
+        this(channel, ByteArray.NL);
+    }
+
+
+    /**
+     * Constructor for ByteArrayRecordSplitter
+     *
+     * @param channel the channel to read from
+     * @param delimiter the record delimiter, e.g. {@link ByteArray#NL} or <code>\r\n</code>
+     */
+    public ByteArrayRecordSplitter(ReadableByteChannel channel, ByteArray delimiter) {
+        this(channel, delimiter, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_RECORD_SIZE);
+    }
+
+
+    /**
+     * Constructor for ByteArrayRecordSplitter
+     *
+     * @param channel the channel to read from, it should be blocking
+     * @param delimiter the record delimiter
+     * @param chunkSize the number of bytes which are read at once
+     * @param maxRecordSize the maximal size of a record
+     * @throws IllegalArgumentException in case of an invalid parameter
+     */
+    public ByteArrayRecordSplitter(ReadableByteChannel channel, ByteArray delimiter, int chunkSize, int maxRecordSize) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Invalid channel!");
+        }
+
+        if (delimiter == null || delimiter.length() == 0) {
+            throw new IllegalArgumentException("Invalid empty delimiter!");
+        }
+
+        if (chunkSize <= 0 || maxRecordSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size (" + chunkSize + ") or maximal record size (" + maxRecordSize + ")!");
+        }
+
+        this.channel = channel;
+        this.delimiter = new BytePattern(delimiter);
+        this.chunkSize = chunkSize;
+        this.maxRecordSize = maxRecordSize;
+        this.buffer = ByteArray.createByteArrayWithSize(chunkSize);
+        this.start = 0;
+        this.searchFrom = 0;
+        this.endOfStream = false;
+        this.recordCount = 0;
+    }
+
+
+    /**
+     * Gets the next record without the delimiter. The returned view is valid until the next call.
+     *
+     * @return the next record or null if the end of the stream is reached
+     * @throws IOException in case of an I/O error or if a record exceeds the maximal record size
+     */
+    public ByteArraySlice nextRecord() throws IOException {
+        while (true) {
+            int idx = delimiter.indexOf(buffer.getInternalBytes(), 0, buffer.length(), searchFrom);
+            if (idx >= 0) {
+                ByteArraySlice record = buffer.slice(start, idx);
+                start = idx + delimiter.length();
+                searchFrom = start;
+                recordCount++;
+                return record;
+            }
+
+            if (endOfStream) {
+                if (start < buffer.length()) {
+                    ByteArraySlice record = buffer.slice(start, buffer.length());
+                    start = buffer.length();
+                    searchFrom = start;
+                    recordCount++;
+                    return record;
+                }
+
+                return null;
+            }
+
+            // a delimiter can start within the last bytes, it may be completed by the next chunk
+            searchFrom = Math.max(start, buffer.length() - delimiter.length() + 1);
+            readChunk();
+        }
+    }
+
+
+    /**
+     * Gets the number of records which were returned
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    /**
+     * Reads the next chunk, the consumed bytes are removed before.
+     *
+     * @throws IOException in case of an I/O error or if a record exceeds the maximal record size
+     */
+    private void readChunk() throws IOException {
+        if (start > 0) {
+            buffer.chopLeft(start);
+            searchFrom -= start;
+            start = 0;
+        }
+
+        if (buffer.length() >= maxRecordSize) {
+            throw new IOException("Record exceeds the maximal size of " + maxRecordSize + " bytes!");
+        }
+
+        if (buffer.capacity() - buffer.length() < chunkSize) {
+            buffer.crowUpDataSize(chunkSize);
+        }
+
+        ByteBuffer spare = buffer.getSpareBuffer();
+        spare.limit(spare.position() + chunkSize);
+        int count = channel.read(spare);
+        if (count < 0) {
+            endOfStream = true;
+        } else {
+            buffer.commitSpareBuffer(count);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * ByteArraySlice.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import com.github.toolarium.common.util.ByteUtil;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Defines a read-only view on a part of a {@link ByteArray}. The slice shares the internal buffer of the
+ * byte array, no data is copied. The slice reflects changes of the underlying bytes as long as the byte array
+ * does not reallocate its internal buffer. Use {@link #toByteArray()} to get an independent copy.
+ *
+ * @author patrick
+ */
+public final class ByteArraySlice implements IByteArray {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+
+    /**
+     * Constructor for ByteArraySlice
+     *
+     * @param bytes the shared bytes
+     * @param offset the offset in the shared bytes
+     * @param length the length of the slice
+     */
+    ByteArraySlice(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+
+    /**
+     * Return the number of bytes
+     *
+     * @return the number of bytes
+     */
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * Return a specific byte from the slice
+     *
+     * @param pos the position in the slice
+     * @return a byte
+     * @throws ArrayIndexOutOfBoundsException in case of error
+     */
+    public byte get(int pos) throws ArrayIndexOutOfBoundsException {
+        if (pos >= 0 && pos < length) {
+            return bytes[offset + pos];
+        }
+
+        throw new ArrayIndexOutOfBoundsException("Invalid position at " + pos + " (length:" + length + ")!");
+    }
+
+
+    /**
+     * Return a sub slice, the positions are relative to this slice
+     *
+     * @param startPos the start position
+     * @param endPos the end position
+     * @return the sub slice (no copy)
+     */
+    public ByteArraySlice slice(int startPos, int endPos) {
+        int start = clamp(startPos);
+        int end = clamp(endPos);
+        if (start >= end) {
+            return new ByteArraySlice(bytes, offset, 0);
+        }
+
+        return new ByteArraySlice(bytes, offset + start, end - start);
+    }
+
+
+    /**
+     * Finds a byte in the slice
+     *
+     * @param toFind the byte to find
+     * @return the position in the slice or -1
+     */
+    public int indexOf(byte toFind) {
+        return indexOf(toFind, 0);
+    }
+
+
+    /**
+     * Finds a byte in the slice
+     *
+     * @param toFind the byte to find
+     * @param fromIndex the index from which to start the search
+     * @return the position in the slice or -1
+     */
+    public int indexOf(byte toFind, int fromIndex) {
+        int end = offset + length;
+        for (int i = offset + Math.max(fromIndex, 0); i < end; i++) {
+            if (bytes[i] == toFind) {
+                return i - offset;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Returns the index within this slice of the first occurrence of the specified sub array.
+     *
+     * @param toFind the sub array for which to search.
+     * @return the index within this slice of the first occurrence of the specified sub array or -1
+     */
+    public int indexOf(ByteArray toFind) {
+        return indexOf(toFind, 0);
+    }
+
+
+    /**
+     * Returns the index within this slice of the first occurrence of the specified sub array, starting at the specified index.
+     *
+     * @param toFind the sub array for which to search.
+     * @param fromIndex the index from which to start the search.
+     * @return the index within this slice of the first occurrence of the specified sub array or -1
+     */
+    public int indexOf(ByteArray toFind, int fromIndex) {
+        if (toFind == null) {
+            return -1;
+        }
+
+        return ByteUtil.getInstance().indexOf(bytes, offset, length, toFind.getInternalBytes(), 0, toFind.length(), fromIndex);
+    }
+
+
+    /**
+     * Returns the index within this slice of the first occurrence of the specified slice, starting at the specified index.
+     *
+     * @param toFind the slice for which to search.
+     * @param fromIndex the index from which to start the search.
+     * @return the index within this slice of the first occurrence of the specified slice or -1
+     */
+    public int indexOf(ByteArraySlice toFind, int fromIndex) {
+        if (toFind == null) {
+            return -1;
+        }
+
+        return ByteUtil.getInstance().indexOf(bytes, offset, length, toFind.bytes, toFind.offset, toFind.length, fromIndex);
+    }
+
+
+    /**
+     * Finds the last occurrence of a byte in the slice
+     *
+     * @param toFind the byte to find
+     * @return the position in the slice or -1
+     */
+    public int lastIndexOf(byte toFind) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            if (bytes[i] == toFind) {
+                return i - offset;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Test if the slice starts with the given prefix
+     *
+     * @param prefix the byte to test
+     * @return true if it starts with the prefix
+     */
+    public boolean startsWith(byte prefix) {
+        return length > 0 && bytes[offset] == prefix;
+    }
+
+
+    /**
+     * Test if the slice starts with the given prefix
+     *
+     * @param prefix the bytes to test
+     * @return true if it starts with the prefix
+     */
+    public boolean startsWith(ByteArray prefix) {
+        if (prefix == null) {
+            return false;
+        }
+
+        return regionMatches(0, prefix.getInternalBytes(), 0, prefix.length());
+    }
+
+
+    /**
+     * Test if the slice starts with the given prefix
+     *
+     * @param prefix the bytes to test
+     * @return true if it starts with the prefix
+     */
+    public boolean startsWith(ByteArraySlice prefix) {
+        if (prefix == null) {
+            return false;
+        }
+
+        return regionMatches(0, prefix.bytes, prefix.offset, prefix.length);
+    }
+
+
+    /**
+     * Test if the slice ends with the given suffix
+     *
+     * @param suffix the byte to test
+     * @return true if it ends with the suffix
+     */
+    public boolean endsWith(byte suffix) {
+        return length > 0 && bytes[offset + length - 1] == suffix;
+    }
+
+
+    /**
+     * Test if the slice ends with the given suffix
+     *
+     * @param suffix the bytes to test
+     * @return true if it ends with the suffix
+     */
+    public boolean endsWith(ByteArray suffix) {
+        if (suffix == null) {
+            return false;
+        }
+
+        return regionMatches(length - suffix.length(), suffix.getInternalBytes(), 0, suffix.length());
+    }
+
+
+    /**
+     * Test if the slice ends with the given suffix
+     *
+     * @param suffix the bytes to test
+     * @return true if it ends with the suffix
+     */
+    public boolean endsWith(ByteArraySlice suffix) {
+        if (suffix == null) {
+            return false;
+        }
+
+        return regionMatches(length - suffix.length, suffix.bytes, suffix.offset, suffix.length);
+    }
+
+
+    /**
+     * Test if the slice has the same content as the given byte array
+     *
+     * @param byteArray the byte array
+     * @return true if the content is equal
+     */
+    public boolean contentEquals(ByteArray byteArray) {
+        if (byteArray == null || byteArray.length() != length) {
+            return false;
+        }
+
+        return length == 0 || regionMatches(0, byteArray.getInternalBytes(), 0, length);
+    }
+
+
+    /**
+     * Return the bytes as a copy
+     *
+     * @return the bytes (copy)
+     */
+    public byte[] toBytes() {
+        byte[] data = new byte[length];
+        System.arraycopy(bytes, offset, data, 0, length);
+        return data;
+    }
+
+
+    /**
+     * Return the slice as an independent byte array
+     *
+     * @return the byte array (copy)
+     */
+    public ByteArray toByteArray() {
+        return ByteArray.createByteArrayWithSize(length).append(bytes, offset, length);
+    }
+
+
+    /**
+     * Return a read-only byte buffer of the slice
+     *
+     * @return the buffer (no copy)
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Convert to hex string
+     *
+     * @return the slice as hex string
+     */
+    public String toHex() {
+        return ByteUtil.getInstance().toHex(bytes, offset, length, true);
+    }
+
+
+    /**
+     * Convert to String
+     *
+     * @return the slice as String
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length);
+    }
+
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        return hash;
+    }
+
+
+    /**
+     * Calculates a fast, non-cryptographic 64-bit hash of the slice, see {@link ByteArray#hash64()}.
+     *
+     * @return the 64-bit hash
+     */
+    public long hash64() {
+        return ByteUtil.getInstance().hash64(bytes, offset, length);
+    }
+
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || other.getClass() != this.getClass()) {
+            return false;
+        }
+
+        ByteArraySlice slice = (ByteArraySlice) other;
+        if (length != slice.length) {
+            return false;
+        }
+
+        return length == 0 || regionMatches(0, slice.bytes, slice.offset, slice.length);
+    }
+
+
+    /**
+     * Gets the shared bytes
+     *
+     * @return the shared bytes (no copy)
+     */
+    byte[] getInternalBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * Gets the offset in the shared bytes
+     *
+     * @return the offset
+     */
+    int getInternalOffset() {
+        return offset;
+    }
+
+
+    /**
+     * Compares a region of the slice with the given bytes
+     *
+     * @param pos the position in the slice
+     * @param other the bytes to compare
+     * @param otherOffset the offset in the bytes to compare
+     * @param otherLength the number of bytes to compare
+     * @return true if the region matches; an empty region never matches
+     */
+    private boolean regionMatches(int pos, byte[] other, int otherOffset, int otherLength) {
+        if (otherLength <= 0 || pos < 0 || pos > length - otherLength) {
+            return false;
+        }
+
+        int p = offset + pos;
+        for (int i = 0; i < otherLength; i++) {
+            if (bytes[p + i] != other[otherOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Clamp a position into the range of the slice
+     *
+     * @param pos the position
+     * @return the clamped position
+     */
+    private int clamp(int pos) {
+        if (pos < 0) {
+            return 0;
+        }
+
+        return Math.min(pos, length);
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * ByteArrayWriter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import com.github.toolarium.common.util.ByteUtil;
+import java.nio.ByteOrder;
+
+
+/**
+ * Writes primitive values with an explicit byte order to a byte array. The values are appended directly into the internal
+ * buffer of the byte array, which grows by its growth strategy. The absolute put methods overwrite already written bytes,
+ * e.g. to patch a length prefix. A writer is not thread safe.
+ *
+ * @author patrick
+ */
+public class ByteArrayWriter {
+    private final ByteArray data;
+    private ByteOrder order;
+
+
+    /**
+     * Constructor for ByteArrayWriter, the byte order is big endian
+     */
+    public ByteArrayWriter() {
+        this(new ByteArray());
+    }
+
+
+    /**
+     * Constructor for ByteArrayWriter, the byte order is big endian
+     *
+     * @param data the byte array to append to
+     */
+    public ByteArrayWriter(ByteArray data) {
+        this.data = data;
+        this.order = ByteOrder.BIG_ENDIAN;
+    }
+
+
+    /**
+     * Gets the byte order
+     *
+     * @return the byte order
+     */
+    public ByteOrder order() {
+        return order;
+    }
+
+
+    /**
+     * Sets the byte order
+     *
+     * @param order the byte order
+     * @return the writer
+     */
+    public ByteArrayWriter order(ByteOrder order) {
+        this.order = order;
+        return this;
+    }
+
+
+    /**
+     * Gets the byte array
+     *
+     * @return the byte array (no copy)
+     */
+    public ByteArray getByteArray() {
+        return data;
+    }
+
+
+    /**
+     * Gets the position, which corresponds to the length of the byte array
+     *
+     * @return the position
+     */
+    public int position() {
+        return data.length();
+    }
+
+
+    /**
+     * Writes a byte
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeByte(int value) {
+        data.append((byte) value);
+        return this;
+    }
+
+
+    /**
+     * Writes a short
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeShort(int value) {
+        ByteUtil.getInstance().putShort(reserve(2), data.length(), (short) value, order);
+        data.commitSpareBuffer(2);
+        return this;
+    }
+
+
+    /**
+     * Writes an int
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeInt(int value) {
+        ByteUtil.getInstance().putInt(reserve(4), data.length(), value, order);
+        data.commitSpareBuffer(4);
+        return this;
+    }
+
+
+    /**
+     * Writes a long
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeLong(long value) {
+        ByteUtil.getInstance().putLong(reserve(8), data.length(), value, order);
+        data.commitSpareBuffer(8);
+        return this;
+    }
+
+
+    /**
+     * Writes a float
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeFloat(float value) {
+        return writeInt(Float.floatToRawIntBits(value));
+    }
+
+
+    /**
+     * Writes a double
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeDouble(double value) {
+        return writeLong(Double.doubleToRawLongBits(value));
+    }
+
+
+    /**
+     * Writes an unsigned variable length int (LEB128), the byte order is not relevant.
+     *
+     * @param value the value, negative values are written as unsigned int (5 bytes)
+     * @return the writer
+     */
+    public ByteArrayWriter writeVarInt(int value) {
+        return writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * Writes an unsigned variable length long (LEB128), the byte order is not relevant.
+     *
+     * @param value the value, negative values are written as unsigned long (10 bytes)
+     * @return the writer
+     */
+    public ByteArrayWriter writeVarLong(long value) {
+        data.commitSpareBuffer(ByteUtil.getInstance().putVarLong(reserve(10), data.length(), value));
+        return this;
+    }
+
+
+    /**
+     * Writes a signed variable length int (zigzag and LEB128), small negative values need less bytes.
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeSignedVarInt(int value) {
+        return writeVarInt(ByteUtil.getInstance().encodeZigZag(value));
+    }
+
+
+    /**
+     * Writes a signed variable length long (zigzag and LEB128), small negative values need less bytes.
+     *
+     * @param value the value
+     * @return the writer
+     */
+    public ByteArrayWriter writeSignedVarLong(long value) {
+        return writeVarLong(ByteUtil.getInstance().encodeZigZag(value));
+    }
+
+
+    /**
+     * Writes a sequence of ints as delta encoded variable length values, see {@link ByteUtil#encodeDeltaVarInt(int[], int, int, byte[], int)}.
+     *
+     * @param values the values
+     * @param offset the offset of the values
+     * @param count the number of values
+     * @return the writer
+     */
+    public ByteArrayWriter writeDeltaVarInts(int[] values, int offset, int count) {
+        data.commitSpareBuffer(ByteUtil.getInstance().encodeDeltaVarInt(values, offset, count, reserve(5 * count), data.length()));
+        return this;
+    }
+
+
+    /**
+     * Writes a sequence of longs as delta encoded variable length values, see {@link ByteUtil#encodeDeltaVarLong(long[], int, int, byte[], int)}.
+     *
+     * @param values the values
+     * @param offset the offset of the values
+     * @param count the number of values
+     * @return the writer
+     */
+    public ByteArrayWriter writeDeltaVarLongs(long[] values, int offset, int count) {
+        data.commitSpareBuffer(ByteUtil.getInstance().encodeDeltaVarLong(values, offset, count, reserve(10 * count), data.length()));
+        return this;
+    }
+
+
+    /**
+     * Writes bytes
+     *
+     * @param src the bytes
+     * @param srcOffset the offset of the bytes
+     * @param len the number of bytes
+     * @return the writer
+     */
+    public ByteArrayWriter writeBytes(byte[] src, int srcOffset, int len) {
+        data.append(src, srcOffset, len);
+        return this;
+    }
+
+
+    /**
+     * Overwrites a short at the given position
+     *
+     * @param index the position
+     * @param value the value
+     * @return the writer
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public ByteArrayWriter putShort(int index, int value) {
+        ByteUtil.getInstance().putShort(modify(index, 2), index, (short) value, order);
+        return this;
+    }
+
+
+    /**
+     * Overwrites an int at the given position
+     *
+     * @param index the position
+     * @param value the value
+     * @return the writer
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public ByteArrayWriter putInt(int index, int value) {
+        ByteUtil.getInstance().putInt(modify(index, 4), index, value, order);
+        return this;
+    }
+
+
+    /**
+     * Overwrites a long at the given position
+     *
+     * @param index the position
+     * @param value the value
+     * @return the writer
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    public ByteArrayWriter putLong(int index, long value) {
+        ByteUtil.getInstance().putLong(modify(index, 8), index, value, order);
+        return this;
+    }
+
+
+    /**
+     * Ensures there is enough space for the given number of bytes
+     *
+     * @param count the number of bytes
+     * @return the internal buffer
+     */
+    private byte[] reserve(int count) {
+        data.crowUpDataSize(count);
+        return data.getInternalBytes();
+    }
+
+
+    /**
+     * Prepares the modification of already written bytes
+     *
+     * @param index the position
+     * @param count the number of bytes
+     * @return the internal buffer
+     * @throws ArrayIndexOutOfBoundsException in case of an invalid position
+     */
+    private byte[] modify(int index, int count) {
+        if (index < 0 || index > data.length() - count) {
+            throw new ArrayIndexOutOfBoundsException("Invalid access of " + count + " bytes at position " + index + " (length:" + data.length() + ")!");
+        }
+
+        // resets the cached hash code of the byte array
+        data.commitSpareBuffer(0);
+        return data.getInternalBytes();
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * DirectByteArray.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import com.github.toolarium.common.util.BytePattern;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * Implements a growing byte array which keeps its bytes in direct (off-heap) memory. Data can be read from a channel,
+ * searched and written to another channel without copying it onto the heap. The memory of the direct buffer is
+ * released by the garbage collector as soon as the instance is no longer referenced.
+ *
+ * @author patrick
+ */
+public class DirectByteArray implements IByteArray, WritableByteChannel, ReadableByteChannel {
+    private ByteBuffer buffer;
+    private int length;
+    private boolean isOpen;
+    private IByteArrayGrowthStrategy growthStrategy;
+
+
+    /**
+     * Create a DirectByteArray with the default size
+     */
+    public DirectByteArray() {
+        this(ByteArray.DEFAULT_BLOCK_SIZE);
+    }
+
+
+    /**
+     * Create a DirectByteArray with a specific initial capacity
+     *
+     * @param capacity the initial capacity
+     */
+    public DirectByteArray(int capacity) {
+        buffer = ByteBuffer.allocateDirect(Math.max(capacity, 0));
+        length = 0;
+        isOpen = true;
+        growthStrategy = ByteArrayGrowthStrategy.DOUBLING;
+    }
+
+
+    /**
+     * Create a DirectByteArray with a copy of the given data
+     *
+     * @param data the data
+     */
+    public DirectByteArray(IByteArray data) {
+        this(data.length());
+        append(data);
+    }
+
+
+    /**
+     * Append a byte
+     *
+     * @param b the data
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray append(byte b) {
+        crowUpDataSize(1);
+        buffer.put(length++, b);
+        return this;
+    }
+
+
+    /**
+     * Append an array of bytes
+     *
+     * @param data the data
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray append(byte[] data) {
+        if (data == null) {
+            return this;
+        }
+
+        return append(data, 0, data.length);
+    }
+
+
+    /**
+     * Append an array of bytes
+     *
+     * @param data the data
+     * @param off the offset
+     * @param len the length
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray append(byte[] data, int off, int len) {
+        crowUpDataSize(len);
+        ByteBuffer target = buffer.duplicate();
+        target.position(length);
+        target.put(data, off, len);
+        length += len;
+        return this;
+    }
+
+
+    /**
+     * Append a byte array, a slice or a direct byte array
+     *
+     * @param data the data
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray append(IByteArray data) {
+        if (data == null) {
+            return this;
+        }
+
+        return append(data.toByteBuffer());
+    }
+
+
+    /**
+     * Append the remaining bytes of a buffer, the position of the buffer is moved to its limit.
+     *
+     * @param data the data
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray append(ByteBuffer data) {
+        if (data == null) {
+            return this;
+        }
+
+        int size = data.remaining();
+        crowUpDataSize(size);
+        ByteBuffer target = buffer.duplicate();
+        target.position(length);
+        target.put(data);
+        length += size;
+        return this;
+    }
+
+
+    /**
+     * Read the available bytes from a channel and append them. In case the internal buffer is full it grows before reading.
+     *
+     * @param channel the channel to read from
+     * @return the number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
+     * @throws IOException in case of an I/O error
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        if (buffer.capacity() == length) {
+            crowUpDataSize(ByteArray.DEFAULT_BLOCK_SIZE);
+        }
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(length);
+        int count = channel.read(target);
+        if (count > 0) {
+            length += count;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Write all bytes to a channel. The content of the byte array is not changed.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException in case of an I/O error
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer source = toByteBuffer();
+        long count = 0;
+        while (source.hasRemaining()) {
+            count += channel.write(source);
+        }
+
+        return count;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#get(int)
+     */
+    @Override
+    public byte get(int pos) throws ArrayIndexOutOfBoundsException {
+        if (pos >= 0 && pos < length) {
+            return buffer.get(pos);
+        }
+
+        throw new ArrayIndexOutOfBoundsException("Invalid position at " + pos + " (length:" + length + ")!");
+    }
+
+
+    /**
+     * Set a specific byte
+     *
+     * @param pos the position
+     * @param b the byte to set
+     * @return the previous byte
+     * @throws ArrayIndexOutOfBoundsException in case of error
+     */
+    public byte set(int pos, byte b) throws ArrayIndexOutOfBoundsException {
+        byte previous = get(pos);
+        buffer.put(pos, b);
+        return previous;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#length()
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * Return the capacity of the internal buffer
+     *
+     * @return the number of bytes which can be hold without growing the internal buffer
+     */
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+
+    /**
+     * Gets the growth strategy of the internal buffer
+     *
+     * @return the growth strategy
+     */
+    public IByteArrayGrowthStrategy getGrowthStrategy() {
+        if (growthStrategy == null) {
+            return ByteArrayGrowthStrategy.DOUBLING;
+        }
+
+        return growthStrategy;
+    }
+
+
+    /**
+     * Sets the growth strategy of the internal buffer, see {@link ByteArrayGrowthStrategy}.
+     *
+     * @param growthStrategy the growth strategy, null for the default ({@link ByteArrayGrowthStrategy#DOUBLING})
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray setGrowthStrategy(IByteArrayGrowthStrategy growthStrategy) {
+        this.growthStrategy = growthStrategy;
+        return this;
+    }
+
+
+    /**
+     * Erase the byte array, the internal buffer is kept
+     *
+     * @return the byte array (no copy)
+     */
+    public DirectByteArray erase() {
+        length = 0;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#indexOf(byte)
+     */
+    @Override
+    public int indexOf(byte toFind) {
+        return indexOf(toFind, 0);
+    }
+
+
+    /**
+     * Returns the index within this byte array of the first occurrence of the specified byte, starting at the specified index.
+     *
+     * @param toFind the byte to search for.
+     * @param fromIndex the index to begin searching from.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(byte toFind, int fromIndex) {
+        for (int i = Math.max(fromIndex, 0); i < length; i++) {
+            if (buffer.get(i) == toFind) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Returns the index within this byte array of the first occurrence of the specified bytes.
+     *
+     * @param toFind the bytes to search for.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(IByteArray toFind) {
+        return indexOf(toFind, 0);
+    }
+
+
+    /**
+     * Returns the index within this byte array of the first occurrence of the specified bytes, starting at the specified index.
+     *
+     * @param toFind the bytes to search for.
+     * @param fromIndex the index to begin searching from.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(IByteArray toFind, int fromIndex) {
+        if (toFind == null) {
+            return -1;
+        }
+
+        return indexOf(new BytePattern(toFind.toBytes()), fromIndex);
+    }
+
+
+    /**
+     * Returns the index within this byte array of the first occurrence of the precompiled pattern, starting at the specified index.
+     *
+     * @param pattern the pattern to search for.
+     * @param fromIndex the index to begin searching from.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(BytePattern pattern, int fromIndex) {
+        if (pattern == null) {
+            return -1;
+        }
+
+        return pattern.indexOf(buffer, 0, length, fromIndex);
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#lastIndexOf(byte)
+     */
+    @Override
+    public int lastIndexOf(byte toFind) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == toFind) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Check if the content is equal to the content of the given bytes
+     *
+     * @param other the bytes to compare
+     * @return true if the content is equal
+     */
+    public boolean contentEquals(IByteArray other) {
+        if (other == null || other.length() != length) {
+            return false;
+        }
+
+        return toByteBuffer().equals(other.toByteBuffer());
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#toBytes()
+     */
+    @Override
+    public byte[] toBytes() {
+        byte[] data = new byte[length];
+        toByteBuffer().get(data);
+        return data;
+    }
+
+
+    /**
+     * Return the data as heap byte array
+     *
+     * @return the byte array (copy)
+     */
+    public ByteArray toByteArray() {
+        return ByteArray.createByteArrayWithSize(length).append(toByteBuffer());
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#toByteBuffer()
+     */
+    @Override
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer result = buffer.duplicate();
+        result.position(0);
+        result.limit(length);
+        return result.slice();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.IByteArray#toHex()
+     */
+    @Override
+    public String toHex() {
+        return toByteArray().toHex();
+    }
+
+
+    /**
+     * Convert to String
+     *
+     * @return the byte array as String
+     */
+    @Override
+    public String toString() {
+        return new String(toBytes());
+    }
+
+
+    /**
+     * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        if (!isOpen || src == null || !src.hasRemaining()) {
+            return 0;
+        }
+
+        int size = src.remaining();
+        append(src);
+        return size;
+    }
+
+
+    /**
+     * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+     */
+    @Override
+    public int read(ByteBuffer dst) {
+        if (!isOpen || dst == null || length() == 0) {
+            return 0;
+        }
+
+        ByteBuffer source = toByteBuffer();
+        int size = Math.min(dst.remaining(), length);
+        source.limit(size);
+        dst.put(source);
+        return size;
+    }
+
+
+    /**
+     * @see java.nio.channels.Channel#close()
+     */
+    @Override
+    public void close() {
+        isOpen = false;
+    }
+
+
+    /**
+     * @see java.nio.channels.Channel#isOpen()
+     */
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        return hash;
+    }
+
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || other.getClass() != this.getClass()) {
+            return false;
+        }
+
+        return contentEquals((DirectByteArray) other);
+    }
+
+
+    /**
+     * Grows the internal buffer if there is not enough space
+     *
+     * @param requestedSpace the requested space
+     */
+    protected void crowUpDataSize(int requestedSpace) {
+        if ((buffer.capacity() - length) < requestedSpace) {
+            ByteBuffer newBuffer = ByteBuffer.allocateDirect(getGrowthStrategy().getNewCapacity(buffer.capacity(), length + requestedSpace));
+            newBuffer.put(toByteBuffer());
+            buffer = newBuffer;
+        }
+    }
+}
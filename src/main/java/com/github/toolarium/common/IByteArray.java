@@ -0,0 +1,77 @@
+/*
+ * IByteArray.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Defines the common read access of byte arrays, independent if the bytes are kept on the heap ({@link ByteArray},
+ * {@link ByteArraySlice}) or in direct memory ({@link DirectByteArray}).
+ *
+ * @author patrick
+ */
+public interface IByteArray {
+
+    /**
+     * Return the number of bytes
+     *
+     * @return the number of bytes
+     */
+    int length();
+
+
+    /**
+     * Return a specific byte
+     *
+     * @param pos the position
+     * @return a byte
+     * @throws ArrayIndexOutOfBoundsException in case of error
+     */
+    byte get(int pos) throws ArrayIndexOutOfBoundsException;
+
+
+    /**
+     * Returns the index within this byte array of the first occurrence of the specified byte.
+     *
+     * @param toFind the byte to search for.
+     * @return the index of the first occurrence or -1
+     */
+    int indexOf(byte toFind);
+
+
+    /**
+     * Returns the index within this byte array of the last occurrence of the specified byte.
+     *
+     * @param toFind the byte to search for.
+     * @return the index of the last occurrence or -1
+     */
+    int lastIndexOf(byte toFind);
+
+
+    /**
+     * Return the bytes as a copy
+     *
+     * @return the bytes (copy)
+     */
+    byte[] toBytes();
+
+
+    /**
+     * Return a byte buffer of the data. The buffer shares the bytes, the position is 0 and the limit the length.
+     *
+     * @return the buffer (no copy)
+     */
+    ByteBuffer toByteBuffer();
+
+
+    /**
+     * Convert to hex string
+     *
+     * @return the bytes as hex string
+     */
+    String toHex();
+}
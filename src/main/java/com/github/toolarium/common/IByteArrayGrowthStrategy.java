@@ -0,0 +1,26 @@
+/*
+ * IByteArrayGrowthStrategy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import java.io.Serializable;
+
+
+/**
+ * Defines how the internal buffer of a {@link ByteArray} grows.
+ *
+ * @author patrick
+ */
+public interface IByteArrayGrowthStrategy extends Serializable {
+
+    /**
+     * Gets the new capacity of the internal buffer
+     *
+     * @param currentCapacity the current capacity
+     * @param requiredCapacity the minimal capacity which is required
+     * @return the new capacity, which is at least the required capacity
+     */
+    int getNewCapacity(int currentCapacity, int requiredCapacity);
+}
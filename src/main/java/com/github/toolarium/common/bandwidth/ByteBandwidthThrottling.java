@@ -0,0 +1,259 @@
+/*
+ * ByteBandwidthThrottling.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.bandwidth;
+
+import com.github.toolarium.common.statistic.StatisticCounter;
+import com.github.toolarium.common.util.TextUtil;
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Defines the byte based bandwidth throttling. Every check reserves the time slot which the given number of bytes
+ * need at the configured bandwidth and pauses the calling thread until the slot ends. This paces the transfer
+ * smoothly with short pauses per chunk instead of long sleeps. An idle time gives a credit of at most the burst time,
+ * which allows small bursts but not to catch up a long idle time. The throttling can be shared between threads,
+ * they share the bandwidth.
+ *
+ * @author patrick
+ */
+public class ByteBandwidthThrottling implements IByteBandwidthThrottling, Serializable {
+    /** NO_BANDWIDTH */
+    public static final int NO_BANDWIDTH = -1;
+
+    /** The default burst time in milliseconds */
+    public static final long DEFAULT_BURST_TIME = 10;
+
+    private static final long serialVersionUID = 2180164745321790873L;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private long bandwidth;
+    private long burstTimeNanos;
+    private long count;
+    private Long startTime;
+    private long startNanos;
+    private long nextFreeNanos;
+    private StatisticCounter bandwidthStatisticCounter;
+    private StatisticCounter sleepStatisticCounter;
+
+
+    /**
+     * Constructor for ByteBandwidthThrottling
+     */
+    public ByteBandwidthThrottling() {
+        this(NO_BANDWIDTH);
+    }
+
+
+    /**
+     * Constructor for ByteBandwidthThrottling
+     *
+     * @param bandwidth bandwidth in bytes per second
+     */
+    public ByteBandwidthThrottling(long bandwidth) {
+        this(bandwidth, DEFAULT_BURST_TIME);
+    }
+
+
+    /**
+     * Constructor for ByteBandwidthThrottling
+     *
+     * @param bandwidth bandwidth in bytes per second
+     * @param burstTime the maximal credit of an idle time in milliseconds (default 10)
+     */
+    public ByteBandwidthThrottling(long bandwidth, long burstTime) {
+        this.bandwidth = bandwidth;
+        this.burstTimeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BURST_TIME);
+        if (burstTime >= 0) {
+            this.burstTimeNanos = TimeUnit.MILLISECONDS.toNanos(burstTime);
+        }
+
+        reset();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#reset()
+     */
+    @Override
+    public synchronized void reset() {
+        this.count = 0;
+        this.startTime = null;
+        this.startNanos = 0;
+        this.nextFreeNanos = 0;
+        this.bandwidthStatisticCounter = new StatisticCounter();
+        this.sleepStatisticCounter = new StatisticCounter();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#bandwidthCheck(long)
+     */
+    @Override
+    public boolean bandwidthCheck(long bytes) {
+        long wakeUpNanos = reserve(bytes);
+
+        long sleepStart = System.nanoTime();
+        long waitTime = wakeUpNanos - sleepStart;
+        boolean interrupted = false;
+        while (waitTime > 0 && !interrupted) {
+            LockSupport.parkNanos(waitTime);
+            interrupted = Thread.currentThread().isInterrupted();
+            waitTime = wakeUpNanos - System.nanoTime();
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            sleepStatisticCounter.add((now - sleepStart) / 1_000_000.0d);
+            bandwidthStatisticCounter.add(calculateCurrentBandwidth(now));
+        }
+
+        return interrupted;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getBandwidth()
+     */
+    @Override
+    public synchronized long getBandwidth() {
+        return bandwidth;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#setBandwidth(long)
+     */
+    @Override
+    public synchronized void setBandwidth(long bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getCounter()
+     */
+    @Override
+    public synchronized long getCounter() {
+        return count;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getStartTime()
+     */
+    @Override
+    public synchronized Long getStartTime() {
+        return startTime;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getCurrentBandwidth()
+     */
+    @Override
+    public synchronized long getCurrentBandwidth() {
+        return calculateCurrentBandwidth(System.nanoTime());
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getBandwidthStatisticCounter()
+     */
+    @Override
+    public synchronized StatisticCounter getBandwidthStatisticCounter() {
+        return bandwidthStatisticCounter;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.bandwidth.IByteBandwidthThrottling#getSleepStatisticCounter()
+     */
+    @Override
+    public synchronized StatisticCounter getSleepStatisticCounter() {
+        return sleepStatisticCounter;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        SimpleDateFormat formatter = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss.SSS");
+        StringBuilder builder = new StringBuilder();
+        builder.append("Byte bandwidth throttling:").append(TextUtil.NL);
+
+        String startTimeStr = "n/a";
+        synchronized (this) {
+            if (startTime != null) {
+                startTimeStr = formatter.format(startTime);
+            }
+
+            builder.append("bandwidth  : " + bandwidth).append(TextUtil.NL);
+            builder.append("bytes      : " + count).append(TextUtil.NL);
+            builder.append("start time : " + startTimeStr).append(TextUtil.NL);
+            builder.append("current    : " + calculateCurrentBandwidth(System.nanoTime())).append(TextUtil.NL);
+            builder.append(bandwidthStatisticCounter.toString("bandwidth statistic:")).append(TextUtil.NL);
+            builder.append(sleepStatisticCounter.toString("sleep time statistic:")).append(".");
+        }
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Reserves the time slot for the given number of bytes
+     *
+     * @param bytes the number of bytes
+     * @return the end of the time slot (nano time)
+     */
+    protected synchronized long reserve(long bytes) {
+        long now = System.nanoTime();
+        if (startTime == null) {
+            startTime = System.currentTimeMillis();
+            startNanos = now;
+            nextFreeNanos = now;
+        }
+
+        if (bytes > 0) {
+            count += bytes;
+        }
+
+        if (bandwidth <= 0 || bytes <= 0) {
+            return now;
+        }
+
+        // an idle time gives at most the burst time as credit
+        if (nextFreeNanos < now - burstTimeNanos) {
+            nextFreeNanos = now - burstTimeNanos;
+        }
+
+        nextFreeNanos += (long) (bytes * (double) NANOS_PER_SECOND / bandwidth);
+        return nextFreeNanos;
+    }
+
+
+    /**
+     * Calculate the achieved bandwidth
+     *
+     * @param now the current nano time
+     * @return the achieved bandwidth in bytes per second
+     */
+    protected long calculateCurrentBandwidth(long now) {
+        if (startTime == null) {
+            return 0;
+        }
+
+        long usedTime = now - startNanos;
+        if (usedTime > 0) {
+            return (long) (count * (double) NANOS_PER_SECOND / usedTime);
+        }
+
+        return 0;
+    }
+}
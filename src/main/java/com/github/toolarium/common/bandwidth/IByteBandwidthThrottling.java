@@ -0,0 +1,89 @@
+/*
+ * IByteBandwidthThrottling.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.bandwidth;
+
+import com.github.toolarium.common.statistic.StatisticCounter;
+
+
+/**
+ * Defines the byte based bandwidth throttling interface. In contrast to the {@link IBandwidthThrottling} which counts 
+ * calls, the bandwidth is defined in bytes per second and every check passes the number of bytes to transfer.
+ *
+ * @author patrick
+ */
+public interface IByteBandwidthThrottling {
+
+    /**
+     * Reset the internal states
+     */
+    void reset();
+
+
+    /**
+     * The bandwidth check before the given number of bytes are transferred. The calling thread is paused as long 
+     * as necessary to keep the bandwidth.
+     *
+     * @param bytes the number of bytes to transfer
+     * @return true if the thread was interrupted during the pause
+     */
+    boolean bandwidthCheck(long bytes);
+
+
+    /**
+     * Gets the bandwidth
+     *
+     * @return Returns the bandwidth in bytes per second.
+     */
+    long getBandwidth();
+
+
+    /**
+     * Sets the bandwidth
+     *
+     * @param bandwidth The bandwidth to set in bytes per second, a value less or equal 0 disables the throttling.
+     */
+    void setBandwidth(long bandwidth);
+
+
+    /**
+     * Gets the number of bytes which are checked
+     *
+     * @return Returns the number of bytes.
+     */
+    long getCounter();
+
+
+    /**
+     * Gets the start time
+     *
+     * @return Returns the start time.
+     */
+    Long getStartTime();
+
+
+    /**
+     * Gets the achieved bandwidth since the start
+     *
+     * @return Returns the achieved bandwidth in bytes per second
+     */
+    long getCurrentBandwidth();
+
+
+    /**
+     * Gets the bandwidth statistic counter, it contains the achieved bandwidth of every check in bytes per second.
+     *
+     * @return Returns the bandwidth statistic counter.
+     */
+    StatisticCounter getBandwidthStatisticCounter();
+
+
+    /**
+     * Gets the sleep statistic counter, it contains the pause of every check in milliseconds.
+     *
+     * @return Returns the sleep statistic counter
+     */
+    StatisticCounter getSleepStatisticCounter();
+}
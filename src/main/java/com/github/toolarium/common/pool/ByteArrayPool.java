@@ -0,0 +1,307 @@
+/*
+ * ByteArrayPool.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import com.github.toolarium.common.ByteArray;
+import com.github.toolarium.common.util.TextUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Implements a {@link IByteArrayPool} with size class buckets. The size classes are powers of two between the
+ * minimal and the maximal block size. Every thread keeps one byte array per size class as fast path, only if
+ * this slot is empty the shared bucket is used. Requests larger than the maximal block size are served by a
+ * new byte array which will not be pooled.
+ *
+ * <p>Instances can be created via {@link #getInstance()} for a shared singleton or via the constructor for a
+ * dedicated pool per consumer.</p>
+ *
+ * @author patrick
+ */
+public final class ByteArrayPool implements IByteArrayPool {
+    /** The default minimal block size */
+    public static final int DEFAULT_MIN_BLOCK_SIZE = 128;
+
+    /** The default maximal block size */
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 1024 * 1024;
+
+    /** The default maximal number of byte arrays in a shared bucket */
+    public static final int DEFAULT_MAX_BUCKET_SIZE = 64;
+
+    private final int[] blockSizes;
+    private final List<BlockingQueue<ByteArray>> sharedBuckets;
+    private final ThreadLocal<ByteArray[]> localBuckets;
+    private final LongAdder hitCounter;
+    private final LongAdder missCounter;
+    private final LongAdder allocationCounter;
+    private final LongAdder releaseCounter;
+    private final LongAdder discardCounter;
+
+
+    /**
+     * Private class, the only instance of the singleton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final ByteArrayPool INSTANCE = new ByteArrayPool();
+    }
+
+
+    /**
+     * Constructor for ByteArrayPool with the default settings.
+     */
+    public ByteArrayPool() {
+        this(DEFAULT_MIN_BLOCK_SIZE, DEFAULT_MAX_BLOCK_SIZE, DEFAULT_MAX_BUCKET_SIZE);
+    }
+
+
+    /**
+     * Constructor for ByteArrayPool. The block sizes are rounded up to the next power of two.
+     *
+     * @param minBlockSize the minimal block size
+     * @param maxBlockSize the maximal block size
+     * @param maxBucketSize the maximal number of byte arrays in a shared bucket
+     * @throws IllegalArgumentException in case of invalid sizes
+     */
+    public ByteArrayPool(int minBlockSize, int maxBlockSize, int maxBucketSize) {
+        if (minBlockSize <= 0 || maxBlockSize < minBlockSize || maxBlockSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid block size range [" + minBlockSize + ", " + maxBlockSize + "]!");
+        }
+
+        if (maxBucketSize <= 0) {
+            throw new IllegalArgumentException("Invalid bucket size " + maxBucketSize + "!");
+        }
+
+        int min = roundUpToPowerOfTwo(minBlockSize);
+        int max = roundUpToPowerOfTwo(maxBlockSize);
+        int numberOfBuckets = Integer.numberOfTrailingZeros(max) - Integer.numberOfTrailingZeros(min) + 1;
+
+        blockSizes = new int[numberOfBuckets];
+        sharedBuckets = new ArrayList<BlockingQueue<ByteArray>>(numberOfBuckets);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            blockSizes[i] = min << i;
+            sharedBuckets.add(new ArrayBlockingQueue<ByteArray>(maxBucketSize));
+        }
+
+        localBuckets = ThreadLocal.withInitial(() -> new ByteArray[numberOfBuckets]);
+        hitCounter = new LongAdder();
+        missCounter = new LongAdder();
+        allocationCounter = new LongAdder();
+        releaseCounter = new LongAdder();
+        discardCounter = new LongAdder();
+    }
+
+
+    /**
+     * Get the shared singleton instance.
+     *
+     * @return the shared instance
+     */
+    public static ByteArrayPool getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#acquire(int)
+     */
+    @Override
+    public PooledByteArray acquire(int minCapacity) {
+        int index = acquireBucketIndex(minCapacity);
+        if (index < 0) {
+            // too large to be pooled
+            missCounter.increment();
+            allocationCounter.increment();
+            return new PooledByteArray(this, ByteArray.createByteArrayWithSize(minCapacity));
+        }
+
+        ByteArray[] localBucket = localBuckets.get();
+        ByteArray byteArray = localBucket[index];
+        if (byteArray != null) {
+            localBucket[index] = null;
+        } else {
+            byteArray = sharedBuckets.get(index).poll();
+        }
+
+        if (byteArray != null) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+            allocationCounter.increment();
+            byteArray = ByteArray.createByteArrayWithSize(blockSizes[index]);
+        }
+
+        return new PooledByteArray(this, byteArray);
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#release(com.github.toolarium.common.ByteArray)
+     */
+    @Override
+    public boolean release(ByteArray byteArray) {
+        if (byteArray == null) {
+            return false;
+        }
+
+        int index = releaseBucketIndex(byteArray.capacity());
+        if (index < 0 || !byteArray.isOpen()) {
+            discardCounter.increment();
+            return false;
+        }
+
+        byteArray.erase();
+
+        ByteArray[] localBucket = localBuckets.get();
+        if (localBucket[index] == null) {
+            localBucket[index] = byteArray;
+            releaseCounter.increment();
+            return true;
+        }
+
+        if (sharedBuckets.get(index).offer(byteArray)) {
+            releaseCounter.increment();
+            return true;
+        }
+
+        discardCounter.increment();
+        return false;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#clear()
+     */
+    @Override
+    public void clear() {
+        for (BlockingQueue<ByteArray> bucket : sharedBuckets) {
+            bucket.clear();
+        }
+
+        localBuckets.remove();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#getHitCount()
+     */
+    @Override
+    public long getHitCount() {
+        return hitCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#getMissCount()
+     */
+    @Override
+    public long getMissCount() {
+        return missCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#getAllocationCount()
+     */
+    @Override
+    public long getAllocationCount() {
+        return allocationCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#getReleaseCount()
+     */
+    @Override
+    public long getReleaseCount() {
+        return releaseCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteArrayPool#getDiscardCount()
+     */
+    @Override
+    public long getDiscardCount() {
+        return discardCounter.sum();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Byte array pool:").append(TextUtil.NL);
+        builder.append("block sizes: " + blockSizes[0] + " - " + blockSizes[blockSizes.length - 1]).append(TextUtil.NL);
+        builder.append("hits       : " + getHitCount()).append(TextUtil.NL);
+        builder.append("misses     : " + getMissCount()).append(TextUtil.NL);
+        builder.append("allocations: " + getAllocationCount()).append(TextUtil.NL);
+        builder.append("releases   : " + getReleaseCount()).append(TextUtil.NL);
+        builder.append("discards   : " + getDiscardCount()).append(".");
+        return builder.toString();
+    }
+
+
+    /**
+     * Gets the index of the smallest size class which can hold the given capacity
+     *
+     * @param capacity the capacity
+     * @return the bucket index or -1 if the capacity is too large
+     */
+    private int acquireBucketIndex(int capacity) {
+        for (int i = 0; i < blockSizes.length; i++) {
+            if (capacity <= blockSizes[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Gets the index of the largest size class which is covered by the given capacity
+     *
+     * @param capacity the capacity
+     * @return the bucket index or -1 if the capacity is out of the size class range
+     */
+    private int releaseBucketIndex(int capacity) {
+        if (capacity < blockSizes[0] || capacity > blockSizes[blockSizes.length - 1]) {
+            return -1;
+        }
+
+        for (int i = blockSizes.length - 1; i >= 0; i--) {
+            if (capacity >= blockSizes[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Round up to the next power of two
+     *
+     * @param value the value
+     * @return the rounded value
+     */
+    private static int roundUpToPowerOfTwo(int value) {
+        int highestOneBit = Integer.highestOneBit(value);
+        if (highestOneBit == value) {
+            return value;
+        }
+
+        return highestOneBit << 1;
+    }
+}
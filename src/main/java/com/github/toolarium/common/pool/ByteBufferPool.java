@@ -0,0 +1,323 @@
+/*
+ * ByteBufferPool.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import com.github.toolarium.common.util.TextUtil;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Implements a per-thread {@link IByteBufferPool} with size class buckets. The size classes are powers of two between
+ * the minimal and the maximal block size. Every thread keeps two heap and two direct buffers per size class, e.g. for
+ * double buffering, the buffers are not shared between threads. This avoids the expensive allocation of direct buffers for every I/O operation without
+ * any synchronization. Requests larger than the maximal block size are served by a new buffer which will not be pooled.
+ *
+ * <p>Instances can be created via {@link #getInstance()} for a shared singleton or via the constructor for a
+ * dedicated pool per consumer.</p>
+ *
+ * @author patrick
+ */
+public final class ByteBufferPool implements IByteBufferPool {
+    /** The default minimal block size */
+    public static final int DEFAULT_MIN_BLOCK_SIZE = 4 * 1024;
+
+    /** The default maximal block size */
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    /** The number of buffers per size class and buffer type of a thread */
+    private static final int BUFFERS_PER_SIZE_CLASS = 2;
+
+    private static final int HEAP = 0;
+    private static final int DIRECT = 1;
+    private final int[] blockSizes;
+    private final ThreadLocal<ByteBuffer[][]> localBuckets;
+    private final LongAdder hitCounter;
+    private final LongAdder missCounter;
+    private final LongAdder allocationCounter;
+    private final LongAdder releaseCounter;
+    private final LongAdder discardCounter;
+
+
+    /**
+     * Private class, the only instance of the singleton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final ByteBufferPool INSTANCE = new ByteBufferPool();
+    }
+
+
+    /**
+     * Constructor for ByteBufferPool with the default settings.
+     */
+    public ByteBufferPool() {
+        this(DEFAULT_MIN_BLOCK_SIZE, DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+
+    /**
+     * Constructor for ByteBufferPool. The block sizes are rounded up to the next power of two.
+     *
+     * @param minBlockSize the minimal block size
+     * @param maxBlockSize the maximal block size
+     * @throws IllegalArgumentException in case of invalid sizes
+     */
+    public ByteBufferPool(int minBlockSize, int maxBlockSize) {
+        if (minBlockSize <= 0 || maxBlockSize < minBlockSize || maxBlockSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid block size range [" + minBlockSize + ", " + maxBlockSize + "]!");
+        }
+
+        int min = roundUpToPowerOfTwo(minBlockSize);
+        int max = roundUpToPowerOfTwo(maxBlockSize);
+        int numberOfBuckets = Integer.numberOfTrailingZeros(max) - Integer.numberOfTrailingZeros(min) + 1;
+
+        blockSizes = new int[numberOfBuckets];
+        for (int i = 0; i < numberOfBuckets; i++) {
+            blockSizes[i] = min << i;
+        }
+
+        localBuckets = ThreadLocal.withInitial(() -> new ByteBuffer[2][numberOfBuckets * BUFFERS_PER_SIZE_CLASS]);
+        hitCounter = new LongAdder();
+        missCounter = new LongAdder();
+        allocationCounter = new LongAdder();
+        releaseCounter = new LongAdder();
+        discardCounter = new LongAdder();
+    }
+
+
+    /**
+     * Get the shared singleton instance.
+     *
+     * @return the shared instance
+     */
+    public static ByteBufferPool getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#acquire(int, boolean)
+     */
+    @Override
+    public PooledByteBuffer acquire(int minCapacity, boolean direct) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + minCapacity + "!");
+        }
+
+        ByteBuffer byteBuffer = null;
+        int index = acquireBucketIndex(minCapacity);
+        if (index < 0) {
+            // too large to be pooled
+            byteBuffer = allocate(minCapacity, direct);
+        } else {
+            ByteBuffer[] localBucket = localBuckets.get()[type(direct)];
+            for (int slot = index * BUFFERS_PER_SIZE_CLASS; slot < (index + 1) * BUFFERS_PER_SIZE_CLASS && byteBuffer == null; slot++) {
+                byteBuffer = localBucket[slot];
+                localBucket[slot] = null;
+            }
+
+            if (byteBuffer != null) {
+                hitCounter.increment();
+            } else {
+                byteBuffer = allocate(blockSizes[index], direct);
+            }
+        }
+
+        byteBuffer.clear();
+        byteBuffer.limit(minCapacity);
+        return new PooledByteBuffer(this, byteBuffer);
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#release(java.nio.ByteBuffer)
+     */
+    @Override
+    public boolean release(ByteBuffer byteBuffer) {
+        if (byteBuffer == null) {
+            return false;
+        }
+
+        int index = releaseBucketIndex(byteBuffer.capacity());
+        if (index < 0 || byteBuffer.isReadOnly()) {
+            discardCounter.increment();
+            return false;
+        }
+
+        ByteBuffer[] localBucket = localBuckets.get()[type(byteBuffer.isDirect())];
+        for (int slot = index * BUFFERS_PER_SIZE_CLASS; slot < (index + 1) * BUFFERS_PER_SIZE_CLASS; slot++) {
+            if (localBucket[slot] == null) {
+                byteBuffer.clear();
+                localBucket[slot] = byteBuffer;
+                releaseCounter.increment();
+                return true;
+            }
+        }
+
+        discardCounter.increment();
+        return false;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#clear()
+     */
+    @Override
+    public void clear() {
+        localBuckets.remove();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#getHitCount()
+     */
+    @Override
+    public long getHitCount() {
+        return hitCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#getMissCount()
+     */
+    @Override
+    public long getMissCount() {
+        return missCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#getAllocationCount()
+     */
+    @Override
+    public long getAllocationCount() {
+        return allocationCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#getReleaseCount()
+     */
+    @Override
+    public long getReleaseCount() {
+        return releaseCounter.sum();
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.pool.IByteBufferPool#getDiscardCount()
+     */
+    @Override
+    public long getDiscardCount() {
+        return discardCounter.sum();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Byte buffer pool:").append(TextUtil.NL);
+        builder.append("block sizes: " + blockSizes[0] + " - " + blockSizes[blockSizes.length - 1]).append(TextUtil.NL);
+        builder.append("hits       : " + getHitCount()).append(TextUtil.NL);
+        builder.append("misses     : " + getMissCount()).append(TextUtil.NL);
+        builder.append("allocations: " + getAllocationCount()).append(TextUtil.NL);
+        builder.append("releases   : " + getReleaseCount()).append(TextUtil.NL);
+        builder.append("discards   : " + getDiscardCount()).append(".");
+        return builder.toString();
+    }
+
+
+    /**
+     * Allocate a new byte buffer
+     *
+     * @param capacity the capacity
+     * @param direct true to allocate a direct buffer
+     * @return the new byte buffer
+     */
+    private ByteBuffer allocate(int capacity, boolean direct) {
+        missCounter.increment();
+        allocationCounter.increment();
+        if (direct) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        return ByteBuffer.allocate(capacity);
+    }
+
+
+    /**
+     * Gets the index of the buffer type
+     *
+     * @param direct true for direct buffers
+     * @return the type index
+     */
+    private int type(boolean direct) {
+        if (direct) {
+            return DIRECT;
+        }
+
+        return HEAP;
+    }
+
+
+    /**
+     * Gets the index of the smallest size class which can hold the given capacity
+     *
+     * @param capacity the capacity
+     * @return the bucket index or -1 if the capacity is too large
+     */
+    private int acquireBucketIndex(int capacity) {
+        for (int i = 0; i < blockSizes.length; i++) {
+            if (capacity <= blockSizes[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Gets the index of the largest size class which is covered by the given capacity
+     *
+     * @param capacity the capacity
+     * @return the bucket index or -1 if the capacity is out of the size class range
+     */
+    private int releaseBucketIndex(int capacity) {
+        if (capacity < blockSizes[0] || capacity > blockSizes[blockSizes.length - 1]) {
+            return -1;
+        }
+
+        for (int i = blockSizes.length - 1; i >= 0; i--) {
+            if (capacity >= blockSizes[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Round up to the next power of two
+     *
+     * @param value the value
+     * @return the rounded value
+     */
+    private static int roundUpToPowerOfTwo(int value) {
+        int highestOneBit = Integer.highestOneBit(value);
+        if (highestOneBit == value) {
+            return value;
+        }
+
+        return highestOneBit << 1;
+    }
+}
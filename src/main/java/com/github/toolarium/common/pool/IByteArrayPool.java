@@ -0,0 +1,82 @@
+/*
+ * IByteArrayPool.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import com.github.toolarium.common.ByteArray;
+
+
+/**
+ * Defines a pool of recyclable {@link ByteArray} instances.
+ *
+ * @author patrick
+ */
+public interface IByteArrayPool {
+
+    /**
+     * Acquire an empty byte array with at least the given capacity. The returned instance has to be
+     * given back by {@link PooledByteArray#release()}, e.g. by using a try-with-resources block.
+     *
+     * @param minCapacity the minimal capacity
+     * @return the pooled byte array
+     */
+    PooledByteArray acquire(int minCapacity);
+
+
+    /**
+     * Give a byte array back to the pool. The content of the array is erased. Arrays which are closed or
+     * which are larger than the biggest size class are discarded.
+     *
+     * @param byteArray the byte array
+     * @return true if the byte array was taken back into the pool; otherwise false
+     */
+    boolean release(ByteArray byteArray);
+
+
+    /**
+     * Removes all shared pooled byte arrays.
+     */
+    void clear();
+
+
+    /**
+     * Gets the number of acquires which could be served by a pooled byte array
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+
+    /**
+     * Gets the number of acquires which could not be served by a pooled byte array
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+
+    /**
+     * Gets the number of byte arrays which are allocated by the pool
+     *
+     * @return the allocation count
+     */
+    long getAllocationCount();
+
+
+    /**
+     * Gets the number of byte arrays which are taken back into the pool
+     *
+     * @return the release count
+     */
+    long getReleaseCount();
+
+
+    /**
+     * Gets the number of released byte arrays which are discarded
+     *
+     * @return the discard count
+     */
+    long getDiscardCount();
+}
@@ -0,0 +1,84 @@
+/*
+ * IByteBufferPool.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Defines a pool of recyclable heap and direct {@link ByteBuffer} instances.
+ *
+ * @author patrick
+ */
+public interface IByteBufferPool {
+
+    /**
+     * Acquire a cleared byte buffer with at least the given capacity. The limit of the buffer is set to the given
+     * capacity. The returned instance has to be given back by {@link PooledByteBuffer#release()}, e.g. by using a 
+     * try-with-resources block.
+     *
+     * @param minCapacity the minimal capacity
+     * @param direct true to acquire a direct buffer; otherwise a heap buffer
+     * @return the pooled byte buffer
+     * @throws IllegalArgumentException in case of an invalid capacity
+     */
+    PooledByteBuffer acquire(int minCapacity, boolean direct);
+
+
+    /**
+     * Give a byte buffer back to the pool. Buffers which are larger than the biggest size class are discarded.
+     *
+     * @param byteBuffer the byte buffer
+     * @return true if the byte buffer was taken back into the pool; otherwise false
+     */
+    boolean release(ByteBuffer byteBuffer);
+
+
+    /**
+     * Removes all pooled byte buffers of the current thread.
+     */
+    void clear();
+
+
+    /**
+     * Gets the number of acquires which could be served by a pooled byte buffer
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+
+    /**
+     * Gets the number of acquires which could not be served by a pooled byte buffer
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+
+    /**
+     * Gets the number of byte buffers which are allocated by the pool
+     *
+     * @return the allocation count
+     */
+    long getAllocationCount();
+
+
+    /**
+     * Gets the number of byte buffers which are taken back into the pool
+     *
+     * @return the release count
+     */
+    long getReleaseCount();
+
+
+    /**
+     * Gets the number of released byte buffers which are discarded
+     *
+     * @return the discard count
+     */
+    long getDiscardCount();
+}
@@ -0,0 +1,80 @@
+/*
+ * PooledByteArray.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import com.github.toolarium.common.ByteArray;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Defines a lease of a {@link ByteArray} from an {@link IByteArrayPool}. The byte array is given back to the
+ * pool by calling {@link #release()} or by closing the lease, which allows to use it in a try-with-resources block.
+ * After the release the byte array must not be used anymore.
+ *
+ * @author patrick
+ */
+public final class PooledByteArray implements AutoCloseable {
+    private final IByteArrayPool pool;
+    private final ByteArray byteArray;
+    private final AtomicBoolean released;
+
+
+    /**
+     * Constructor for PooledByteArray
+     *
+     * @param pool the pool
+     * @param byteArray the byte array
+     */
+    PooledByteArray(IByteArrayPool pool, ByteArray byteArray) {
+        this.pool = pool;
+        this.byteArray = byteArray;
+        this.released = new AtomicBoolean(false);
+    }
+
+
+    /**
+     * Gets the byte array
+     *
+     * @return the byte array
+     * @throws IllegalStateException in case the byte array is already released
+     */
+    public ByteArray getByteArray() {
+        if (released.get()) {
+            throw new IllegalStateException("The byte array is already released!");
+        }
+
+        return byteArray;
+    }
+
+
+    /**
+     * Check if the byte array is already given back to the pool
+     *
+     * @return true if it is released
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+
+    /**
+     * Give the byte array back to the pool. Calling this method more than once has no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(byteArray);
+        }
+    }
+
+
+    /**
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
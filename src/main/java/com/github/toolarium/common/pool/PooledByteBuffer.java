@@ -0,0 +1,80 @@
+/*
+ * PooledByteBuffer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Defines a lease of a {@link ByteBuffer} from an {@link IByteBufferPool}. The byte buffer is given back to the
+ * pool by calling {@link #release()} or by closing the lease, which allows to use it in a try-with-resources block.
+ * After the release the byte buffer must not be used anymore.
+ *
+ * @author patrick
+ */
+public final class PooledByteBuffer implements AutoCloseable {
+    private final IByteBufferPool pool;
+    private final ByteBuffer byteBuffer;
+    private final AtomicBoolean released;
+
+
+    /**
+     * Constructor for PooledByteBuffer
+     *
+     * @param pool the pool
+     * @param byteBuffer the byte buffer
+     */
+    PooledByteBuffer(IByteBufferPool pool, ByteBuffer byteBuffer) {
+        this.pool = pool;
+        this.byteBuffer = byteBuffer;
+        this.released = new AtomicBoolean(false);
+    }
+
+
+    /**
+     * Gets the byte buffer
+     *
+     * @return the byte buffer
+     * @throws IllegalStateException in case the byte buffer is already released
+     */
+    public ByteBuffer getByteBuffer() {
+        if (released.get()) {
+            throw new IllegalStateException("The byte buffer is already released!");
+        }
+
+        return byteBuffer;
+    }
+
+
+    /**
+     * Check if the byte buffer is already given back to the pool
+     *
+     * @return true if it is released
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+
+    /**
+     * Give the byte buffer back to the pool. Calling this method more than once has no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(byteBuffer);
+        }
+    }
+
+
+    /**
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
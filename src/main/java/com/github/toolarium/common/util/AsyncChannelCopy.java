@@ -0,0 +1,223 @@
+/*
+ * AsyncChannelCopy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Implements an asynchronous copy between two {@link AsynchronousFileChannel}s with double buffering: while one buffer
+ * is written the next chunk is read into the other buffer. No thread is blocked during the copy, the completion handlers
+ * run on the thread pool of the channels. Cancelling the future stops the copy after the pending operations.
+ *
+ * @author patrick
+ */
+final class AsyncChannelCopy {
+    private final AsynchronousFileChannel src;
+    private final AsynchronousFileChannel dest;
+    private final long destStart;
+    private final LongConsumer progressListener;
+    private final CompletableFuture<Long> future;
+    private final Deque<ByteBuffer> freeBuffers;
+    private final Deque<ByteBuffer> filledBuffers;
+    private final ReadHandler readHandler;
+    private final WriteHandler writeHandler;
+    private long readPosition;
+    private long writePosition;
+    private boolean reading;
+    private boolean writing;
+    private boolean eof;
+
+
+    /**
+     * Constructor for AsyncChannelCopy
+     *
+     * @param src the source channel
+     * @param srcPosition the position in the source channel
+     * @param dest the destination channel
+     * @param destPosition the position in the destination channel
+     * @param bufferSize the size of each of the two buffers
+     * @param progressListener the progress listener which gets the number of written bytes or null
+     */
+    AsyncChannelCopy(AsynchronousFileChannel src, long srcPosition, AsynchronousFileChannel dest, long destPosition, int bufferSize, LongConsumer progressListener) {
+        this.src = src;
+        this.dest = dest;
+        this.destStart = destPosition;
+        this.progressListener = progressListener;
+        this.future = new CompletableFuture<Long>();
+        this.freeBuffers = new ArrayDeque<ByteBuffer>(2);
+        this.filledBuffers = new ArrayDeque<ByteBuffer>(2);
+        this.freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        this.freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        this.readHandler = new ReadHandler();
+        this.writeHandler = new WriteHandler();
+        this.readPosition = srcPosition;
+        this.writePosition = destPosition;
+        this.reading = false;
+        this.writing = false;
+        this.eof = false;
+    }
+
+
+    /**
+     * Start the copy
+     *
+     * @return the future which completes with the number of copied bytes
+     */
+    CompletableFuture<Long> start() {
+        proceed();
+        return future;
+    }
+
+
+    /**
+     * Starts the next read and write operations if possible and completes the future at the end
+     */
+    private void proceed() {
+        boolean finished = false;
+        long size = 0;
+        try {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+
+                if (!reading && !eof && !freeBuffers.isEmpty()) {
+                    ByteBuffer buffer = freeBuffers.poll();
+                    buffer.clear();
+                    reading = true;
+                    src.read(buffer, readPosition, buffer, readHandler);
+                }
+
+                if (!writing && !filledBuffers.isEmpty()) {
+                    ByteBuffer buffer = filledBuffers.peek();
+                    writing = true;
+                    dest.write(buffer, writePosition, buffer, writeHandler);
+                }
+
+                if (eof && !reading && !writing && filledBuffers.isEmpty()) {
+                    finished = true;
+                    size = writePosition - destStart;
+                }
+            }
+        } catch (RuntimeException e) {
+            // e.g. the channel is not readable or writable
+            abort(e);
+            return;
+        }
+
+        // complete outside of the lock, dependent actions run in this thread
+        if (finished) {
+            future.complete(size);
+        }
+    }
+
+
+    /**
+     * Abort the copy
+     *
+     * @param e the exception
+     */
+    private void abort(Throwable e) {
+        future.completeExceptionally(e);
+    }
+
+
+    /**
+     * The completion handler of the read operations.
+     *
+     * @author patrick
+     */
+    private final class ReadHandler implements CompletionHandler<Integer, ByteBuffer> {
+
+        /**
+         * @see java.nio.channels.CompletionHandler#completed(java.lang.Object, java.lang.Object)
+         */
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            synchronized (AsyncChannelCopy.this) {
+                reading = false;
+                if (result < 0) {
+                    eof = true;
+                    freeBuffers.add(buffer);
+                } else {
+                    readPosition += result;
+                    buffer.flip();
+                    filledBuffers.add(buffer);
+                }
+            }
+
+            proceed();
+        }
+
+
+        /**
+         * @see java.nio.channels.CompletionHandler#failed(java.lang.Throwable, java.lang.Object)
+         */
+        @Override
+        public void failed(Throwable e, ByteBuffer buffer) {
+            abort(e);
+        }
+    }
+
+
+    /**
+     * The completion handler of the write operations.
+     *
+     * @author patrick
+     */
+    private final class WriteHandler implements CompletionHandler<Integer, ByteBuffer> {
+
+        /**
+         * @see java.nio.channels.CompletionHandler#completed(java.lang.Object, java.lang.Object)
+         */
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            long written;
+            synchronized (AsyncChannelCopy.this) {
+                writePosition += result;
+                written = writePosition - destStart;
+                if (!buffer.hasRemaining()) {
+                    // partially written buffers stay at the head of the queue
+                    filledBuffers.poll();
+                    freeBuffers.add(buffer);
+                }
+            }
+
+            // the listener is called outside of the lock, the write stays active until it returns, so the next write
+            // and the next call of the listener start only afterwards
+            if (progressListener != null && !future.isDone()) {
+                try {
+                    progressListener.accept(written);
+                } catch (RuntimeException e) {
+                    abort(e);
+                    return;
+                }
+            }
+
+            synchronized (AsyncChannelCopy.this) {
+                writing = false;
+            }
+
+            proceed();
+        }
+
+
+        /**
+         * @see java.nio.channels.CompletionHandler#failed(java.lang.Throwable, java.lang.Object)
+         */
+        @Override
+        public void failed(Throwable e, ByteBuffer buffer) {
+            abort(e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * BytePattern.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import com.github.toolarium.common.ByteArray;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Defines a precompiled byte sequence which can be searched for repeatedly. Patterns with more than one byte
+ * are searched by the Boyer-Moore-Horspool algorithm, the shift table is computed once by the constructor.
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author patrick
+ */
+public final class BytePattern {
+    private final byte[] pattern;
+    private final int[] shiftTable;
+
+
+    /**
+     * Constructor for BytePattern
+     *
+     * @param pattern the bytes to search for
+     */
+    public BytePattern(byte[] pattern) {
+        this(pattern, 0, pattern.length);
+    }
+
+
+    /**
+     * Constructor for BytePattern
+     *
+     * @param pattern the bytes to search for
+     */
+    public BytePattern(ByteArray pattern) {
+        this(pattern.toBytes());
+    }
+
+
+    /**
+     * Constructor for BytePattern
+     *
+     * @param pattern the bytes to search for
+     * @param offset the offset of the pattern in the given bytes
+     * @param length the length of the pattern
+     */
+    public BytePattern(byte[] pattern, int offset, int length) {
+        this.pattern = new byte[length];
+        System.arraycopy(pattern, offset, this.pattern, 0, length);
+
+        if (length > 1) {
+            shiftTable = new int[256];
+            for (int i = 0; i < shiftTable.length; i++) {
+                shiftTable[i] = length;
+            }
+
+            for (int i = 0; i < length - 1; i++) {
+                shiftTable[this.pattern[i] & 0xFF] = length - 1 - i;
+            }
+        } else {
+            shiftTable = null;
+        }
+    }
+
+
+    /**
+     * Gets the length of the pattern
+     *
+     * @return the length
+     */
+    public int length() {
+        return pattern.length;
+    }
+
+
+    /**
+     * Returns the index of the first occurrence of this pattern in the given byte array.
+     *
+     * @param source the bytes being searched.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(ByteArray source) {
+        return indexOf(source, 0);
+    }
+
+
+    /**
+     * Returns the index of the first occurrence of this pattern in the given byte array, starting at the specified index.
+     *
+     * @param source the bytes being searched.
+     * @param fromIndex the index to begin searching from.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(ByteArray source, int fromIndex) {
+        if (source == null) {
+            return -1;
+        }
+
+        ByteBuffer buffer = source.toByteBuffer();
+        return indexOf(buffer.array(), buffer.arrayOffset(), source.length(), fromIndex);
+    }
+
+
+    /**
+     * Returns the index of the first occurrence of this pattern in the given bytes, starting at the specified index.
+     * The result is relative to the source offset, see {@link ByteUtil#indexOf(byte[], int, int, byte[], int, int, int)}.
+     *
+     * @param source the bytes being searched.
+     * @param sourceOffset offset of the source array.
+     * @param sourceCount count of the source array.
+     * @param index the index to begin searching from.
+     * @return the index of the first occurrence or -1
+     */
+    public int indexOf(byte[] source, int sourceOffset, int sourceCount, int index) {
+        int fromIndex = index;
+        final int patternLength = pattern.length;
+        if (fromIndex >= sourceCount) {
+            if (patternLength == 0) {
+                return sourceCount;
+            }
+
+            return -1;
+        }
+
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+
+        if (patternLength == 0) {
+            return fromIndex;
+        }
+
+        final int max = sourceOffset + sourceCount - patternLength;
+        if (patternLength == 1) {
+            final byte b = pattern[0];
+            for (int i = sourceOffset + fromIndex; i <= max; i++) {
+                if (source[i] == b) {
+                    return i - sourceOffset;
+                }
+            }
+
+            return -1;
+        }
+
+        final int last = patternLength - 1;
+        final byte lastByte = pattern[last];
+        int i = sourceOffset + fromIndex;
+        while (i <= max) {
+            final byte b = source[i + last];
+            if (b == lastByte && matches(source, i, last)) {
+                return i - sourceOffset;
+            }
+
+            i += shiftTable[b & 0xFF];
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Returns the index of the first occurrence of this pattern in the given buffer, starting at the specified index.
+     * The buffer is accessed by absolute positions, its position and limit are not changed. This allows to search
+     * direct buffers without copying them onto the heap.
+     *
+     * @param source the buffer being searched.
+     * @param sourceOffset the absolute offset in the buffer.
+     * @param sourceCount the number of bytes to search.
+     * @param index the index to begin searching from.
+     * @return the index of the first occurrence relative to the source offset or -1
+     */
+    public int indexOf(ByteBuffer source, int sourceOffset, int sourceCount, int index) {
+        if (source.hasArray()) {
+            return indexOf(source.array(), source.arrayOffset() + sourceOffset, sourceCount, index);
+        }
+
+        int fromIndex = index;
+        final int patternLength = pattern.length;
+        if (fromIndex >= sourceCount) {
+            if (patternLength == 0) {
+                return sourceCount;
+            }
+
+            return -1;
+        }
+
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+
+        if (patternLength == 0) {
+            return fromIndex;
+        }
+
+        final int max = sourceOffset + sourceCount - patternLength;
+        final int last = patternLength - 1;
+        final byte lastByte = pattern[last];
+        int i = sourceOffset + fromIndex;
+        while (i <= max) {
+            final byte b = source.get(i + last);
+            if (b == lastByte && matches(source, i, last)) {
+                return i - sourceOffset;
+            }
+
+            if (shiftTable == null) {
+                i++;
+            } else {
+                i += shiftTable[b & 0xFF];
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Check if the pattern without the last byte matches at the given position
+     *
+     * @param source the bytes being searched
+     * @param pos the position in the source
+     * @param count the number of bytes to compare
+     * @return true if it matches
+     */
+    private boolean matches(byte[] source, int pos, int count) {
+        for (int j = 0; j < count; j++) {
+            if (source[pos + j] != pattern[j]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Check if the pattern without the last byte matches at the given absolute position of the buffer
+     *
+     * @param source the buffer being searched
+     * @param pos the absolute position in the buffer
+     * @param count the number of bytes to compare
+     * @return true if it matches
+     */
+    private boolean matches(ByteBuffer source, int pos, int count) {
+        for (int j = 0; j < count; j++) {
+            if (source.get(pos + j) != pattern[j]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
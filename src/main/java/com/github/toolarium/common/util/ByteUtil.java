@@ -6,8 +6,14 @@
 package com.github.toolarium.common.util;
 
 import com.github.toolarium.common.ByteArray;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 
 /**
@@ -16,7 +22,29 @@ import java.math.BigInteger;
  * @author patrick
  */
 public final class ByteUtil {
-    
+    /** The minimal pattern length to use the Boyer-Moore-Horspool search */
+    private static final int HORSPOOL_MIN_PATTERN_LENGTH = 4;
+
+    /** The minimal number of bytes to search to use the Boyer-Moore-Horspool search */
+    private static final int HORSPOOL_MIN_SOURCE_LENGTH = 1024;
+
+    /** The primes of the 64-bit hash (XXH64) */
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    /** The hex and Base64 encoding and decoding tables */
+    private static final char[] HEX_UPPER_CASE = "0123456789ABCDEF".toCharArray();
+    private static final char[] HEX_LOWER_CASE = "0123456789abcdef".toCharArray();
+    private static final byte[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+    private static final byte BASE64_PAD = '=';
+    private static final int[] HEX_DECODE_TABLE = createDecodeTable("0123456789ABCDEF", "0123456789abcdef");
+    private static final int[] BASE64_DECODE_TABLE = createDecodeTable("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/", "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_");
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+
+
     /**
      * Private class, the only instance of the singelton which will be created by accessing the holder class.
      *
@@ -96,27 +124,360 @@ public final class ByteUtil {
      * @return the byte array
      */
     public byte[] toByteArray(String s) {
-        int n = s.length();
-        int b1 = -1;
-        int b2 = -1;
-
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        for (int i = 0; i < n; i++) {
-            if (b1 == -1) {
-                b1 = toByte(s.charAt(i), 16);
+        byte[] result = new byte[s.length() / 2];
+        int count = decodeHex(s, 0, s.length(), result, 0);
+        if (count == result.length) {
+            return result;
+        }
+
+        return Arrays.copyOf(result, count);
+    }  
+
+
+    /**
+     * Encodes bytes as hex characters into a preallocated array, each byte results in two characters.
+     *
+     * @param src the bytes to encode
+     * @param srcOff the offset of the bytes
+     * @param len the number of bytes
+     * @param dst the destination, it must have space for <code>2 * len</code> characters
+     * @param dstOff the offset in the destination
+     * @param upperCase true to encode with upper case letters
+     * @return the number of characters written
+     */
+    public int encodeHex(byte[] src, int srcOff, int len, char[] dst, int dstOff, boolean upperCase) {
+        char[] digits = HEX_LOWER_CASE;
+        if (upperCase) {
+            digits = HEX_UPPER_CASE;
+        }
+
+        int d = dstOff;
+        final int end = srcOff + len;
+        for (int i = srcOff; i < end; i++) {
+            int b = src[i] & 0xFF;
+            dst[d++] = digits[b >>> 4];
+            dst[d++] = digits[b & 0x0F];
+        }
+
+        return d - dstOff;
+    }
+
+
+    /**
+     * Converts bytes into a hex string with upper case letters, e.g. {0, 0x11, 0xAB} is turned into "0011AB".
+     *
+     * @param src the bytes to encode
+     * @return the hex string
+     */
+    public String toHex(byte[] src) {
+        return toHex(src, 0, src.length, true);
+    }
+
+
+    /**
+     * Converts bytes into a hex string.
+     *
+     * @param src the bytes to encode
+     * @param srcOff the offset of the bytes
+     * @param len the number of bytes
+     * @param upperCase true to encode with upper case letters
+     * @return the hex string
+     */
+    public String toHex(byte[] src, int srcOff, int len, boolean upperCase) {
+        char[] result = new char[len * 2];
+        encodeHex(src, srcOff, len, result, 0, upperCase);
+        return new String(result);
+    }
+
+
+    /**
+     * Decodes hex characters into a preallocated array. Like {@link #toByteArray(String)} all characters which are not hex digits
+     * are ignored, e.g. "00:11:AB" is turned into {0, 0x11, 0xAB}. A trailing single digit is ignored.
+     *
+     * @param src the hex characters
+     * @param srcOff the offset of the characters
+     * @param len the number of characters
+     * @param dst the destination, it must have space for <code>len / 2</code> bytes
+     * @param dstOff the offset in the destination
+     * @return the number of bytes written
+     */
+    public int decodeHex(CharSequence src, int srcOff, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        int high = -1;
+        final int end = srcOff + len;
+        for (int i = srcOff; i < end; i++) {
+            int value = decodeValue(HEX_DECODE_TABLE, src.charAt(i));
+            if (value >= 0) {
+                if (high < 0) {
+                    high = value;
+                } else {
+                    dst[d++] = (byte) ((high << 4) | value);
+                    high = -1;
+                }
+            }
+        }
+
+        return d - dstOff;
+    }
+
+
+    /**
+     * Gets the number of Base64 characters of the given number of bytes (with padding)
+     *
+     * @param len the number of bytes
+     * @return the number of Base64 characters
+     */
+    public int getBase64Length(int len) {
+        return ((len + 2) / 3) * 4;
+    }
+
+
+    /**
+     * Encodes bytes as Base64 (RFC 4648, with padding) into a preallocated array.
+     *
+     * @param src the bytes to encode
+     * @param srcOff the offset of the bytes
+     * @param len the number of bytes
+     * @param dst the destination, it must have space for {@link #getBase64Length(int)} bytes
+     * @param dstOff the offset in the destination
+     * @return the number of bytes written
+     */
+    public int encodeBase64(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        int s = srcOff;
+        int d = dstOff;
+        final int end = srcOff + len;
+        final int fullEnd = srcOff + (len / 3) * 3;
+        while (s < fullEnd) {
+            int bits = (src[s++] & 0xFF) << 16 | (src[s++] & 0xFF) << 8 | (src[s++] & 0xFF);
+            dst[d++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+            dst[d++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            dst[d++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
+            dst[d++] = BASE64_ALPHABET[bits & 0x3F];
+        }
+
+        int remaining = end - s;
+        if (remaining > 0) {
+            int bits = (src[s] & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (src[s + 1] & 0xFF) << 8;
+            }
+
+            dst[d++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+            dst[d++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            if (remaining == 2) {
+                dst[d++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
             } else {
-                b2 = toByte(s.charAt(i), 16);
+                dst[d++] = BASE64_PAD;
             }
+            dst[d++] = BASE64_PAD;
+        }
 
-            if ((b1 != -1) && (b2 != -1)) {
-                bout.write((b1 << 4) | b2);
-                b1 = -1;
-                b2 = -1;
+        return d - dstOff;
+    }
+
+
+    /**
+     * Converts bytes into a Base64 string (RFC 4648, with padding).
+     *
+     * @param src the bytes to encode
+     * @return the Base64 string
+     */
+    public String toBase64(byte[] src) {
+        return toBase64(src, 0, src.length);
+    }
+
+
+    /**
+     * Converts bytes into a Base64 string (RFC 4648, with padding).
+     *
+     * @param src the bytes to encode
+     * @param srcOff the offset of the bytes
+     * @param len the number of bytes
+     * @return the Base64 string
+     */
+    public String toBase64(byte[] src, int srcOff, int len) {
+        byte[] result = new byte[getBase64Length(len)];
+        encodeBase64(src, srcOff, len, result, 0);
+        return new String(result, StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * Decodes Base64 characters into a preallocated array. The standard and the URL safe alphabet are accepted,
+     * whitespaces are ignored and the decoding stops at the first padding character.
+     *
+     * @param src the Base64 characters
+     * @param srcOff the offset of the characters
+     * @param len the number of characters
+     * @param dst the destination, it must have space for <code>len * 3 / 4</code> bytes
+     * @param dstOff the offset in the destination
+     * @return the number of bytes written
+     * @throws IllegalArgumentException in case of an invalid character
+     */
+    public int decodeBase64(CharSequence src, int srcOff, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        int bits = 0;
+        int count = 0;
+        final int end = srcOff + len;
+        for (int i = srcOff; i < end; i++) {
+            char c = src.charAt(i);
+            if (c == BASE64_PAD) {
+                break;
+            }
+
+            int value = decodeValue(BASE64_DECODE_TABLE, c);
+            if (value < 0) {
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+
+                throw new IllegalArgumentException("Illegal Base64 character '" + c + "' at position " + i + "!");
+            }
+
+            bits = (bits << 6) | value;
+            if (++count == 4) {
+                dst[d++] = (byte) (bits >> 16);
+                dst[d++] = (byte) (bits >> 8);
+                dst[d++] = (byte) bits;
+                bits = 0;
+                count = 0;
             }
         }
 
-        return bout.toByteArray();
-    }  
+        return d + decodeBase64Remaining(bits, count, dst, d) - dstOff;
+    }
+
+
+    /**
+     * Converts a Base64 string into bytes, see {@link #decodeBase64(CharSequence, int, int, byte[], int)}.
+     *
+     * @param src the Base64 string
+     * @return the decoded bytes
+     * @throws IllegalArgumentException in case of an invalid character
+     */
+    public byte[] fromBase64(CharSequence src) {
+        byte[] result = new byte[src.length() * 3 / 4];
+        int count = decodeBase64(src, 0, src.length(), result, 0);
+        if (count == result.length) {
+            return result;
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+
+    /**
+     * Encodes a stream as hex characters. The data is processed in chunks, the memory usage is independent of the size of the data.
+     *
+     * @param in the input stream
+     * @param out the writer
+     * @param upperCase true to encode with upper case letters
+     * @return the number of encoded bytes
+     * @throws IOException in case of an I/O error
+     */
+    public long encodeHex(InputStream in, Writer out, boolean upperCase) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        char[] encoded = new char[STREAM_BUFFER_SIZE * 2];
+        long total = 0;
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(encoded, 0, encodeHex(buffer, 0, count, encoded, 0, upperCase));
+            total += count;
+        }
+
+        return total;
+    }
+
+
+    /**
+     * Encodes a stream as Base64 (RFC 4648, with padding). The data is processed in chunks, the memory usage is independent of the size of the data.
+     *
+     * @param in the input stream
+     * @param out the output stream
+     * @return the number of encoded bytes
+     * @throws IOException in case of an I/O error
+     */
+    public long encodeBase64(InputStream in, OutputStream out) throws IOException {
+        final int chunkSize = (STREAM_BUFFER_SIZE / 3) * 3;
+        byte[] buffer = new byte[chunkSize];
+        byte[] encoded = new byte[getBase64Length(chunkSize)];
+        long total = 0;
+        int filled = 0;
+        int count;
+        while ((count = in.read(buffer, filled, chunkSize - filled)) >= 0) {
+            filled += count;
+            total += count;
+
+            // only complete chunks are encoded, otherwise a padding would be inserted
+            if (filled == chunkSize) {
+                out.write(encoded, 0, encodeBase64(buffer, 0, filled, encoded, 0));
+                filled = 0;
+            }
+        }
+
+        if (filled > 0) {
+            out.write(encoded, 0, encodeBase64(buffer, 0, filled, encoded, 0));
+        }
+
+        return total;
+    }
+
+
+    /**
+     * Decodes a Base64 stream, see {@link #decodeBase64(CharSequence, int, int, byte[], int)}. The data is processed in chunks,
+     * the memory usage is independent of the size of the data.
+     *
+     * @param in the input stream
+     * @param out the output stream
+     * @return the number of decoded bytes
+     * @throws IOException in case of an I/O error
+     * @throws IllegalArgumentException in case of an invalid character
+     */
+    public long decodeBase64(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        byte[] decoded = new byte[STREAM_BUFFER_SIZE];
+        long total = 0;
+        long pos = 0;
+        int bits = 0;
+        int count = 0;
+        int read;
+        boolean padding = false;
+        while (!padding && (read = in.read(buffer)) >= 0) {
+            int d = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == BASE64_PAD) {
+                    padding = true;
+                    break;
+                }
+
+                int value = decodeValue(BASE64_DECODE_TABLE, (char) (buffer[i] & 0xFF));
+                if (value < 0) {
+                    if (Character.isWhitespace(buffer[i] & 0xFF)) {
+                        continue;
+                    }
+
+                    throw new IllegalArgumentException("Illegal Base64 character '" + (char) (buffer[i] & 0xFF) + "' at position " + (pos + i) + "!");
+                }
+
+                bits = (bits << 6) | value;
+                if (++count == 4) {
+                    decoded[d++] = (byte) (bits >> 16);
+                    decoded[d++] = (byte) (bits >> 8);
+                    decoded[d++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            }
+
+            out.write(decoded, 0, d);
+            total += d;
+            pos += read;
+        }
+
+        int d = decodeBase64Remaining(bits, count, decoded, 0);
+        out.write(decoded, 0, d);
+        return total + d;
+    }
 
     
     /**
@@ -266,6 +627,395 @@ public final class ByteUtil {
     }
 
     
+    /**
+     * Reads a short at the given offset in the given byte order without allocating.
+     *
+     * @param src the bytes
+     * @param offset the offset
+     * @param order the byte order
+     * @return the short value
+     */
+    public short getShort(byte[] src, int offset, ByteOrder order) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            return (short) ((src[offset] << 8) | (src[offset + 1] & 0xFF));
+        }
+
+        return (short) ((src[offset + 1] << 8) | (src[offset] & 0xFF));
+    }
+
+
+    /**
+     * Reads an int at the given offset in the given byte order without allocating.
+     *
+     * @param src the bytes
+     * @param offset the offset
+     * @param order the byte order
+     * @return the int value
+     */
+    public int getInt(byte[] src, int offset, ByteOrder order) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            return (src[offset] << 24) | (src[offset + 1] & 0xFF) << 16 | (src[offset + 2] & 0xFF) << 8 | (src[offset + 3] & 0xFF);
+        }
+
+        return (src[offset + 3] << 24) | (src[offset + 2] & 0xFF) << 16 | (src[offset + 1] & 0xFF) << 8 | (src[offset] & 0xFF);
+    }
+
+
+    /**
+     * Reads a long at the given offset in the given byte order without allocating.
+     *
+     * @param src the bytes
+     * @param offset the offset
+     * @param order the byte order
+     * @return the long value
+     */
+    public long getLong(byte[] src, int offset, ByteOrder order) {
+        long high = getInt(src, offset, order) & 0xFFFFFFFFL;
+        long low = getInt(src, offset + 4, order) & 0xFFFFFFFFL;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            return (high << 32) | low;
+        }
+
+        return (low << 32) | high;
+    }
+
+
+    /**
+     * Writes a short at the given offset in the given byte order without allocating.
+     *
+     * @param dst the bytes
+     * @param offset the offset
+     * @param value the value
+     * @param order the byte order
+     */
+    public void putShort(byte[] dst, int offset, short value, ByteOrder order) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            dst[offset] = (byte) (value >> 8);
+            dst[offset + 1] = (byte) value;
+        } else {
+            dst[offset] = (byte) value;
+            dst[offset + 1] = (byte) (value >> 8);
+        }
+    }
+
+
+    /**
+     * Writes an int at the given offset in the given byte order without allocating.
+     *
+     * @param dst the bytes
+     * @param offset the offset
+     * @param value the value
+     * @param order the byte order
+     */
+    public void putInt(byte[] dst, int offset, int value, ByteOrder order) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            dst[offset] = (byte) (value >> 24);
+            dst[offset + 1] = (byte) (value >> 16);
+            dst[offset + 2] = (byte) (value >> 8);
+            dst[offset + 3] = (byte) value;
+        } else {
+            dst[offset] = (byte) value;
+            dst[offset + 1] = (byte) (value >> 8);
+            dst[offset + 2] = (byte) (value >> 16);
+            dst[offset + 3] = (byte) (value >> 24);
+        }
+    }
+
+
+    /**
+     * Writes a long at the given offset in the given byte order without allocating.
+     *
+     * @param dst the bytes
+     * @param offset the offset
+     * @param value the value
+     * @param order the byte order
+     */
+    public void putLong(byte[] dst, int offset, long value, ByteOrder order) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            putInt(dst, offset, (int) (value >>> 32), order);
+            putInt(dst, offset + 4, (int) value, order);
+        } else {
+            putInt(dst, offset, (int) value, order);
+            putInt(dst, offset + 4, (int) (value >>> 32), order);
+        }
+    }
+
+
+    /**
+     * Gets the number of bytes of an unsigned variable length long (LEB128)
+     *
+     * @param value the value
+     * @return the number of bytes (1 - 10)
+     */
+    public int getVarLongSize(long value) {
+        int size = 1;
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Writes an unsigned variable length long (LEB128): 7 bits per byte, the lowest group first and the highest bit set
+     * on all bytes except the last. Small values need less bytes, e.g. values below 128 only one byte.
+     *
+     * @param dst the destination, it must have space for {@link #getVarLongSize(long)} bytes
+     * @param offset the offset in the destination
+     * @param value the value, negative values need 10 bytes, see {@link #encodeZigZag(long)}
+     * @return the number of bytes written
+     */
+    public int putVarLong(byte[] dst, int offset, long value) {
+        int pos = offset;
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            dst[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+
+        dst[pos++] = (byte) v;
+        return pos - offset;
+    }
+
+
+    /**
+     * Writes an unsigned variable length int (LEB128), see {@link #putVarLong(byte[], int, long)}.
+     *
+     * @param dst the destination, it must have space for 5 bytes
+     * @param offset the offset in the destination
+     * @param value the value, negative values need 5 bytes, see {@link #encodeZigZag(int)}
+     * @return the number of bytes written
+     */
+    public int putVarInt(byte[] dst, int offset, int value) {
+        return putVarLong(dst, offset, value & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * Reads an unsigned variable length long (LEB128). The number of read bytes corresponds to {@link #getVarLongSize(long)}
+     * of the result as long as the value was written by {@link #putVarLong(byte[], int, long)}.
+     *
+     * @param src the source
+     * @param offset the offset in the source
+     * @return the value
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public long getVarLong(byte[] src, int offset) {
+        long result = 0;
+        int pos = offset;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = src[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable length long at offset " + offset + "!");
+    }
+
+
+    /**
+     * Reads an unsigned variable length int (LEB128), see {@link #getVarLong(byte[], int)}.
+     *
+     * @param src the source
+     * @param offset the offset in the source
+     * @return the value
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public int getVarInt(byte[] src, int offset) {
+        long result = getVarLong(src, offset);
+        if ((result >>> 32) != 0) {
+            throw new IllegalArgumentException("Malformed variable length int at offset " + offset + "!");
+        }
+
+        return (int) result;
+    }
+
+
+    /**
+     * Zigzag encoding maps signed to unsigned values, small negative values become small positive values
+     * (0 = 0, -1 = 1, 1 = 2, -2 = 3, ...), which results in short variable length values.
+     *
+     * @param value the value
+     * @return the zigzag encoded value
+     */
+    public long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+
+    /**
+     * Decodes a zigzag encoded value, see {@link #encodeZigZag(long)}.
+     *
+     * @param value the zigzag encoded value
+     * @return the value
+     */
+    public long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    /**
+     * Zigzag encoding of an int, see {@link #encodeZigZag(long)}.
+     *
+     * @param value the value
+     * @return the zigzag encoded value
+     */
+    public int encodeZigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+
+    /**
+     * Decodes a zigzag encoded int, see {@link #encodeZigZag(int)}.
+     *
+     * @param value the zigzag encoded value
+     * @return the value
+     */
+    public int decodeZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    /**
+     * Encodes a sequence of longs as differences to the previous value (the first to 0), each difference is written as
+     * zigzag encoded variable length long. Sorted sequences like timestamps or ids result in very short encodings.
+     *
+     * @param values the values
+     * @param offset the offset of the values
+     * @param count the number of values
+     * @param dst the destination, it must have space for <code>10 * count</code> bytes in the worst case
+     * @param dstOffset the offset in the destination
+     * @return the number of bytes written
+     */
+    public int encodeDeltaVarLong(long[] values, int offset, int count, byte[] dst, int dstOffset) {
+        int pos = dstOffset;
+        long previous = 0;
+        final int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            pos += putVarLong(dst, pos, encodeZigZag(values[i] - previous));
+            previous = values[i];
+        }
+
+        return pos - dstOffset;
+    }
+
+
+    /**
+     * Decodes a sequence of longs which was written by {@link #encodeDeltaVarLong(long[], int, int, byte[], int)}.
+     *
+     * @param src the source
+     * @param srcOffset the offset in the source
+     * @param srcLength the number of available bytes in the source
+     * @param values the destination
+     * @param offset the offset in the destination
+     * @param count the number of values to decode
+     * @return the number of bytes read
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public int decodeDeltaVarLong(byte[] src, int srcOffset, int srcLength, long[] values, int offset, int count) {
+        final int srcEnd = srcOffset + srcLength;
+        int pos = srcOffset;
+        long previous = 0;
+        final int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= srcEnd) {
+                    throw new ArrayIndexOutOfBoundsException("Not enough bytes to decode " + count + " values (length:" + srcLength + ")!");
+                }
+
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed variable length long at offset " + pos + "!");
+                }
+
+                b = src[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            previous += decodeZigZag(result);
+            values[i] = previous;
+        }
+
+        return pos - srcOffset;
+    }
+
+
+    /**
+     * Encodes a sequence of ints as differences, see {@link #encodeDeltaVarLong(long[], int, int, byte[], int)}.
+     *
+     * @param values the values
+     * @param offset the offset of the values
+     * @param count the number of values
+     * @param dst the destination, it must have space for <code>5 * count</code> bytes in the worst case
+     * @param dstOffset the offset in the destination
+     * @return the number of bytes written
+     */
+    public int encodeDeltaVarInt(int[] values, int offset, int count, byte[] dst, int dstOffset) {
+        int pos = dstOffset;
+        int previous = 0;
+        final int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            pos += putVarInt(dst, pos, encodeZigZag(values[i] - previous));
+            previous = values[i];
+        }
+
+        return pos - dstOffset;
+    }
+
+
+    /**
+     * Decodes a sequence of ints which was written by {@link #encodeDeltaVarInt(int[], int, int, byte[], int)}.
+     *
+     * @param src the source
+     * @param srcOffset the offset in the source
+     * @param srcLength the number of available bytes in the source
+     * @param values the destination
+     * @param offset the offset in the destination
+     * @param count the number of values to decode
+     * @return the number of bytes read
+     * @throws ArrayIndexOutOfBoundsException in case there are not enough bytes
+     * @throws IllegalArgumentException in case of a malformed value
+     */
+    public int decodeDeltaVarInt(byte[] src, int srcOffset, int srcLength, int[] values, int offset, int count) {
+        final int srcEnd = srcOffset + srcLength;
+        int pos = srcOffset;
+        int previous = 0;
+        final int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= srcEnd) {
+                    throw new ArrayIndexOutOfBoundsException("Not enough bytes to decode " + count + " values (length:" + srcLength + ")!");
+                }
+
+                if (shift > 28) {
+                    throw new IllegalArgumentException("Malformed variable length int at offset " + pos + "!");
+                }
+
+                b = src[pos++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            previous += decodeZigZag(result);
+            values[i] = previous;
+        }
+
+        return pos - srcOffset;
+    }
+
+
     /**
      * Prepare a byte array to a byte array of a defined size 
      * 
@@ -374,6 +1124,8 @@ public final class ByteUtil {
     
     /**
      * The source is the byte array being searched, and the target is the string being searched for.
+     * Longer patterns in large sources are searched by the Boyer-Moore-Horspool algorithm, see {@link BytePattern}.
+     * Callers which search the same pattern repeatedly should hold a {@link BytePattern}, it is compiled only once.
      *
      * @param source the bytes being searched.
      * @param sourceOffset offset of the source array.
@@ -402,6 +1154,10 @@ public final class ByteUtil {
             return fromIndex;
         }
 
+        if (targetCount >= HORSPOOL_MIN_PATTERN_LENGTH && sourceCount - fromIndex >= HORSPOOL_MIN_SOURCE_LENGTH) {
+            return new BytePattern(target, targetOffset, targetCount).indexOf(source, sourceOffset, sourceCount, fromIndex);
+        }
+
         byte first = target[targetOffset];
         int i = sourceOffset + fromIndex;
         int max = sourceOffset + (sourceCount - targetCount);
@@ -431,4 +1187,203 @@ public final class ByteUtil {
             return i - sourceOffset; /* Found whole string. */
         }
     }
+
+
+    /**
+     * Calculates a fast, non-cryptographic 64-bit hash of the given bytes. The hash corresponds to the XXH64 algorithm
+     * with seed 0 and is stable across JVMs, it can be used for sharding and deduplication but not for security purposes.
+     *
+     * @param data the data
+     * @return the 64-bit hash
+     */
+    public long hash64(byte[] data) {
+        return hash64(data, 0, data.length);
+    }
+
+
+    /**
+     * Calculates a fast, non-cryptographic 64-bit hash of the given bytes, see {@link #hash64(byte[])}.
+     *
+     * @param data the data
+     * @param offset the offset
+     * @param len the number of bytes
+     * @return the 64-bit hash
+     */
+    public long hash64(byte[] data, int offset, int len) {
+        final int end = offset + len;
+        int pos = offset;
+        long hash;
+
+        if (len >= 32) {
+            final int limit = end - 32;
+            long v1 = PRIME64_1 + PRIME64_2;
+            long v2 = PRIME64_2;
+            long v3 = 0;
+            long v4 = -PRIME64_1;
+            do {
+                v1 = hash64Round(v1, readLongLittleEndian(data, pos));
+                v2 = hash64Round(v2, readLongLittleEndian(data, pos + 8));
+                v3 = hash64Round(v3, readLongLittleEndian(data, pos + 16));
+                v4 = hash64Round(v4, readLongLittleEndian(data, pos + 24));
+                pos += 32;
+            } while (pos <= limit);
+
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = hash64MergeRound(hash, v1);
+            hash = hash64MergeRound(hash, v2);
+            hash = hash64MergeRound(hash, v3);
+            hash = hash64MergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+
+        hash += len;
+        while (pos + 8 <= end) {
+            hash ^= hash64Round(0, readLongLittleEndian(data, pos));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            pos += 8;
+        }
+
+        if (pos + 4 <= end) {
+            hash ^= (readIntLittleEndian(data, pos) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            pos += 4;
+        }
+
+        while (pos < end) {
+            hash ^= (data[pos] & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            pos++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+
+    /**
+     * Processes one lane of the 64-bit hash
+     *
+     * @param acc the accumulator
+     * @param input the input
+     * @return the new accumulator
+     */
+    private static long hash64Round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME64_2, 31) * PRIME64_1;
+    }
+
+
+    /**
+     * Merges a lane into the 64-bit hash
+     *
+     * @param hash the hash
+     * @param value the lane value
+     * @return the new hash
+     */
+    private static long hash64MergeRound(long hash, long value) {
+        return (hash ^ hash64Round(0, value)) * PRIME64_1 + PRIME64_4;
+    }
+
+
+    /**
+     * Reads a long in little endian order
+     *
+     * @param data the data
+     * @param pos the position
+     * @return the long
+     */
+    private static long readLongLittleEndian(byte[] data, int pos) {
+        return (data[pos] & 0xFFL)
+               | (data[pos + 1] & 0xFFL) << 8
+               | (data[pos + 2] & 0xFFL) << 16
+               | (data[pos + 3] & 0xFFL) << 24
+               | (data[pos + 4] & 0xFFL) << 32
+               | (data[pos + 5] & 0xFFL) << 40
+               | (data[pos + 6] & 0xFFL) << 48
+               | (data[pos + 7] & 0xFFL) << 56;
+    }
+
+
+    /**
+     * Reads an int in little endian order
+     *
+     * @param data the data
+     * @param pos the position
+     * @return the int
+     */
+    private static int readIntLittleEndian(byte[] data, int pos) {
+        return (data[pos] & 0xFF)
+               | (data[pos + 1] & 0xFF) << 8
+               | (data[pos + 2] & 0xFF) << 16
+               | (data[pos + 3] & 0xFF) << 24;
+    }
+
+
+    /**
+     * Decodes the remaining bits of an incomplete Base64 quantum
+     *
+     * @param bits the bits
+     * @param count the number of characters of the quantum
+     * @param dst the destination
+     * @param dstOff the offset in the destination
+     * @return the number of bytes written
+     * @throws IllegalArgumentException in case of a single remaining character
+     */
+    private static int decodeBase64Remaining(int bits, int count, byte[] dst, int dstOff) {
+        if (count == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length, the last unit has only one character!");
+        }
+
+        if (count == 2) {
+            dst[dstOff] = (byte) (bits >> 4);
+            return 1;
+        }
+
+        if (count == 3) {
+            dst[dstOff] = (byte) (bits >> 10);
+            dst[dstOff + 1] = (byte) (bits >> 2);
+            return 2;
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Gets the value of a character from a decode table
+     *
+     * @param table the decode table
+     * @param c the character
+     * @return the value or -1 if it is not valid
+     */
+    private static int decodeValue(int[] table, char c) {
+        if (c >= table.length) {
+            return -1;
+        }
+
+        return table[c];
+    }
+
+
+    /**
+     * Creates a decode table, the index of a character in the alphabets is its value
+     *
+     * @param alphabets the alphabets
+     * @return the decode table
+     */
+    private static int[] createDecodeTable(String... alphabets) {
+        int[] table = new int[128];
+        Arrays.fill(table, -1);
+        for (String alphabet : alphabets) {
+            for (int i = 0; i < alphabet.length(); i++) {
+                table[alphabet.charAt(i)] = i;
+            }
+        }
+
+        return table;
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * ChannelCopyResult.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.Serializable;
+
+
+/**
+ * The result of a channel copy: the number of copied bytes, the used time and the achieved throughput.
+ *
+ * @author patrick
+ */
+public class ChannelCopyResult implements Serializable {
+    private static final long serialVersionUID = 5731956013380342107L;
+    private final long size;
+    private final long durationNanos;
+    private final boolean zeroCopy;
+
+
+    /**
+     * Constructor for ChannelCopyResult
+     *
+     * @param size the number of copied bytes
+     * @param durationNanos the duration in nano seconds
+     * @param zeroCopy true if the data was transferred by the file channel (transferTo / transferFrom)
+     */
+    public ChannelCopyResult(long size, long durationNanos, boolean zeroCopy) {
+        this.size = size;
+        this.durationNanos = durationNanos;
+        this.zeroCopy = zeroCopy;
+    }
+
+
+    /**
+     * Gets the number of copied bytes
+     *
+     * @return the number of copied bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Gets the duration in nano seconds
+     *
+     * @return the duration in nano seconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+
+    /**
+     * Gets the duration in milliseconds
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDuration() {
+        return durationNanos / 1_000_000L;
+    }
+
+
+    /**
+     * Defines if the data was transferred by the file channel (transferTo / transferFrom), which allows the
+     * operating system to copy without passing the data through the java heap.
+     *
+     * @return true if the data was transferred by the file channel
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+
+    /**
+     * Gets the achieved throughput
+     *
+     * @return the throughput in bytes per second
+     */
+    public long getBytesPerSecond() {
+        if (durationNanos <= 0) {
+            return size;
+        }
+
+        return (long) (size * 1_000_000_000.0d / durationNanos);
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ChannelCopyResult [size=" + size + ", duration=" + getDuration() + "ms, bytesPerSecond=" + getBytesPerSecond() + ", zeroCopy=" + zeroCopy + "]";
+    }
+}
@@ -5,15 +5,36 @@
  */
 package com.github.toolarium.common.util;
 
+import com.github.toolarium.common.bandwidth.IByteBandwidthThrottling;
+import com.github.toolarium.common.pool.ByteBufferPool;
+import com.github.toolarium.common.pool.PooledByteBuffer;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
-import java.security.DigestInputStream;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.Checksum;
 
 /**
  * The channel util class
@@ -21,6 +42,11 @@ import java.security.MessageDigest;
  * @author patrick
  */
 public final class ChannelUtil {
+    /** The default buffer size in case the data can't be transferred by a file channel */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ExecutorService hashingExecutor;
+
 
     /**
      * Private class, the only instance of the singelton which will be created by accessing the holder class.
@@ -36,7 +62,12 @@ public final class ChannelUtil {
      * Constructor
      */
     private ChannelUtil() {
-        // NOP
+        // the threads of the parallel hashing are shared by all copies and end after being idle
+        hashingExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ChannelUtil-hashing");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     
@@ -67,8 +98,8 @@ public final class ChannelUtil {
     
     /**
      * This method copies data from the src channel and writes it to the dest channel until EOF on src. 
-     * This implementation makes use of compact() on the temp buffer to pack down the data if the buffer wasn't fully drained.  
-     * This may result in data copying, but minimizes system calls. It also requires a cleanup loop to make sure all the data gets sent.
+     * In case one of the channels is a {@link FileChannel} the data is transferred by transferTo / transferFrom, 
+     * otherwise by a reusable direct buffer of the size {@link #DEFAULT_BUFFER_SIZE}.
      * 
      * @param src the source channel
      * @param dest the destination channel
@@ -76,33 +107,133 @@ public final class ChannelUtil {
      * @exception IOException in case of error
      */
     public long channelCopy(ReadableByteChannel src, WritableByteChannel dest) throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(4 * 1024);
-        long size = 0;
+        return copy(src, dest, DEFAULT_BUFFER_SIZE).getSize();
+    }
 
-        while (src.read(buffer) != -1) {
-            // prepare the buffer to be drained
-            buffer.flip();
 
-            // write to the channel, may block
-            size += dest.write(buffer);
+    /**
+     * This method copies data from the src channel and writes it to the dest channel until EOF on src. 
+     * In case the source is a {@link FileChannel} the data is transferred by transferTo, in case the destination is a 
+     * {@link FileChannel} by transferFrom. This allows the operating system to copy the data without passing it through 
+     * the java heap (e.g. sendfile / copy_file_range). Otherwise the data is copied by a direct buffer of the 
+     * {@link ByteBufferPool}. 
+     * 
+     * @param src the source channel
+     * @param dest the destination channel
+     * @param bufferSize the size of the buffer in case the data can't be transferred by a file channel
+     * @return the copy result with the copied bytes and the throughput
+     * @exception IOException in case of error
+     * @throws IllegalArgumentException in case of an invalid buffer size
+     */
+    public ChannelCopyResult copy(ReadableByteChannel src, WritableByteChannel dest, int bufferSize) throws IOException {
+        return copy(src, dest, bufferSize, true);
+    }
 
-            // If partial transfer, shift remainder down
-            // If buffer is empty, same as doing clear()
-            buffer.compact();
+
+    /**
+     * This method copies data from the src channel and writes it to the dest channel until EOF on src. 
+     * In case the source is a {@link FileChannel} the data is transferred by transferTo, in case the destination is a 
+     * {@link FileChannel} by transferFrom. Otherwise the data is copied by a buffer of the {@link ByteBufferPool}, 
+     * which is reused by the calling thread. Larger buffers reduce the number of system calls, direct buffers avoid 
+     * the copy between the java heap and the native memory of the channel. The buffer is compacted if it wasn't fully 
+     * drained, which may result in data copying, but minimizes system calls.
+     * 
+     * @param src the source channel
+     * @param dest the destination channel
+     * @param bufferSize the size of the buffer in case the data can't be transferred by a file channel
+     * @param direct true to use a direct buffer; otherwise a heap buffer 
+     * @return the copy result with the copied bytes and the throughput
+     * @exception IOException in case of error
+     * @throws IllegalArgumentException in case of an invalid buffer size
+     */
+    public ChannelCopyResult copy(ReadableByteChannel src, WritableByteChannel dest, int bufferSize, boolean direct) throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + "!");
         }
 
-        // EOF will leave buffer in fill state
-        buffer.flip();
+        long start = System.nanoTime();
+        long size = 0;
+        boolean zeroCopy = false;
+        boolean complete = false;
+        if (src instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) src;
+            size = transferTo(fileChannel, dest);
+            zeroCopy = true;
+            complete = fileChannel.position() >= fileChannel.size();
+        } else if (dest instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) dest;
+            size = transferFrom(src, fileChannel, bufferSize);
+            zeroCopy = true;
 
-        // make sure the buffer is fully drained.
-        while (buffer.hasRemaining()) {
-            size += dest.write(buffer);
+            // nothing is transferred to a position beyond the end of the file or from a non-blocking source without data
+            complete = fileChannel.position() <= fileChannel.size() && !(src instanceof SelectableChannel && !((SelectableChannel) src).isBlocking());
         }
 
-        return size;
+        if (!complete) {
+            // copy the remaining data in case the channel transfer stopped early or wasn't possible
+            try (PooledByteBuffer buffer = ByteBufferPool.getInstance().acquire(bufferSize, direct)) {
+                size += bufferCopy(src, dest, buffer.getByteBuffer());
+            }
+        }
+
+        return new ChannelCopyResult(size, System.nanoTime() - start, zeroCopy);
     }
 
     
+    /**
+     * This method copies data from the src channel and writes it to the dest channel until EOF on src with a limited 
+     * bandwidth. Before every chunk of at most the buffer size is written, the throttling pauses as long as necessary to 
+     * keep the bandwidth. In case the source is a {@link FileChannel} the chunks are transferred by transferTo, otherwise 
+     * by a direct buffer of the {@link ByteBufferPool}. The achieved bandwidth is available by the statistic of the throttling.
+     * 
+     * @param src the source channel
+     * @param dest the destination channel
+     * @param bufferSize the size of a chunk, smaller chunks give a smoother pacing 
+     * @param throttling the byte bandwidth throttling, it can be shared between several copies
+     * @return the copy result with the copied bytes and the throughput
+     * @exception IOException in case of error
+     * @throws IllegalArgumentException in case of an invalid buffer size
+     */
+    public ChannelCopyResult copy(ReadableByteChannel src, WritableByteChannel dest, int bufferSize, IByteBandwidthThrottling throttling) throws IOException {
+        if (throttling == null) {
+            return copy(src, dest, bufferSize);
+        }
+
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + "!");
+        }
+
+        long start = System.nanoTime();
+        long size = 0;
+        boolean zeroCopy = false;
+        if (src instanceof FileChannel) {
+            size = throttledTransferTo((FileChannel) src, dest, bufferSize, throttling);
+            zeroCopy = true;
+        }
+
+        try (PooledByteBuffer pooledByteBuffer = ByteBufferPool.getInstance().acquire(bufferSize, true)) {
+            ByteBuffer buffer = pooledByteBuffer.getByteBuffer();
+            boolean eof = false;
+            while (!eof) {
+                buffer.clear();
+                buffer.limit(bufferSize);
+                eof = fill(src, buffer);
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+
+                checkInterrupted(throttling.bandwidthCheck(buffer.remaining()));
+                while (buffer.hasRemaining()) {
+                    size += dest.write(buffer);
+                }
+            }
+        }
+
+        return new ChannelCopyResult(size, System.nanoTime() - start, zeroCopy);
+    }
+
+
     /**
      * This method copies data from the src channel and writes it to the dest channel until EOF on src. 
      * This implementation makes use of compact() on the temp buffer to pack down the data if the buffer wasn't fully drained.  
@@ -115,16 +246,461 @@ public final class ChannelUtil {
      * @exception IOException in case of error
      */
     public long channelCopy(InputStream src, OutputStream dest, MessageDigest messageDigest) throws IOException {
-        ReadableByteChannel inChannel;
+        List<MessageDigest> messageDigests = null;
         if (messageDigest != null) {
-            inChannel = Channels.newChannel(new DigestInputStream(src, messageDigest));
+            messageDigests = Collections.singletonList(messageDigest);
+        }
+
+        return channelCopy(src, dest, messageDigests, null, false);
+    }
+
+
+    /**
+     * This method copies data from the src stream and writes it to the dest stream until EOF on src. Every read chunk 
+     * is fed to all message digests and checksums, see {@link #copy(ReadableByteChannel, WritableByteChannel, int, Collection, Collection, boolean)}.
+     * Both streams are closed at the end.
+     * 
+     * @param src the source stream
+     * @param dest the destination stream
+     * @param messageDigests the message digests or null
+     * @param checksums the checksums (e.g. CRC32C) or null
+     * @param parallelHashing true to calculate the digests on a separate thread while the next chunk is read
+     * @return the copied bytes
+     * @exception IOException in case of error
+     */
+    public long channelCopy(InputStream src, OutputStream dest, Collection<MessageDigest> messageDigests, Collection<Checksum> checksums, boolean parallelHashing) throws IOException {
+        ReadableByteChannel inChannel;
+        if (src instanceof FileInputStream) {
+            inChannel = ((FileInputStream) src).getChannel();
         } else {
             inChannel = Channels.newChannel(src);
         }
 
+        WritableByteChannel outChannel;
+        if (dest instanceof FileOutputStream) {
+            outChannel = ((FileOutputStream) dest).getChannel();
+        } else {
+            outChannel = Channels.newChannel(dest);
+        }
+
         try (ReadableByteChannel in = inChannel;
-             WritableByteChannel outChannel = Channels.newChannel(dest)) {
-            return channelCopy(in, outChannel);
+             WritableByteChannel out = outChannel) {
+            if ((messageDigests == null || messageDigests.isEmpty()) && (checksums == null || checksums.isEmpty())) {
+                return channelCopy(in, out);
+            }
+            
+            return copy(in, out, DEFAULT_BUFFER_SIZE, messageDigests, checksums, parallelHashing).getSize();
+        }
+    }
+
+
+    /**
+     * This method copies data from the src channel and writes it to the dest channel until EOF on src. Every read chunk
+     * is fed to all message digests and checksums in the order of the data. The data always passes through the buffers, 
+     * a file channel transfer is not possible.
+     * 
+     * <p>In the parallel hashing mode two buffers are used: while the digests of a chunk are calculated by a separate 
+     * thread, the chunk is written and the next chunk is read into the other buffer. This way the hashing doesn't 
+     * serialize with the I/O, the copy takes about the longer of both instead of their sum.</p>
+     * 
+     * @param src the source channel
+     * @param dest the destination channel
+     * @param bufferSize the size of the buffer
+     * @param messageDigests the message digests or null
+     * @param checksums the checksums (e.g. CRC32C) or null
+     * @param parallelHashing true to calculate the digests on a separate thread while the next chunk is read
+     * @return the copy result with the copied bytes and the throughput
+     * @exception IOException in case of error
+     * @throws IllegalArgumentException in case of an invalid buffer size
+     */
+    public ChannelCopyResult copy(ReadableByteChannel src, WritableByteChannel dest, int bufferSize, Collection<MessageDigest> messageDigests, Collection<Checksum> checksums, boolean parallelHashing) 
+            throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + "!");
+        }
+
+        final List<MessageDigest> digestList = new ArrayList<MessageDigest>();
+        if (messageDigests != null) {
+            digestList.addAll(messageDigests);
+        }
+
+        final List<Checksum> checksumList = new ArrayList<Checksum>();
+        if (checksums != null) {
+            checksumList.addAll(checksums);
+        }
+
+        long start = System.nanoTime();
+        long size = 0;
+        ExecutorService executor = null;
+        if (parallelHashing) {
+            executor = hashingExecutor;
+        }
+
+        Future<?>[] pending = new Future<?>[2];
+        try (PooledByteBuffer first = ByteBufferPool.getInstance().acquire(bufferSize, true);
+             PooledByteBuffer second = acquireSecondBuffer(bufferSize, parallelHashing)) {
+            ByteBuffer[] buffers = new ByteBuffer[] {first.getByteBuffer(), first.getByteBuffer()};
+            if (second != null) {
+                buffers[1] = second.getByteBuffer();
+            }
+
+            try {
+                int index = 0;
+                boolean eof = false;
+                while (!eof) {
+                    ByteBuffer buffer = buffers[index];
+
+                    // the digests of the previous content of the buffer have to be calculated before it is reused
+                    await(pending[index]);
+                    buffer.clear();
+                    buffer.limit(bufferSize);
+                    eof = fill(src, buffer);
+                    buffer.flip();
+                    if (!buffer.hasRemaining()) {
+                        break;
+                    }
+
+                    final ByteBuffer chunk = buffer.duplicate();
+                    if (executor != null) {
+                        // the digests of the previous chunk are completed first to keep the order of the chunks
+                        await(pending[1 - index]);
+                        pending[index] = executor.submit(() -> update(chunk, digestList, checksumList));
+                    } else {
+                        update(chunk, digestList, checksumList);
+                    }
+
+                    while (buffer.hasRemaining()) {
+                        size += dest.write(buffer);
+                    }
+
+                    index = 1 - index;
+                }
+
+                for (Future<?> future : pending) {
+                    await(future);
+                }
+            } finally {
+                // a running hashing task can't be cancelled, it has to be completed before its buffer is returned to the pool
+                for (Future<?> future : pending) {
+                    awaitQuietly(future);
+                }
+            }
+        }
+
+        return new ChannelCopyResult(size, System.nanoTime() - start, false);
+    }
+
+
+    /**
+     * Copies the source file to the target file asynchronously, see 
+     * {@link #copyAsync(AsynchronousFileChannel, long, AsynchronousFileChannel, long, int, LongConsumer)}. The target file 
+     * is created or truncated. Both channels are closed as soon as the returned future is completed or cancelled.
+     * 
+     * @param source the source file
+     * @param target the target file
+     * @param bufferSize the size of each of the two buffers
+     * @param progressListener the progress listener which gets the number of written bytes after every write or null
+     * @return the future which completes with the number of copied bytes
+     * @exception IOException in case the files can't be opened
+     * @throws IllegalArgumentException in case of an invalid buffer size
+     */
+    public CompletableFuture<Long> copyAsync(Path source, Path target, int bufferSize, LongConsumer progressListener) throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + "!");
+        }
+
+        final AsynchronousFileChannel src = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+        final AsynchronousFileChannel dest;
+        try {
+            dest = AsynchronousFileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            src.close();
+            throw e;
         }
+
+        CompletableFuture<Long> future = copyAsync(src, 0, dest, 0, bufferSize, progressListener);
+        future.whenComplete((size, e) -> {
+            closeQuietly(src);
+            closeQuietly(dest);
+        });
+        return future;
+    }
+
+
+    /**
+     * This method copies data from the src channel and writes it to the dest channel until EOF on src without blocking 
+     * the calling thread. Two buffers are used, while one chunk is written the next chunk is read. The completion 
+     * handlers run on the thread pool of the channels, so many copies can run concurrently with a few threads.
+     * Cancelling the returned future stops the copy after the pending read and write operations, the channels are 
+     * not closed.
+     * 
+     * @param src the source channel
+     * @param srcPosition the position in the source channel to start reading
+     * @param dest the destination channel
+     * @param destPosition the position in the destination channel to start writing
+     * @param bufferSize the size of each of the two buffers
+     * @param progressListener the progress listener which gets the number of written bytes after every write or null, 
+     *        it is called by the thread pool of the channels and should return quickly. The calls are sequential and in
+     *        the order of the writes, the next write starts after the listener returns. An exception of the listener
+     *        aborts the copy, the returned future completes with it exceptionally.
+     * @return the future which completes with the number of copied bytes or exceptionally in case of an error
+     * @throws IllegalArgumentException in case of an invalid buffer size or position
+     */
+    public CompletableFuture<Long> copyAsync(AsynchronousFileChannel src, long srcPosition, AsynchronousFileChannel dest, long destPosition, int bufferSize, LongConsumer progressListener) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + "!");
+        }
+
+        if (srcPosition < 0 || destPosition < 0) {
+            throw new IllegalArgumentException("Invalid position (" + srcPosition + ", " + destPosition + ")!");
+        }
+
+        return new AsyncChannelCopy(src, srcPosition, dest, destPosition, bufferSize, progressListener).start();
+    }
+
+
+    /**
+     * Transfers the data from the current position of the source file channel until its end. The position of the
+     * source is updated. The transfer stops in case the destination doesn't accept data, e.g. a non-blocking channel.
+     *
+     * @param src the source file channel
+     * @param dest the destination channel
+     * @return the transferred bytes
+     * @exception IOException in case of error
+     */
+    private long transferTo(FileChannel src, WritableByteChannel dest) throws IOException {
+        long start = src.position();
+        long position = start;
+        long end = src.size();
+        while (position < end) {
+            long count = src.transferTo(position, end - position, dest);
+            if (count <= 0) {
+                break;
+            }
+            position += count;
+        }
+
+        src.position(position);
+        return position - start;
+    }
+
+
+    /**
+     * Transfers the data in chunks from the current position of the source file channel until its end with a limited 
+     * bandwidth. The position of the source is updated. 
+     *
+     * @param src the source file channel
+     * @param dest the destination channel
+     * @param chunkSize the size of a chunk
+     * @param throttling the byte bandwidth throttling
+     * @return the transferred bytes
+     * @exception IOException in case of error
+     */
+    private long throttledTransferTo(FileChannel src, WritableByteChannel dest, int chunkSize, IByteBandwidthThrottling throttling) throws IOException {
+        long start = src.position();
+        long position = start;
+        long end = src.size();
+        while (position < end) {
+            long chunk = Math.min(chunkSize, end - position);
+            checkInterrupted(throttling.bandwidthCheck(chunk));
+
+            long count = src.transferTo(position, chunk, dest);
+            if (count <= 0) {
+                break;
+            }
+            position += count;
+        }
+
+        src.position(position);
+        return position - start;
+    }
+
+
+    /**
+     * Transfers the data from the source channel to the current position of the destination file channel until 
+     * no more data can be transferred. The position of the destination is updated. 
+     *
+     * @param src the source channel
+     * @param dest the destination file channel
+     * @param chunkSize the maximal number of bytes of a single transfer
+     * @return the transferred bytes
+     * @exception IOException in case of error
+     */
+    private long transferFrom(ReadableByteChannel src, FileChannel dest, int chunkSize) throws IOException {
+        long start = dest.position();
+        long position = start;
+        long count;
+        while ((count = dest.transferFrom(src, position, chunkSize)) > 0) {
+            position += count;
+            dest.position(position);
+        }
+
+        return position - start;
+    }
+
+
+    /**
+     * Acquires the second buffer which is only needed for the parallel hashing
+     *
+     * @param bufferSize the size of the buffer
+     * @param parallelHashing true in case of parallel hashing
+     * @return the buffer or null
+     */
+    private PooledByteBuffer acquireSecondBuffer(int bufferSize, boolean parallelHashing) {
+        if (!parallelHashing) {
+            return null;
+        }
+
+        return ByteBufferPool.getInstance().acquire(bufferSize, true);
+    }
+
+
+    /**
+     * Reads from the source channel until the buffer is full or EOF is reached
+     *
+     * @param src the source channel
+     * @param buffer the buffer
+     * @return true if EOF is reached
+     * @exception IOException in case of error
+     */
+    private boolean fill(ReadableByteChannel src, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (src.read(buffer) < 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Close the channel and ignore errors
+     *
+     * @param channel the channel
+     */
+    private void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // NOP
+        }
+    }
+
+
+    /**
+     * Checks if the thread was interrupted during the bandwidth check
+     *
+     * @param interrupted the result of the bandwidth check
+     * @exception InterruptedIOException in case the thread was interrupted
+     */
+    private void checkInterrupted(boolean interrupted) throws InterruptedIOException {
+        if (interrupted) {
+            throw new InterruptedIOException("Interrupted while throttling the bandwidth!");
+        }
+    }
+
+
+    /**
+     * Updates the message digests and checksums with the remaining bytes of the given buffer
+     *
+     * @param chunk the chunk
+     * @param messageDigests the message digests
+     * @param checksums the checksums
+     */
+    private void update(ByteBuffer chunk, List<MessageDigest> messageDigests, List<Checksum> checksums) {
+        for (MessageDigest messageDigest : messageDigests) {
+            messageDigest.update(chunk.duplicate());
+        }
+
+        for (Checksum checksum : checksums) {
+            checksum.update(chunk.duplicate());
+        }
+    }
+
+
+    /**
+     * Waits until the given hashing task is completed
+     *
+     * @param future the future or null
+     * @exception IOException in case the hashing failed or the thread was interrupted
+     */
+    private void await(Future<?> future) throws IOException {
+        if (future == null) {
+            return;
+        }
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the hashing!");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not calculate the digest: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+
+    /**
+     * Waits until the given hashing task is completed, its result and an interruption are ignored
+     *
+     * @param future the future or null
+     */
+    private void awaitQuietly(Future<?> future) {
+        if (future == null) {
+            return;
+        }
+
+        boolean interrupted = false;
+        boolean done = false;
+        while (!done) {
+            try {
+                future.get();
+                done = true;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                done = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Copies the data by the given buffer until EOF on src. 
+     *
+     * @param src the source channel
+     * @param dest the destination channel
+     * @param buffer the buffer
+     * @return the copied bytes
+     * @exception IOException in case of error
+     */
+    private long bufferCopy(ReadableByteChannel src, WritableByteChannel dest, ByteBuffer buffer) throws IOException {
+        long size = 0;
+        while (src.read(buffer) != -1) {
+            // prepare the buffer to be drained
+            buffer.flip();
+
+            // write to the channel, may block
+            size += dest.write(buffer);
+
+            // If partial transfer, shift remainder down
+            // If buffer is empty, same as doing clear()
+            buffer.compact();
+        }
+
+        // EOF will leave buffer in fill state
+        buffer.flip();
+
+        // make sure the buffer is fully drained.
+        while (buffer.hasRemaining()) {
+            size += dest.write(buffer);
+        }
+
+        return size;
     }
 }
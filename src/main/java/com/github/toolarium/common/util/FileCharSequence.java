@@ -0,0 +1,526 @@
+/*
+ * FileCharSequence.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Defines a lazily decoded file content. The file is decoded in blocks on demand by one reused {@link CharsetDecoder},
+ * only a few decoded blocks are kept in memory. Sequential access (e.g. by a regular expression) decodes every block
+ * once, the memory usage doesn't depend on the file size. The content can also be consumed as a stream of decoded
+ * chunks or lines.
+ *
+ * <p>In the memory mapped mode the file is mapped read-only and the blocks are decoded directly from the mapping,
+ * otherwise they are read by positional reads. Files larger than 2 GB are always read by positional reads. The
+ * instance is not thread safe and has to be closed after usage. Malformed input is replaced like by
+ * {@link String#String(byte[], Charset)}.</p>
+ *
+ * <p>Every block is decoded on its own. The byte order of UTF-16 and UTF-32, which is detected by the byte order mark
+ * at the start of the file, is kept for the following blocks. Charsets which switch their state by escape sequences
+ * within the content (e.g. ISO-2022) are not supported.</p>
+ *
+ * @author patrick
+ */
+public class FileCharSequence implements CharSequence, Closeable {
+    /** The default block size in bytes */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int MIN_BLOCK_SIZE = 16;
+    private static final int CACHED_BLOCKS = 4;
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer mapping;
+    private final long fileSize;
+    private final int blockSize;
+    private final CharsetDecoder decoder;
+    private final CharsetDecoder followingDecoder;
+    private final Map<Integer, CharBuffer> blockCache;
+    private ByteBuffer readBuffer;
+    private long[] blockByteStart;
+    private long[] blockCharStart;
+    private int knownBlocks;
+    private boolean complete;
+    private int currentBlock;
+    private int currentStart;
+    private CharBuffer currentChars;
+
+
+    /**
+     * Constructor for FileCharSequence
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param memoryMapped true to map the file into the memory
+     * @param blockSize the block size in bytes
+     * @throws IOException In case of an IO error
+     */
+    FileCharSequence(Path file, Charset charset, boolean memoryMapped, int blockSize) throws IOException {
+        this.file = file;
+        this.blockSize = Math.max(MIN_BLOCK_SIZE, blockSize);
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.blockCache = new LinkedHashMap<Integer, CharBuffer>(CACHED_BLOCKS + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CharBuffer> eldest) {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.fileSize = fileChannel.size();
+            if (memoryMapped && fileSize <= Integer.MAX_VALUE) {
+                this.mapping = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+                this.channel = null;
+                fileChannel.close();
+            } else {
+                this.mapping = null;
+                this.channel = fileChannel;
+            }
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+
+        try {
+            this.followingDecoder = getFollowingCharset(charset, readBytes(0, (int) Math.min(4, fileSize))).newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        this.blockByteStart = new long[16];
+        this.blockCharStart = new long[16];
+        this.knownBlocks = 1;
+        this.complete = fileSize == 0;
+        this.currentBlock = -1;
+        this.currentStart = 0;
+        this.currentChars = null;
+    }
+
+
+    /**
+     * Gets the file
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+
+    /**
+     * Check if the file is memory mapped
+     *
+     * @return true if the file is memory mapped
+     */
+    public boolean isMemoryMapped() {
+        return mapping != null;
+    }
+
+
+    /**
+     * Gets the length. The first call decodes the whole file once.
+     *
+     * @see java.lang.CharSequence#length()
+     * @throws IllegalStateException in case the file has more characters than a char sequence supports
+     */
+    @Override
+    public int length() {
+        while (!complete) {
+            decodeBlock(knownBlocks - 1);
+        }
+
+        long length = blockCharStart[knownBlocks - 1];
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The file " + file + " has too many characters (" + length + ")!");
+        }
+
+        return (int) length;
+    }
+
+
+    /**
+     * @see java.lang.CharSequence#charAt(int)
+     */
+    @Override
+    public char charAt(int index) {
+        if (currentChars == null || index < currentStart || index >= currentStart + currentChars.limit()) {
+            selectBlock(index);
+        }
+
+        return currentChars.get(index - currentStart);
+    }
+
+
+    /**
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + "]!");
+        }
+
+        StringBuilder builder = new StringBuilder(end - start);
+        int index = start;
+        while (index < end) {
+            charAt(index);
+            int blockEnd = Math.min(end, currentStart + currentChars.limit());
+            builder.append(currentChars, index - currentStart, blockEnd - currentStart);
+            index = blockEnd;
+        }
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Gets the decoded blocks as stream. Every element is a read-only buffer of one block, the stream is sequential.
+     *
+     * @return the stream of the decoded blocks
+     */
+    public Stream<CharBuffer> chunks() {
+        Spliterator<CharBuffer> spliterator = new Spliterators.AbstractSpliterator<CharBuffer>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int block = 0;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super CharBuffer> action) {
+                CharBuffer chars = getBlock(block);
+                if (chars == null) {
+                    return false;
+                }
+
+                block++;
+                action.accept(chars.asReadOnlyBuffer());
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
+
+    /**
+     * Gets the lines as stream. The lines are terminated like by {@link java.io.BufferedReader#readLine()}: by a line
+     * feed, a carriage return or a carriage return followed by a line feed.
+     *
+     * @return the stream of the lines
+     */
+    public Stream<String> lines() {
+        Spliterator<String> spliterator = new Spliterators.AbstractSpliterator<String>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final StringBuilder line = new StringBuilder();
+            private int block = 0;
+            private CharBuffer chars = null;
+            private int position = 0;
+            private boolean skipLineFeed = false;
+            private boolean eof = false;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                while (!eof) {
+                    if (chars == null || position >= chars.limit()) {
+                        chars = getBlock(block);
+                        position = 0;
+                        if (chars == null) {
+                            eof = true;
+                            if (line.length() > 0) {
+                                action.accept(line.toString());
+                                line.setLength(0);
+                                return true;
+                            }
+                            return false;
+                        }
+                        block++;
+                    }
+
+                    if (skipLineFeed && position < chars.limit()) {
+                        skipLineFeed = false;
+                        if (chars.get(position) == '\n') {
+                            position++;
+                        }
+                    }
+
+                    int start = position;
+                    while (position < chars.limit()) {
+                        char c = chars.get(position);
+                        if (c == '\n' || c == '\r') {
+                            line.append(chars, start, position);
+                            skipLineFeed = c == '\r';
+                            position++;
+                            action.accept(line.toString());
+                            line.setLength(0);
+                            return true;
+                        }
+                        position++;
+                    }
+
+                    line.append(chars, start, position);
+                }
+
+                return false;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
+
+    /**
+     * Close the file
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        blockCache.clear();
+        currentChars = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Gets the whole content as string
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+
+    /**
+     * Select the block which contains the character index as current block
+     *
+     * @param index the character index
+     * @throws IndexOutOfBoundsException in case the index is out of range
+     */
+    private void selectBlock(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + "!");
+        }
+
+        // decode forward until the block is known
+        while (!complete && index >= blockCharStart[knownBlocks - 1]) {
+            decodeBlock(knownBlocks - 1);
+        }
+
+        if (index >= blockCharStart[knownBlocks - 1]) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", length " + blockCharStart[knownBlocks - 1] + "!");
+        }
+
+        int block = Arrays.binarySearch(blockCharStart, 0, knownBlocks, index);
+        if (block < 0) {
+            block = -block - 2;
+        }
+
+        // skip empty blocks
+        while (block + 1 < knownBlocks && blockCharStart[block + 1] <= index) {
+            block++;
+        }
+
+        currentChars = getBlock(block);
+        currentBlock = block;
+        currentStart = (int) blockCharStart[block];
+    }
+
+
+    /**
+     * Gets a decoded block
+     *
+     * @param block the block number
+     * @return the decoded block or null if the block is after the end of the file
+     */
+    private CharBuffer getBlock(int block) {
+        if (block == currentBlock && currentChars != null) {
+            return currentChars;
+        }
+
+        while (!complete && block >= knownBlocks - 1) {
+            CharBuffer chars = decodeBlock(knownBlocks - 1);
+            if (block < knownBlocks - 1) {
+                return chars;
+            }
+        }
+
+        if (block >= knownBlocks - 1) {
+            return null;
+        }
+
+        CharBuffer chars = blockCache.get(block);
+        if (chars == null) {
+            chars = decodeBlock(block);
+        }
+
+        return chars;
+    }
+
+
+    /**
+     * Decode a block, the start of the block has to be known. The start of the next block is recorded.
+     *
+     * @param block the block number
+     * @return the decoded block
+     * @throws UncheckedIOException In case of an IO error
+     */
+    private CharBuffer decodeBlock(int block) {
+        long start = blockByteStart[block];
+        int length = (int) Math.min(blockSize, fileSize - start);
+        boolean endOfInput = start + length >= fileSize;
+
+        ByteBuffer bytes;
+        try {
+            bytes = readBytes(start, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // only the first block is decoded by the decoder which detects the byte order mark
+        CharsetDecoder blockDecoder = followingDecoder;
+        if (block == 0) {
+            blockDecoder = decoder;
+        }
+
+        int bytesStart = bytes.position();
+        CharBuffer chars = CharBuffer.allocate((int) (length * (double) blockDecoder.maxCharsPerByte()) + 1);
+        blockDecoder.reset();
+        CoderResult result = blockDecoder.decode(bytes, chars, endOfInput);
+        if (endOfInput && !result.isError()) {
+            result = blockDecoder.flush(chars);
+        }
+
+        if (result.isError() || result.isOverflow()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        chars.flip();
+        blockCache.put(block, chars);
+
+        if (block == knownBlocks - 1 && !complete) {
+            if (endOfInput) {
+                addBlock(fileSize, blockCharStart[block] + chars.limit());
+                complete = true;
+            } else {
+                // an incomplete character at the end belongs to the next block
+                addBlock(start + bytes.position() - bytesStart, blockCharStart[block] + chars.limit());
+            }
+        }
+
+        return chars;
+    }
+
+
+    /**
+     * Read the bytes of a block
+     *
+     * @param position the position in the file
+     * @param length the number of bytes
+     * @return the bytes
+     * @throws IOException In case of an IO error
+     */
+    private ByteBuffer readBytes(long position, int length) throws IOException {
+        if (mapping != null) {
+            ByteBuffer bytes = mapping.duplicate();
+            bytes.limit((int) position + length).position((int) position);
+            return bytes;
+        }
+
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocate(blockSize);
+        }
+
+        readBuffer.clear().limit(length);
+        while (readBuffer.hasRemaining()) {
+            if (channel.read(readBuffer, position + readBuffer.position()) < 0) {
+                break;
+            }
+        }
+
+        readBuffer.flip();
+        return readBuffer;
+    }
+
+
+    /**
+     * Gets the charset to decode the blocks after the first block. The byte order of UTF-16 and UTF-32 depends on the
+     * byte order mark at the start of the file, which is only part of the first block.
+     *
+     * @param charset the charset
+     * @param start the first bytes of the file
+     * @return the charset of the following blocks
+     */
+    static Charset getFollowingCharset(Charset charset, ByteBuffer start) {
+        int position = start.position();
+        boolean littleEndian = start.remaining() >= 2 && (start.get(position) & 0xFF) == 0xFF && (start.get(position + 1) & 0xFF) == 0xFE;
+        String name = charset.name();
+        if ("UTF-16".equals(name) && littleEndian) {
+            return StandardCharsets.UTF_16LE;
+        } else if ("UTF-16".equals(name)) {
+            return StandardCharsets.UTF_16BE;
+        } else if ("x-UTF-16LE-BOM".equals(name)) {
+            return StandardCharsets.UTF_16LE;
+        } else if ("UTF-32".equals(name) && littleEndian && start.remaining() >= 4 && start.get(position + 2) == 0 && start.get(position + 3) == 0) {
+            return Charset.forName("UTF-32LE");
+        } else if ("UTF-32".equals(name)) {
+            return Charset.forName("UTF-32BE");
+        } else if ("X-UTF-32LE-BOM".equals(name)) {
+            return Charset.forName("UTF-32LE");
+        } else if ("X-UTF-32BE-BOM".equals(name)) {
+            return Charset.forName("UTF-32BE");
+        }
+
+        return charset;
+    }
+
+
+    /**
+     * Add the start of the next block
+     *
+     * @param byteStart the byte position
+     * @param charStart the character position
+     */
+    private void addBlock(long byteStart, long charStart) {
+        if (knownBlocks == blockByteStart.length) {
+            blockByteStart = Arrays.copyOf(blockByteStart, knownBlocks * 2);
+            blockCharStart = Arrays.copyOf(blockCharStart, knownBlocks * 2);
+        }
+
+        blockByteStart[knownBlocks] = byteStart;
+        blockCharStart[knownBlocks] = charStart;
+        knownBlocks++;
+    }
+}
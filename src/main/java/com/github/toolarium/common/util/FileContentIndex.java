@@ -0,0 +1,649 @@
+/*
+ * FileContentIndex.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Defines a trigram index of the file content of a directory tree. For every regular file the set of all three byte
+ * sequences (trigrams) of the content is kept, keyed by the relative path, the size and the last modification time.
+ * An update only reads the files which were added or whose size or modification time changed and removes the deleted
+ * files. The index can be stored in a file to be reused by later runs.
+ *
+ * <p>The literal parts of a regular expression give the trigrams which a matching file must contain. Only the files
+ * which contain all of them are candidates, which have to be verified by the regular expression. Patterns where no
+ * required trigrams can be derived (e.g. alternations or flags) return all files as candidates. The trigrams are
+ * calculated on the bytes, the index assumes UTF-8 encoded files and is case sensitive.</p>
+ *
+ * @author patrick
+ */
+public class FileContentIndex {
+    /** The maximal number of distinct trigrams per file, files with more trigrams are always candidates */
+    public static final int DEFAULT_MAX_TRIGRAMS = 1 << 18;
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileContentIndex.class);
+    private static final int MAGIC = 0x54475849;
+    private static final int VERSION = 1;
+    private static final int NOT_INDEXED = -1;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private final Path rootDir;
+    private final Path indexFile;
+    private final int maxTrigrams;
+    private final Map<String, Entry> entries;
+    private BitSet trigramSet;
+    private boolean modified;
+
+
+    /**
+     * Constructor for FileContentIndex, the index is only kept in memory.
+     *
+     * @param rootDir the root directory
+     */
+    public FileContentIndex(Path rootDir) {
+        this(rootDir, null);
+    }
+
+
+    /**
+     * Constructor for FileContentIndex. An existing index file is loaded, in case it can't be read the index is rebuilt
+     * by the next update.
+     *
+     * @param rootDir the root directory
+     * @param indexFile the index file or null to keep the index only in memory
+     */
+    public FileContentIndex(Path rootDir, Path indexFile) {
+        this(rootDir, indexFile, DEFAULT_MAX_TRIGRAMS);
+    }
+
+
+    /**
+     * Constructor for FileContentIndex
+     *
+     * @param rootDir the root directory
+     * @param indexFile the index file or null to keep the index only in memory
+     * @param maxTrigrams the maximal number of distinct trigrams per file
+     */
+    public FileContentIndex(Path rootDir, Path indexFile, int maxTrigrams) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+        this.maxTrigrams = maxTrigrams;
+        this.entries = new TreeMap<String, Entry>();
+        this.modified = false;
+
+        if (indexFile != null && Files.isRegularFile(indexFile)) {
+            try {
+                load();
+            } catch (IOException e) {
+                LOG.warn("Could not read the index file " + indexFile + ", it will be rebuilt: " + e.getMessage());
+                entries.clear();
+            }
+        }
+    }
+
+
+    /**
+     * Gets the root directory
+     *
+     * @return the root directory
+     */
+    public Path getRootDir() {
+        return rootDir;
+    }
+
+
+    /**
+     * Gets the number of indexed files
+     *
+     * @return the number of indexed files
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Update the index: new and changed files (size or modification time) are read, deleted files are removed. In case
+     * of an index file and any change it is stored.
+     *
+     * @return the number of read files
+     * @throws IOException In case of an IO error
+     */
+    public synchronized int update() throws IOException {
+        Set<String> existingFiles = new HashSet<String>();
+        int[] counter = new int[1];
+
+        if (Files.isDirectory(rootDir)) {
+            Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!attrs.isRegularFile() || isIndexFile(file)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    String key = toKey(file);
+                    existingFiles.add(key);
+
+                    long lastModified = attrs.lastModifiedTime().toMillis();
+                    Entry entry = entries.get(key);
+                    if (entry == null || entry.size != attrs.size() || entry.lastModified != lastModified) {
+                        entries.put(key, new Entry(attrs.size(), lastModified, readTrigrams(file)));
+                        counter[0]++;
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (!existingFiles.contains(it.next())) {
+                it.remove();
+                modified = true;
+            }
+        }
+
+        if (counter[0] > 0) {
+            modified = true;
+        }
+
+        // the bit set is only needed during the update
+        trigramSet = null;
+
+        if (modified && indexFile != null) {
+            save();
+        }
+
+        return counter[0];
+    }
+
+
+    /**
+     * Gets the candidate files of a regular expression: the files which contain all trigrams of the literal parts of the
+     * expression and the files which were not indexed. The index is not updated.
+     *
+     * @param regex the regular expression
+     * @return the sorted candidate files
+     */
+    public synchronized List<Path> getCandidates(String regex) {
+        int[] requiredTrigrams = getRequiredTrigrams(regex);
+
+        List<Path> candidates = new ArrayList<Path>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().containsAll(requiredTrigrams)) {
+                candidates.add(rootDir.resolve(e.getKey()));
+            }
+        }
+
+        return candidates;
+    }
+
+
+    /**
+     * Store the index into the index file. The file is written into a temporary file which replaces the index file by
+     * an atomic move.
+     *
+     * @throws IOException In case of an IO error
+     * @throws IllegalStateException In case the index has no index file
+     */
+    public synchronized void save() throws IOException {
+        if (indexFile == null) {
+            throw new IllegalStateException("No index file defined!");
+        }
+
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, "." + indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+
+                byte[] buffer = new byte[0];
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    if (entry.trigrams == null) {
+                        out.writeInt(NOT_INDEXED);
+                    } else {
+                        out.writeInt(entry.trigrams.length);
+                        if (buffer.length < entry.trigrams.length * 5) {
+                            buffer = new byte[entry.trigrams.length * 5];
+                        }
+
+                        int length = ByteUtil.getInstance().encodeDeltaVarInt(entry.trigrams, 0, entry.trigrams.length, buffer, 0);
+                        out.writeInt(length);
+                        out.write(buffer, 0, length);
+                    }
+                }
+            }
+
+            try {
+                Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            modified = false;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FileContentIndex [rootDir=" + rootDir + ", indexFile=" + indexFile + ", size=" + size() + "]";
+    }
+
+
+    /**
+     * Gets the trigrams which a matching text of the regular expression must contain. The expression is analyzed
+     * conservatively: only the literal sequences outside of groups and character classes are considered, characters
+     * followed by an optional quantifier are skipped.
+     *
+     * @param regex the regular expression
+     * @return the sorted trigrams, empty in case no trigrams can be derived
+     */
+    static int[] getRequiredTrigrams(String regex) {
+        List<String> literals = getRequiredLiterals(regex);
+        if (literals == null || literals.isEmpty()) {
+            return new int[0];
+        }
+
+        BitSet trigrams = new BitSet();
+        for (String literal : literals) {
+            byte[] data = literal.getBytes(StandardCharsets.UTF_8);
+            for (int i = 2; i < data.length; i++) {
+                trigrams.set(((data[i - 2] & 0xFF) << 16) | ((data[i - 1] & 0xFF) << 8) | (data[i] & 0xFF));
+            }
+        }
+
+        return trigrams.stream().toArray();
+    }
+
+
+    /**
+     * Gets the literal sequences which a matching text of the regular expression must contain.
+     *
+     * @param regex the regular expression
+     * @return the literal sequences or null in case the expression can't be analyzed
+     */
+    static List<String> getRequiredLiterals(String regex) {
+        if (regex == null) {
+            return null;
+        }
+
+        // the same as the compiled expression, see RegularExpressionUtil
+        String expression = regex.trim();
+        List<String> literals = new ArrayList<String>();
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= expression.length()) {
+                    return null;
+                }
+
+                char next = expression.charAt(i + 1);
+                if (next == 'Q') {
+                    int end = expression.indexOf("\\E", i + 2);
+                    if (end < 0) {
+                        end = expression.length();
+                    }
+
+                    if (depth == 0) {
+                        run.append(expression, i + 2, end);
+                    }
+                    i = end + 2;
+                } else if (Character.isLetterOrDigit(next)) {
+                    // character classes, control characters, code points and back references
+                    addLiteral(literals, run);
+                    i = skipEscape(expression, i);
+                } else {
+                    if (depth == 0) {
+                        run.append(next);
+                    }
+                    i += 2;
+                }
+            } else if (c == '[') {
+                addLiteral(literals, run);
+                i = skipCharacterClass(expression, i);
+            } else if (c == '(') {
+                addLiteral(literals, run);
+                if (depth == 0 && expression.startsWith("(?", i) && i + 2 < expression.length() && ":=<>".indexOf(expression.charAt(i + 2)) < 0) {
+                    // flags, negative look ahead and other constructs
+                    return null;
+                }
+                depth++;
+                i++;
+            } else if (c == ')') {
+                addLiteral(literals, run);
+                depth--;
+                i++;
+            } else if (c == '|') {
+                if (depth == 0) {
+                    return null;
+                }
+                i++;
+            } else if (c == '?' || c == '*' || c == '{') {
+                // the previous character is optional
+                if (run.length() > 0) {
+                    run.setLength(run.length() - Character.charCount(run.codePointBefore(run.length())));
+                }
+                addLiteral(literals, run);
+                if (c == '{') {
+                    i = expression.indexOf('}', i);
+                    if (i < 0) {
+                        return null;
+                    }
+                }
+                i++;
+            } else if (c == '+' || c == '.' || c == '^' || c == '$') {
+                addLiteral(literals, run);
+                i++;
+            } else {
+                if (depth == 0) {
+                    run.append(c);
+                }
+                i++;
+            }
+        }
+
+        addLiteral(literals, run);
+        return literals;
+    }
+
+
+    /**
+     * Adds the literal run to the list and clears it
+     *
+     * @param literals the literals
+     * @param run the current run
+     */
+    private static void addLiteral(List<String> literals, StringBuilder run) {
+        if (run.length() >= 3) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+
+    /**
+     * Skip a character class
+     *
+     * @param regex the regular expression
+     * @param start the start index (opening bracket)
+     * @return the index after the closing bracket
+     */
+    private static int skipCharacterClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                depth++;
+                i++;
+
+                // a closing bracket at the first position is a literal
+                if (i < regex.length() && regex.charAt(i) == '^') {
+                    i++;
+                }
+                if (i < regex.length() && regex.charAt(i) == ']') {
+                    i++;
+                }
+            } else if (c == ']') {
+                depth--;
+                i++;
+                if (depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Skip an escape sequence which starts with a letter or a digit
+     *
+     * @param regex the regular expression
+     * @param start the start index (backslash)
+     * @return the index after the escape sequence
+     */
+    private static int skipEscape(String regex, int start) {
+        int i = start + 2;
+        char c = regex.charAt(start + 1);
+        if (c == 'x' && i < regex.length() && regex.charAt(i) == '{') {
+            return skipTo(regex, i, '}');
+        } else if (c == 'x') {
+            return Math.min(regex.length(), i + 2);
+        } else if (c == 'u') {
+            return Math.min(regex.length(), i + 4);
+        } else if (c == 'c') {
+            return Math.min(regex.length(), i + 1);
+        } else if ((c == 'p' || c == 'P' || c == 'N') && i < regex.length() && regex.charAt(i) == '{') {
+            return skipTo(regex, i, '}');
+        } else if (c == 'p' || c == 'P') {
+            return Math.min(regex.length(), i + 1);
+        } else if (c == 'k' && i < regex.length() && regex.charAt(i) == '<') {
+            return skipTo(regex, i, '>');
+        } else if (c >= '0' && c <= '9') {
+            // octal values and back references, all following digits are skipped
+            while (i < regex.length() && regex.charAt(i) >= '0' && regex.charAt(i) <= '9') {
+                i++;
+            }
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Skip to the index after the given end character
+     *
+     * @param regex the regular expression
+     * @param start the start index
+     * @param end the end character
+     * @return the index after the end character or the length of the expression
+     */
+    private static int skipTo(String regex, int start, char end) {
+        int i = regex.indexOf(end, start);
+        if (i < 0) {
+            return regex.length();
+        }
+
+        return i + 1;
+    }
+
+
+    /**
+     * Read the distinct trigrams of a file
+     *
+     * @param file the file
+     * @return the sorted trigrams or null in case the file is not indexed
+     */
+    private int[] readTrigrams(Path file) {
+        if (trigramSet == null) {
+            trigramSet = new BitSet(1 << 24);
+        } else {
+            trigramSet.clear();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            int trigram = 0;
+            long position = 0;
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    trigram = ((trigram << 8) | (buffer.get() & 0xFF)) & 0xFFFFFF;
+                    position++;
+                    if (position >= 3) {
+                        trigramSet.set(trigram);
+                    }
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            LOG.debug("Could not index the file " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        if (trigramSet.cardinality() > maxTrigrams) {
+            return null;
+        }
+
+        return trigramSet.stream().toArray();
+    }
+
+
+    /**
+     * Check if the file is the index file or one of its temporary files
+     *
+     * @param file the file
+     * @return true if it is the index file
+     */
+    private boolean isIndexFile(Path file) {
+        if (indexFile == null) {
+            return false;
+        }
+
+        Path absoluteIndexFile = indexFile.toAbsolutePath().normalize();
+        String name = file.getFileName().toString();
+        return file.equals(absoluteIndexFile)
+               || (file.getParent().equals(absoluteIndexFile.getParent()) && name.startsWith("." + absoluteIndexFile.getFileName().toString()) && name.endsWith(".tmp"));
+    }
+
+
+    /**
+     * Gets the key of a file: the relative path with slashes
+     *
+     * @param file the file
+     * @return the key
+     */
+    private String toKey(Path file) {
+        return rootDir.relativize(file).toString().replace(FileUtil.BACKSLASH, FileUtil.SLASH);
+    }
+
+
+    /**
+     * Load the index file
+     *
+     * @throws IOException In case of an IO error
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Invalid index file format!");
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int[] trigrams = null;
+                int trigramCount = in.readInt();
+                if (trigramCount != NOT_INDEXED) {
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    trigrams = new int[trigramCount];
+                    ByteUtil.getInstance().decodeDeltaVarInt(data, 0, data.length, trigrams, 0, trigramCount);
+                }
+
+                entries.put(key, new Entry(size, lastModified, trigrams));
+            }
+        }
+    }
+
+
+    /**
+     * The index entry of a file.
+     *
+     * @author patrick
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final int[] trigrams;
+
+
+        /**
+         * Constructor for Entry
+         *
+         * @param size the file size
+         * @param lastModified the last modification time
+         * @param trigrams the sorted trigrams or null if the file is not indexed
+         */
+        Entry(long size, long lastModified, int[] trigrams) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.trigrams = trigrams;
+        }
+
+
+        /**
+         * Check if the file contains all given trigrams
+         *
+         * @param requiredTrigrams the sorted trigrams
+         * @return true if all trigrams are contained or the file is not indexed
+         */
+        boolean containsAll(int[] requiredTrigrams) {
+            if (trigrams == null) {
+                return true;
+            }
+
+            for (int trigram : requiredTrigrams) {
+                if (Arrays.binarySearch(trigrams, trigram) < 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
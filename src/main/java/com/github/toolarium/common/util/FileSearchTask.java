@@ -0,0 +1,108 @@
+/*
+ * FileSearchTask.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Searches the files of a directory and forks a task for every sub directory, it is used by the {@link FileUtil}
+ * in a fork join pool: idle threads steal the tasks of the sub directories. The search stops as soon as the
+ * maximal number of results is reached.
+ *
+ * @author patrick
+ */
+class FileSearchTask extends RecursiveAction {
+    private static final long serialVersionUID = -2863218549061379263L;
+    private final transient Path directory;
+    private final String fileExtension;
+    private final transient IFileContentMatcher matcher;
+    private final transient Queue<Path> result;
+    private final AtomicInteger resultCounter;
+    private final int maxResults;
+
+
+    /**
+     * Constructor for FileSearchTask
+     *
+     * @param directory the directory
+     * @param fileExtension the file extension or null
+     * @param matcher the content matcher
+     * @param result the result queue
+     * @param resultCounter the counter of the results
+     * @param maxResults the maximal number of results, a value less or equal 0 means no limit
+     */
+    FileSearchTask(Path directory, String fileExtension, IFileContentMatcher matcher, Queue<Path> result, AtomicInteger resultCounter, int maxResults) {
+        this.directory = directory;
+        this.fileExtension = fileExtension;
+        this.matcher = matcher;
+        this.result = result;
+        this.resultCounter = resultCounter;
+        this.maxResults = maxResults;
+    }
+
+
+    /**
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+        List<FileSearchTask> subTasks = new ArrayList<FileSearchTask>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (isLimitReached()) {
+                    break;
+                }
+
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    FileSearchTask subTask = new FileSearchTask(path, fileExtension, matcher, result, resultCounter, maxResults);
+                    subTask.fork();
+                    subTasks.add(subTask);
+                } else if (FileUtil.getInstance().isMatchingFile(path, fileExtension) && matcher.matches(path)) {
+                    addResult(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (FileSearchTask subTask : subTasks) {
+            subTask.join();
+        }
+    }
+
+
+    /**
+     * Check if the maximal number of results is reached
+     *
+     * @return true if the limit is reached
+     */
+    private boolean isLimitReached() {
+        return maxResults > 0 && resultCounter.get() >= maxResults;
+    }
+
+
+    /**
+     * Add a result as long as the limit is not reached
+     *
+     * @param path the path
+     */
+    private void addResult(Path path) {
+        if (maxResults <= 0 || resultCounter.incrementAndGet() <= maxResults) {
+            result.add(path);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * FileTreeResult.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.Serializable;
+
+
+/**
+ * The result or the intermediate progress of an operation on a directory tree: the number of processed files, 
+ * directories and bytes, the used time and the achieved throughput.
+ *
+ * @author patrick
+ */
+public class FileTreeResult implements Serializable {
+    private static final long serialVersionUID = -3462851175931647022L;
+    private final long files;
+    private final long directories;
+    private final long bytes;
+    private final long durationNanos;
+
+
+    /**
+     * Constructor for FileTreeResult
+     *
+     * @param files the number of processed files
+     * @param directories the number of processed directories
+     * @param bytes the number of processed bytes
+     * @param durationNanos the duration in nano seconds
+     */
+    public FileTreeResult(long files, long directories, long bytes, long durationNanos) {
+        this.files = files;
+        this.directories = directories;
+        this.bytes = bytes;
+        this.durationNanos = durationNanos;
+    }
+
+
+    /**
+     * Gets the number of processed files
+     *
+     * @return the number of processed files
+     */
+    public long getFiles() {
+        return files;
+    }
+
+
+    /**
+     * Gets the number of processed directories
+     *
+     * @return the number of processed directories
+     */
+    public long getDirectories() {
+        return directories;
+    }
+
+
+    /**
+     * Gets the number of processed bytes
+     *
+     * @return the number of processed bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * Gets the duration in nano seconds
+     *
+     * @return the duration in nano seconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+
+    /**
+     * Gets the duration in milliseconds
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDuration() {
+        return durationNanos / 1_000_000L;
+    }
+
+
+    /**
+     * Gets the achieved throughput of files and directories
+     *
+     * @return the number of files and directories per second
+     */
+    public long getFilesPerSecond() {
+        if (durationNanos <= 0) {
+            return files + directories;
+        }
+
+        return (long) ((files + directories) * 1_000_000_000.0d / durationNanos);
+    }
+
+
+    /**
+     * Gets the achieved throughput of bytes
+     *
+     * @return the bytes per second
+     */
+    public long getBytesPerSecond() {
+        if (durationNanos <= 0) {
+            return bytes;
+        }
+
+        return (long) (bytes * 1_000_000_000.0d / durationNanos);
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FileTreeResult [files=" + files + ", directories=" + directories + ", bytes=" + bytes + ", duration=" + getDuration() 
+               + "ms, filesPerSecond=" + getFilesPerSecond() + ", bytesPerSecond=" + getBytesPerSecond() + "]";
+    }
+}
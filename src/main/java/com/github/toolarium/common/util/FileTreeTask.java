@@ -0,0 +1,220 @@
+/*
+ * FileTreeTask.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+
+/**
+ * Deletes or copies the entries of a directory and forks a task for every sub directory, it is used by the
+ * {@link FileUtil} in a bounded fork join pool: idle threads steal the tasks of the sub directories. The entries of a
+ * directory are read by {@link Files#walkFileTree(Path, java.util.Set, int, java.nio.file.FileVisitor)} with depth one,
+ * which provides the attributes without an additional access. A deleted directory is removed after its sub directories,
+ * a copied directory gets the modification time of the source after its content is copied.
+ *
+ * @author patrick
+ */
+class FileTreeTask extends RecursiveAction {
+    private static final long serialVersionUID = 5203766457310916245L;
+    private final transient Path directory;
+    private final transient Path targetDirectory;
+    private final transient FileTime lastModifiedTime;
+    private final transient Context context;
+
+
+    /**
+     * Constructor for FileTreeTask
+     *
+     * @param directory the directory
+     * @param targetDirectory the target directory or null to delete the directory
+     * @param lastModifiedTime the modification time of the directory
+     * @param context the context
+     */
+    FileTreeTask(Path directory, Path targetDirectory, FileTime lastModifiedTime, Context context) {
+        this.directory = directory;
+        this.targetDirectory = targetDirectory;
+        this.lastModifiedTime = lastModifiedTime;
+        this.context = context;
+    }
+
+
+    /**
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+        List<FileTreeTask> subTasks = new ArrayList<FileTreeTask>();
+        try {
+            if (targetDirectory != null) {
+                Files.createDirectories(targetDirectory);
+            }
+
+            Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isDirectory()) {
+                        FileTreeTask subTask = new FileTreeTask(path, resolveTarget(path), attrs.lastModifiedTime(), context);
+                        subTask.fork();
+                        subTasks.add(subTask);
+                    } else {
+                        processFile(path, attrs);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (FileTreeTask subTask : subTasks) {
+            subTask.join();
+        }
+
+        try {
+            if (targetDirectory == null) {
+                Files.delete(directory);
+            } else {
+                Files.setLastModifiedTime(targetDirectory, lastModifiedTime);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        context.directoryProcessed();
+    }
+
+
+    /**
+     * Delete or copy a file
+     *
+     * @param file the file
+     * @param attrs the attributes
+     * @throws IOException In case of an IO error
+     */
+    private void processFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (targetDirectory == null) {
+            Files.delete(file);
+        } else {
+            Files.copy(file, resolveTarget(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+        }
+
+        long size = 0;
+        if (attrs.isRegularFile()) {
+            size = attrs.size();
+        }
+
+        context.fileProcessed(size);
+    }
+
+
+    /**
+     * Resolve the target path of an entry
+     *
+     * @param path the path
+     * @return the target path or null in case of a deletion
+     */
+    private Path resolveTarget(Path path) {
+        if (targetDirectory == null) {
+            return null;
+        }
+
+        return targetDirectory.resolve(path.getFileName().toString());
+    }
+
+
+    /**
+     * The shared counters of the tasks of one operation.
+     *
+     * @author patrick
+     */
+    static final class Context {
+        /** The number of processed entries between two progress notifications */
+        static final int PROGRESS_INTERVAL = 1000;
+
+        private final Consumer<FileTreeResult> progressListener;
+        private final long startNanos;
+        private final LongAdder fileCounter;
+        private final LongAdder directoryCounter;
+        private final LongAdder byteCounter;
+        private final AtomicLong progressCounter;
+
+
+        /**
+         * Constructor for Context
+         *
+         * @param progressListener the progress listener or null
+         */
+        Context(Consumer<FileTreeResult> progressListener) {
+            this.progressListener = progressListener;
+            this.startNanos = System.nanoTime();
+            this.fileCounter = new LongAdder();
+            this.directoryCounter = new LongAdder();
+            this.byteCounter = new LongAdder();
+            this.progressCounter = new AtomicLong();
+        }
+
+
+        /**
+         * Count a processed file
+         *
+         * @param size the size of the file
+         */
+        void fileProcessed(long size) {
+            fileCounter.increment();
+            byteCounter.add(size);
+            notifyProgress();
+        }
+
+
+        /**
+         * Count a processed directory
+         */
+        void directoryProcessed() {
+            directoryCounter.increment();
+            notifyProgress();
+        }
+
+
+        /**
+         * Gets the current result
+         *
+         * @return the current result
+         */
+        FileTreeResult getResult() {
+            return new FileTreeResult(fileCounter.sum(), directoryCounter.sum(), byteCounter.sum(), System.nanoTime() - startNanos);
+        }
+
+
+        /**
+         * Notify the progress listener every {@link #PROGRESS_INTERVAL} processed entries
+         */
+        private void notifyProgress() {
+            if (progressListener != null && progressCounter.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                synchronized (this) {
+                    progressListener.accept(getResult());
+                }
+            }
+        }
+    }
+}
@@ -5,21 +5,53 @@
  */
 package com.github.toolarium.common.util;
 
+import com.github.toolarium.common.pool.ByteBufferPool;
+import com.github.toolarium.common.pool.PooledByteBuffer;
+import com.github.toolarium.common.watch.DirectoryWatcher;
+import com.github.toolarium.common.watch.IFileChangeListener;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 /**
@@ -294,7 +326,59 @@ public final class FileUtil {
         // the directory is now empty so delete it
         return removeFile(dir);
     }
-    
+
+
+    /**
+     * Deletes all files and sub directories under dir and dir itself in parallel. Every directory is processed by a task
+     * of a fork join pool with the given parallelism, idle threads steal the tasks of the sub directories. Symbolic links
+     * are deleted, not followed.
+     *
+     * @param dir the directory to delete
+     * @param parallelism the number of threads
+     * @param progressListener the progress listener or null, it gets the intermediate result every 1000 entries
+     * @return the number of deleted files and directories and the throughput
+     * @throws IOException In case of an IO error, some files may be deleted already
+     */
+    public FileTreeResult removeDirectory(Path dir, int parallelism, Consumer<FileTreeResult> progressListener) throws IOException {
+        return processDirectory(dir, null, parallelism, progressListener);
+    }
+
+
+    /**
+     * Copy a directory tree in parallel with the default parallelism, see
+     * {@link #copyDirectory(Path, Path, int, Consumer)}.
+     *
+     * @param sourceDir the source directory
+     * @param targetDir the target directory
+     * @return the number of copied files and directories and the throughput
+     * @throws IOException In case of an IO error
+     */
+    public FileTreeResult copyDirectory(Path sourceDir, Path targetDir) throws IOException {
+        return copyDirectory(sourceDir, targetDir, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+
+    /**
+     * Copy a directory tree in parallel. Every directory is processed by a task of a fork join pool with the given
+     * parallelism, idle threads steal the tasks of the sub directories. Existing files are replaced, the attributes are
+     * copied and symbolic links are copied as links.
+     *
+     * @param sourceDir the source directory
+     * @param targetDir the target directory, it is created if it doesn't exist
+     * @param parallelism the number of threads
+     * @param progressListener the progress listener or null, it gets the intermediate result every 1000 entries
+     * @return the number of copied files and directories and the throughput
+     * @throws IOException In case of an IO error
+     * @throws IllegalArgumentException in case the target directory is inside of the source directory
+     */
+    public FileTreeResult copyDirectory(Path sourceDir, Path targetDir, int parallelism, Consumer<FileTreeResult> progressListener) throws IOException {
+        if (targetDir.toAbsolutePath().normalize().startsWith(sourceDir.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("The target directory " + targetDir + " is inside of the source directory " + sourceDir + "!");
+        }
+
+        return processDirectory(sourceDir, targetDir, parallelism, progressListener);
+    }
+
     
     /**
      * Extract the path from an url
@@ -380,6 +464,54 @@ public final class FileUtil {
         return new String(Files.readAllBytes(file), charset);
     }
 
+
+    /**
+     * Read the file content as lazily decoded char sequence. In contrast to {@link #readFileContent(Path, Charset)}
+     * the content is not materialized, only a few decoded blocks are kept in memory. The char sequence has to be closed
+     * after usage.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param memoryMapped true to map the file into the memory, recommended for large read-only files
+     * @return the char sequence
+     * @throws IOException In case of an IO error
+     */
+    public FileCharSequence readFileContentAsCharSequence(Path file, Charset charset, boolean memoryMapped) throws IOException {
+        return new FileCharSequence(file, charset, memoryMapped, FileCharSequence.DEFAULT_BLOCK_SIZE);
+    }
+
+
+    /**
+     * Read the file content as stream of decoded chunks. The stream has to be closed after usage, e.g. by a
+     * try-with-resources statement.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param memoryMapped true to map the file into the memory, recommended for large read-only files
+     * @return the stream of the decoded chunks
+     * @throws IOException In case of an IO error
+     */
+    public Stream<CharBuffer> readFileContentAsStream(Path file, Charset charset, boolean memoryMapped) throws IOException {
+        FileCharSequence content = readFileContentAsCharSequence(file, charset, memoryMapped);
+        return content.chunks().onClose(() -> close(content));
+    }
+
+
+    /**
+     * Read the lines of a file as stream. The stream has to be closed after usage, e.g. by a try-with-resources
+     * statement.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param memoryMapped true to map the file into the memory, recommended for large read-only files
+     * @return the stream of the lines
+     * @throws IOException In case of an IO error
+     */
+    public Stream<String> readFileLines(Path file, Charset charset, boolean memoryMapped) throws IOException {
+        FileCharSequence content = readFileContentAsCharSequence(file, charset, memoryMapped);
+        return content.lines().onClose(() -> close(content));
+    }
+
     
     /**
      * Read file content from a url
@@ -447,7 +579,61 @@ public final class FileUtil {
      * @throws IOException In case of an IO error
      */
     public void writeFileContent(Path file, Charset charset, String content) throws IOException {
-        Files.write(file, content.getBytes(charset)); 
+        writeFileContent(file, charset, content, new FileWriteOption[0]);
+    }
+
+
+    /**
+     * Write the file content. The content is encoded in chunks into a pooled direct buffer and written by a file
+     * channel, there is no intermediate byte array of the whole content.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param content the content
+     * @param options the write options, e.g. {@link FileWriteOption#ATOMIC} and {@link FileWriteOption#SYNC}
+     * @throws IOException In case of an IO error
+     */
+    public void writeFileContent(Path file, Charset charset, CharSequence content, FileWriteOption... options) throws IOException {
+        boolean atomic = false;
+        boolean sync = false;
+        if (options != null) {
+            for (FileWriteOption option : options) {
+                if (option == FileWriteOption.ATOMIC) {
+                    atomic = true;
+                } else if (option == FileWriteOption.SYNC) {
+                    sync = true;
+                }
+            }
+        }
+
+        if (!atomic) {
+            write(file, charset, content, sync);
+            return;
+        }
+
+        Path tempFile = createTempFile(file);
+        try {
+            write(tempFile, charset, content, sync);
+            moveAtomically(tempFile, file);
+            if (sync) {
+                syncDirectory(file.toAbsolutePath().getParent());
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+
+    /**
+     * Create a group commit writer, which writes many files atomically and forces them together in batches. The writer
+     * has to be closed after usage.
+     *
+     * @param maxDelay the maximal time in milliseconds a write waits for further writes of the same batch
+     * @param maxBatchSize the maximal number of files of a batch
+     * @return the group commit writer
+     */
+    public GroupCommitFileWriter createGroupCommitWriter(long maxDelay, int maxBatchSize) {
+        return new GroupCommitFileWriter(maxDelay, maxBatchSize);
     }
 
     
@@ -466,7 +652,9 @@ public final class FileUtil {
 
     
     /**
-     * Search files
+     * Search files. Every file is read in chunks until the first match, the pattern is matched like on the whole 
+     * content: there is no limit of the match length, e.g. <code>(?s)BEGIN.*END</code> finds the whole file. A 
+     * file without a match may be kept completely in memory.
      *
      * @param rootDir the root path
      * @param fileExtension the file extension
@@ -476,25 +664,146 @@ public final class FileUtil {
      * @throws IllegalArgumentException if the search pattern is invalid
      */
     public List<Path> searchFiles(Path rootDir, String fileExtension, String searchContentPattern) throws IOException {
+        RegexFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8, 
+                                                                      RegexFileContentMatcher.DEFAULT_CHUNK_SIZE, RegexFileContentMatcher.UNLIMITED_OVERLAP);
+        return searchFiles(rootDir, fileExtension, matcher, false, 0);
+    }
+
+
+    /**
+     * Search files. Every file is read in chunks until the first match, so the memory usage doesn't depend on the 
+     * file size. Matches which span two chunks are only found up to a length of 8 KB characters, e.g. 
+     * <code>(?s)BEGIN.*END</code> doesn't find a file where END follows more than 8 KB after BEGIN. Use 
+     * {@link #searchFiles(Path, String, String)} to match the whole content without a limit. In the parallel mode the 
+     * directories are searched by a fork join pool, idle threads steal the search of the sub directories. The order 
+     * of the result is then sorted by path instead of the walk order.
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param searchContentPattern the search content pattern 
+     * @param parallel true to search the directories in parallel
+     * @param maxResults the maximal number of results, the search stops as soon as it is reached. A value less or 
+     *        equal 0 means no limit. In the parallel mode it is not defined which of the matching files are returned.
+     * @return the found files
+     * @throws IOException if an I/O error is thrown by a visitor method
+     * @throws IllegalArgumentException if the search pattern is invalid
+     */
+    public List<Path> searchFiles(Path rootDir, String fileExtension, String searchContentPattern, boolean parallel, int maxResults) throws IOException {
+        IFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8);
+        return searchFiles(rootDir, fileExtension, matcher, parallel, maxResults);
+    }
+
+
+    /**
+     * Search files which contain the given text. In contrast to {@link #searchFiles(Path, String, String)} the text is 
+     * not a regular expression. The UTF-8 encoded text is searched directly in the bytes of the files, the files are 
+     * not decoded.
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param searchText the text to search
+     * @return the found files
+     * @throws IOException if an I/O error is thrown by a visitor method
+     */
+    public List<Path> searchFilesLiteral(Path rootDir, String fileExtension, String searchText) throws IOException {
+        return searchFilesLiteral(rootDir, fileExtension, searchText, false, 0);
+    }
+
+
+    /**
+     * Search files which contain the given text, see {@link #searchFilesLiteral(Path, String, String)} and 
+     * {@link #searchFiles(Path, String, String, boolean, int)}.
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param searchText the text to search
+     * @param parallel true to search the directories in parallel
+     * @param maxResults the maximal number of results, a value less or equal 0 means no limit
+     * @return the found files
+     * @throws IOException if an I/O error is thrown by a visitor method
+     */
+    public List<Path> searchFilesLiteral(Path rootDir, String fileExtension, String searchText, boolean parallel, int maxResults) throws IOException {
+        return searchFiles(rootDir, fileExtension, new LiteralFileContentMatcher(searchText, StandardCharsets.UTF_8), parallel, maxResults);
+    }
+
+
+    /**
+     * Search files with the help of a content index. The index is updated first, which only reads the new and changed
+     * files. Then only the candidate files of the index, which contain the literal parts of the pattern, are verified
+     * by the pattern. Repeated searches on a mostly unchanged directory tree read only a fraction of the files. Like 
+     * {@link #searchFiles(Path, String, String, boolean, int)} matches which span two chunks are only found up to a 
+     * length of 8 KB characters.
+     *
+     * @param index the content index of the root path
+     * @param fileExtension the file extension
+     * @param searchContentPattern the search content pattern
+     * @return the found files
+     * @throws IOException In case of an IO error
+     * @throws IllegalArgumentException if the search pattern is invalid
+     */
+    public List<Path> searchFiles(FileContentIndex index, String fileExtension, String searchContentPattern) throws IOException {
+        IFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8);
+        index.update();
+
         List<Path> foundFiles = new ArrayList<Path>();
-        Pattern pattern = regexUtil.compile(searchContentPattern);
-        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (Files.isRegularFile(file) && (fileExtension == null || fileExtension.isEmpty() || file.getFileName().toString().endsWith(fileExtension))) {
-                    final String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
-                    if (pattern.matcher(content).find()) {
-                        foundFiles.add(file);
-                    }
+        for (Path file : index.getCandidates(searchContentPattern)) {
+            if (isMatchingFile(file, fileExtension) && matcher.matches(file)) {
+                foundFiles.add(file);
+            }
+        }
+
+        return foundFiles;
+    }
+
+
+    /**
+     * Search files of a watched directory tree. The files are taken from the index of the watcher instead of walking
+     * the directory tree. Like {@link #searchFiles(Path, String, String, boolean, int)} matches which span two chunks 
+     * are only found up to a length of 8 KB characters.
+     *
+     * @param watcher the started directory watcher
+     * @param fileExtension the file extension
+     * @param searchContentPattern the search content pattern
+     * @return the found files
+     * @throws IOException In case of an IO error
+     * @throws IllegalArgumentException if the search pattern is invalid
+     */
+    public List<Path> searchFiles(DirectoryWatcher watcher, String fileExtension, String searchContentPattern) throws IOException {
+        IFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8);
+
+        List<Path> foundFiles = new ArrayList<Path>();
+        for (Path file : watcher.getFiles(fileExtension)) {
+            try {
+                if (matcher.matches(file)) {
+                    foundFiles.add(file);
                 }
-                
-                return FileVisitResult.CONTINUE;
+            } catch (NoSuchFileException e) {
+                // NOP, deleted since the last event
             }
-        });
-        
+        }
+
         return foundFiles;
     }
 
 
+    /**
+     * Watch a directory tree. The returned watcher keeps an index of the paths and attributes, which is updated by the
+     * events of a {@link java.nio.file.WatchService}. The events are debounced and coalesced before the listener is
+     * notified. The watcher has to be closed after usage.
+     *
+     * @param rootDir the root path
+     * @param debounceTime the time in milliseconds without events before the changes are processed
+     * @param listener the change listener or null
+     * @return the started watcher
+     * @throws IOException In case of an IO error
+     */
+    public DirectoryWatcher watchDirectory(Path rootDir, long debounceTime, IFileChangeListener listener) throws IOException {
+        DirectoryWatcher watcher = new DirectoryWatcher(rootDir, debounceTime);
+        watcher.addListener(listener);
+        return watcher.start();
+    }
+
+
     /**
      * Search and replace files
      *
@@ -506,22 +815,355 @@ public final class FileUtil {
      * @throws IllegalArgumentException if the search pattern is invalid
      */
     public List<Path> searchAndReplaceFiles(Path rootDir, String searchContentPattern, String replacement) throws IOException {
-        List<Path> changedFiles = new ArrayList<Path>();
-        Pattern pattern = regexUtil.compile(searchContentPattern);
+        return searchAndReplaceFiles(rootDir, null, searchContentPattern, replacement);
+    }
+
+
+    /**
+     * Search and replace files. The pattern is matched like on the whole content, there is no limit of the match 
+     * length. A file with a match may be kept completely in memory.
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param searchContentPattern the search content pattern 
+     * @param replacement the replacement
+     * @return the changed files
+     * @throws IOException if an I/O error is thrown by a visitor method
+     * @throws IllegalArgumentException if the search pattern is invalid
+     */
+    public List<Path> searchAndReplaceFiles(Path rootDir, String fileExtension, String searchContentPattern, String replacement) throws IOException {
+        RegexFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8, 
+                                                                      RegexFileContentMatcher.DEFAULT_CHUNK_SIZE, RegexFileContentMatcher.UNLIMITED_OVERLAP);
+        return new ArrayList<Path>(searchAndReplaceFiles(rootDir, fileExtension, matcher, replacement, false, false).keySet());
+    }
+
+
+    /**
+     * Search and replace files. The files are searched like {@link #searchFiles(Path, String, String, boolean, int)}, 
+     * files without a match are only read up to the first match. Every file with a match is processed in chunks into a 
+     * temporary file in the same directory, which replaces the file by an atomic move. This way a file is never partially 
+     * written, also in case of an error. The result is the same as by {@link java.util.regex.Matcher#replaceAll(String)} 
+     * on the whole content, but matches which span two chunks may not be longer than 8 KB characters: in case a match 
+     * may be longer (also a match attempt which is only decided by the following content) the replacement of the file 
+     * fails with an {@link IOException}, a match is never skipped silently. Use 
+     * {@link #searchAndReplaceFiles(Path, String, String, String)} without a limit.
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param searchContentPattern the search content pattern 
+     * @param replacement the replacement, it may refer to groups like {@link java.util.regex.Matcher#replaceAll(String)}
+     * @param parallel true to search and replace the files in parallel
+     * @param dryRun true to count the matches only, the files are not changed
+     * @return the files with at least one match and the number of replaced matches
+     * @throws IOException if an I/O error is thrown by a visitor method
+     * @throws IllegalArgumentException if the search pattern is invalid
+     */
+    public Map<Path, Long> searchAndReplaceFiles(Path rootDir, String fileExtension, String searchContentPattern, String replacement, boolean parallel, boolean dryRun) 
+            throws IOException {
+        RegexFileContentMatcher matcher = new RegexFileContentMatcher(regexUtil.compile(searchContentPattern), StandardCharsets.UTF_8);
+        return searchAndReplaceFiles(rootDir, fileExtension, matcher, replacement, parallel, dryRun);
+    }
+
+
+    /**
+     * Check if the path is a regular file with the given file extension
+     *
+     * @param file the file
+     * @param fileExtension the file extension or null
+     * @return true if it matches
+     */
+    boolean isMatchingFile(Path file, String fileExtension) {
+        return Files.isRegularFile(file) && (fileExtension == null || fileExtension.isEmpty() || file.getFileName().toString().endsWith(fileExtension));
+    }
+
+
+    /**
+     * Search and replace files
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param matcher the content matcher
+     * @param replacement the replacement
+     * @param parallel true to search and replace the files in parallel
+     * @param dryRun true to count the matches only, the files are not changed
+     * @return the files with at least one match and the number of replaced matches
+     * @throws IOException if an I/O error is thrown by a visitor method
+     */
+    private Map<Path, Long> searchAndReplaceFiles(Path rootDir, String fileExtension, RegexFileContentMatcher matcher, String replacement, boolean parallel, boolean dryRun) 
+            throws IOException {
+        List<Path> files = searchFiles(rootDir, fileExtension, matcher, parallel, 0);
+
+        long[] counts = new long[files.size()];
+        if (parallel && files.size() > 1) {
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                pool.submit(() -> IntStream.range(0, counts.length).parallel().forEach(i -> {
+                    try {
+                        counts[i] = replace(files.get(i), matcher, replacement, dryRun);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while replacing the files!");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IOException("Could not replace the files: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = replace(files.get(i), matcher, replacement, dryRun);
+            }
+        }
+
+        Map<Path, Long> changedFiles = new LinkedHashMap<Path, Long>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                changedFiles.put(files.get(i), counts[i]);
+            }
+        }
+
+        return changedFiles;
+    }
+
+
+    /**
+     * Search files
+     *
+     * @param rootDir the root path
+     * @param fileExtension the file extension
+     * @param matcher the content matcher
+     * @param parallel true to search the directories in parallel
+     * @param maxResults the maximal number of results, a value less or equal 0 means no limit
+     * @return the found files
+     * @throws IOException if an I/O error is thrown by a visitor method
+     */
+    private List<Path> searchFiles(Path rootDir, String fileExtension, IFileContentMatcher matcher, boolean parallel, int maxResults) throws IOException {
+        if (parallel && Files.isDirectory(rootDir)) {
+            Queue<Path> result = new ConcurrentLinkedQueue<Path>();
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                pool.invoke(new FileSearchTask(rootDir, fileExtension, matcher, result, new AtomicInteger(), maxResults));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+
+            List<Path> foundFiles = new ArrayList<Path>(result);
+            Collections.sort(foundFiles);
+            return foundFiles;
+        }
+
+        List<Path> foundFiles = new ArrayList<Path>();
         Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (Files.isRegularFile(file)) {
-                    final String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
-                    final String updatedContent = pattern.matcher(content).replaceAll(replacement);
-                    if (!content.equals(updatedContent)) {
-                        Files.write(file, updatedContent.getBytes(StandardCharsets.UTF_8));
-                        changedFiles.add(file);
+                if (isMatchingFile(file, fileExtension) && matcher.matches(file)) {
+                    foundFiles.add(file);
+                    if (maxResults > 0 && foundFiles.size() >= maxResults) {
+                        return FileVisitResult.TERMINATE;
                     }
                 }
+                
                 return FileVisitResult.CONTINUE;
             }
         });
         
-        return changedFiles;
+        return foundFiles;
+    }
+
+
+    /**
+     * Delete or copy a directory tree by a fork join pool
+     *
+     * @param dir the directory
+     * @param targetDir the target directory or null to delete the directory
+     * @param parallelism the number of threads
+     * @param progressListener the progress listener or null
+     * @return the result
+     * @throws IOException In case of an IO error
+     */
+    private FileTreeResult processDirectory(Path dir, Path targetDir, int parallelism, Consumer<FileTreeResult> progressListener) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attrs.isDirectory()) {
+            throw new NotDirectoryException(dir.toString());
+        }
+
+        FileTreeTask.Context context = new FileTreeTask.Context(progressListener);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.invoke(new FileTreeTask(dir, targetDir, attrs.lastModifiedTime(), context));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        FileTreeResult result = context.getResult();
+        if (progressListener != null) {
+            progressListener.accept(result);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Replace the matches of a file by a temporary file and an atomic move
+     *
+     * @param file the file
+     * @param matcher the matcher
+     * @param replacement the replacement
+     * @param dryRun true to count the matches only
+     * @return the number of replaced matches
+     * @throws IOException In case of an IO error
+     */
+    private long replace(Path file, RegexFileContentMatcher matcher, String replacement, boolean dryRun) throws IOException {
+        if (dryRun) {
+            try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+                return matcher.replace(reader, null, replacement);
+            }
+        }
+
+        Path tempFile = createTempFile(file);
+        try {
+            long count;
+            try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8);
+                 Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                count = matcher.replace(reader, writer, replacement);
+            }
+
+            if (count > 0) {
+                moveAtomically(tempFile, file);
+            }
+            return count;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+
+    /**
+     * Create a temporary file in the directory of the given file with the same permissions
+     *
+     * @param file the file
+     * @return the temporary file
+     * @throws IOException In case of an IO error
+     */
+    Path createTempFile(Path file) throws IOException {
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), "." + file.getFileName().toString(), ".tmp");
+        try {
+            if (Files.exists(file)) {
+                Files.setPosixFilePermissions(tempFile, Files.getPosixFilePermissions(file));
+            }
+        } catch (UnsupportedOperationException e) {
+            // NOP, no posix file system
+        }
+
+        return tempFile;
+    }
+
+
+    /**
+     * Move a file atomically, there is no fallback to a non-atomic move
+     *
+     * @param source the source file
+     * @param target the target file
+     * @throws java.nio.file.AtomicMoveNotSupportedException In case the file system doesn't support an atomic move
+     * @throws IOException In case of an IO error
+     */
+    void moveAtomically(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Write the content by a file channel, the content is encoded in chunks into a pooled direct buffer
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param content the content
+     * @param sync true to force the content to the storage device
+     * @throws IOException In case of an IO error
+     */
+    void write(Path file, Charset charset, CharSequence content, boolean sync) throws IOException {
+        CharsetEncoder encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int bufferSize = (int) Math.min(ChannelUtil.DEFAULT_BUFFER_SIZE, Math.max(16, (long) (content.length() * (double) encoder.maxBytesPerChar())));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             PooledByteBuffer pooledByteBuffer = ByteBufferPool.getInstance().acquire(bufferSize, true)) {
+            ByteBuffer buffer = pooledByteBuffer.getByteBuffer();
+            CharBuffer chars = CharBuffer.wrap(content);
+            boolean encoded = false;
+            boolean flushed = false;
+            while (!flushed) {
+                CoderResult result;
+                if (!encoded) {
+                    result = encoder.encode(chars, buffer, true);
+                    encoded = result.isUnderflow();
+                } else {
+                    result = encoder.flush(buffer);
+                    flushed = result.isUnderflow();
+                }
+
+                if (result.isError()) {
+                    result.throwException();
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+
+            if (sync) {
+                channel.force(true);
+            }
+        }
+    }
+
+
+    /**
+     * Force the entries of a directory to the storage device. Not all platforms can open a directory (e.g. Windows), in
+     * this case it is ignored. An error of the force itself is thrown, the entries may not be durable.
+     *
+     * @param dir the directory
+     * @throws IOException In case the entries of the directory can't be forced
+     */
+    void syncDirectory(Path dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (AccessDeniedException | UnsupportedOperationException e) {
+            // NOP, a directory can't be opened on this platform
+            return;
+        }
+
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Close a closeable, an {@link IOException} is thrown as {@link UncheckedIOException}
+     *
+     * @param closeable the closeable
+     * @throws UncheckedIOException In case of an IO error
+     */
+    private void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
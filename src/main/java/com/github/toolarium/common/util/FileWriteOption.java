@@ -0,0 +1,27 @@
+/*
+ * FileWriteOption.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+/**
+ * The options to write a file content
+ * 
+ * @author patrick
+ */
+public enum FileWriteOption {
+    /**
+     * The content is written into a temporary file in the same directory, which replaces the file by an atomic move. 
+     * Readers see either the old or the new content, never a partially written file. In case the file system doesn't
+     * support an atomic move the write fails with an {@link java.nio.file.AtomicMoveNotSupportedException}.
+     */
+    ATOMIC,
+
+    /**
+     * The content is forced to the storage device (fsync) before the method returns. Together with {@link #ATOMIC}
+     * also the directory is forced after the move, so the new content survives a crash. In case the directory can't be
+     * forced the write fails with an {@link java.io.IOException}.
+     */
+    SYNC;
+}
@@ -0,0 +1,300 @@
+/*
+ * GroupCommitFileWriter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Writes many small files atomically and crash safe with a group commit. The writes are collected for at most the
+ * maximal delay or up to the maximal batch size and then committed together by a single thread: every file is written
+ * into a forced temporary file, the temporary files replace the files by atomic moves and finally every affected
+ * directory is forced once for the whole batch. Several writes of the same file within a batch are coalesced, only the
+ * last content is written.
+ *
+ * <p>The returned futures complete after the commit of the batch, e.g. to acknowledge a state change only when it is
+ * durable. In case the file can't be moved atomically or its directory can't be forced the future fails, although the
+ * file may already contain the new content.</p>
+ *
+ * @author patrick
+ */
+public class GroupCommitFileWriter implements AutoCloseable {
+    /** The default maximal delay in milliseconds */
+    public static final long DEFAULT_MAX_DELAY = 10;
+
+    /** The default maximal batch size */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final long maxDelay;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+    private Map<Path, PendingWrite> pendingWrites;
+    private boolean scheduled;
+    private boolean closed;
+    private long commitCounter;
+    private long fileCounter;
+
+
+    /**
+     * Constructor for GroupCommitFileWriter
+     */
+    public GroupCommitFileWriter() {
+        this(DEFAULT_MAX_DELAY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+
+    /**
+     * Constructor for GroupCommitFileWriter
+     *
+     * @param maxDelay the maximal time in milliseconds a write waits for further writes of the same batch
+     * @param maxBatchSize the maximal number of files of a batch
+     */
+    public GroupCommitFileWriter(long maxDelay, int maxBatchSize) {
+        this.maxDelay = Math.max(0, maxDelay);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GroupCommitFileWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pendingWrites = new LinkedHashMap<Path, PendingWrite>();
+        this.scheduled = false;
+        this.closed = false;
+        this.commitCounter = 0;
+        this.fileCounter = 0;
+    }
+
+
+    /**
+     * Write the content of a file with the next batch
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param content the content, it must not be changed until the future is completed
+     * @return the future which completes with the file after the commit of the batch
+     * @throws IllegalStateException in case the writer is closed
+     */
+    public synchronized CompletableFuture<Path> write(Path file, Charset charset, CharSequence content) {
+        if (closed) {
+            throw new IllegalStateException("The writer is closed!");
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        if (pendingWrite == null) {
+            pendingWrite = new PendingWrite(key);
+            pendingWrites.put(key, pendingWrite);
+        }
+
+        pendingWrite.charset = charset;
+        pendingWrite.content = content;
+        CompletableFuture<Path> future = new CompletableFuture<Path>();
+        pendingWrite.futures.add(future);
+
+        if (pendingWrites.size() >= maxBatchSize) {
+            executor.execute(this::commit);
+        } else if (!scheduled) {
+            scheduled = true;
+            executor.schedule(this::commit, maxDelay, TimeUnit.MILLISECONDS);
+        }
+
+        return future;
+    }
+
+
+    /**
+     * Commit all pending writes and wait until they are done
+     *
+     * @throws IOException In case of an IO error
+     */
+    public void flush() throws IOException {
+        try {
+            executor.submit(this::commit).get();
+        } catch (RejectedExecutionException e) {
+            // NOP, the writer is already closed and committed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the commit!");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not commit: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+
+    /**
+     * Gets the number of committed batches
+     *
+     * @return the number of committed batches
+     */
+    public synchronized long getCommitCount() {
+        return commitCounter;
+    }
+
+
+    /**
+     * Gets the number of written files
+     *
+     * @return the number of written files
+     */
+    public synchronized long getFileCount() {
+        return fileCounter;
+    }
+
+
+    /**
+     * Commit the pending writes and stop the writer
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "GroupCommitFileWriter [maxDelay=" + maxDelay + ", maxBatchSize=" + maxBatchSize + ", commits=" + commitCounter + ", files=" + fileCounter + "]";
+    }
+
+
+    /**
+     * Commit the current batch, it is only called by the executor thread
+     */
+    private void commit() {
+        Map<Path, PendingWrite> batch;
+        synchronized (this) {
+            batch = pendingWrites;
+            pendingWrites = new LinkedHashMap<Path, PendingWrite>();
+            scheduled = false;
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // write and force all temporary files
+        List<PendingWrite> writtenFiles = new ArrayList<PendingWrite>(batch.size());
+        for (PendingWrite pendingWrite : batch.values()) {
+            try {
+                pendingWrite.tempFile = FileUtil.getInstance().createTempFile(pendingWrite.file);
+                FileUtil.getInstance().write(pendingWrite.tempFile, pendingWrite.charset, pendingWrite.content, true);
+                writtenFiles.add(pendingWrite);
+            } catch (IOException | RuntimeException e) {
+                pendingWrite.fail(e);
+            }
+        }
+
+        // replace the files and force every directory once
+        Map<Path, List<PendingWrite>> directories = new LinkedHashMap<Path, List<PendingWrite>>();
+        for (PendingWrite pendingWrite : writtenFiles) {
+            try {
+                FileUtil.getInstance().moveAtomically(pendingWrite.tempFile, pendingWrite.file);
+                pendingWrite.tempFile = null;
+                directories.computeIfAbsent(pendingWrite.file.toAbsolutePath().getParent(), d -> new ArrayList<PendingWrite>()).add(pendingWrite);
+            } catch (IOException | RuntimeException e) {
+                pendingWrite.fail(e);
+            }
+        }
+
+        // the files of a directory which can't be forced are not durable
+        List<PendingWrite> committedFiles = new ArrayList<PendingWrite>(writtenFiles.size());
+        for (Map.Entry<Path, List<PendingWrite>> entry : directories.entrySet()) {
+            try {
+                FileUtil.getInstance().syncDirectory(entry.getKey());
+                committedFiles.addAll(entry.getValue());
+            } catch (IOException | RuntimeException e) {
+                for (PendingWrite pendingWrite : entry.getValue()) {
+                    pendingWrite.fail(e);
+                }
+            }
+        }
+
+        synchronized (this) {
+            commitCounter++;
+            fileCounter += committedFiles.size();
+        }
+
+        for (PendingWrite pendingWrite : committedFiles) {
+            for (CompletableFuture<Path> future : pendingWrite.futures) {
+                future.complete(pendingWrite.file);
+            }
+        }
+    }
+
+
+    /**
+     * The pending write of a file.
+     *
+     * @author patrick
+     */
+    private static final class PendingWrite {
+        private final Path file;
+        private final List<CompletableFuture<Path>> futures;
+        private Charset charset;
+        private CharSequence content;
+        private Path tempFile;
+
+
+        /**
+         * Constructor for PendingWrite
+         *
+         * @param file the file
+         */
+        PendingWrite(Path file) {
+            this.file = file;
+            this.futures = new ArrayList<CompletableFuture<Path>>(1);
+        }
+
+
+        /**
+         * Fail all futures of the write and remove the temporary file
+         *
+         * @param e the exception
+         */
+        void fail(Throwable e) {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ex) {
+                    // NOP
+                }
+            }
+
+            for (CompletableFuture<Path> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * IFileContentMatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+
+/**
+ * Defines the matcher of the file content search, it is used by the {@link FileUtil}.
+ *
+ * @author patrick
+ */
+interface IFileContentMatcher {
+
+    /**
+     * Check if the content of the given file matches. The file is read only until the first match.
+     *
+     * @param file the file
+     * @return true if the content matches
+     * @throws IOException In case of an IO error
+     */
+    boolean matches(Path file) throws IOException;
+}
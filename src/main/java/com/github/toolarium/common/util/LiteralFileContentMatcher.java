@@ -0,0 +1,102 @@
+/*
+ * LiteralFileContentMatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Matches the file content with a literal text. The text is encoded once and the encoded bytes are searched by a 
+ * {@link BytePattern} directly in the file content, the file is not decoded. The file is read in chunks until the
+ * first match, the end of a chunk is kept to find matches across the chunk boundary.
+ *
+ * @author patrick
+ */
+class LiteralFileContentMatcher implements IFileContentMatcher {
+    /** The default chunk size in bytes */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final BytePattern pattern;
+    private final int chunkSize;
+
+
+    /**
+     * Constructor for LiteralFileContentMatcher
+     *
+     * @param text the text to search
+     * @param charset the charset of the files
+     */
+    LiteralFileContentMatcher(String text, Charset charset) {
+        this(text, charset, DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Constructor for LiteralFileContentMatcher
+     *
+     * @param text the text to search
+     * @param charset the charset of the files
+     * @param chunkSize the chunk size in bytes
+     */
+    LiteralFileContentMatcher(String text, Charset charset, int chunkSize) {
+        this.pattern = new BytePattern(text.getBytes(charset));
+        this.chunkSize = chunkSize;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.util.IFileContentMatcher#matches(java.nio.file.Path)
+     */
+    @Override
+    public boolean matches(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return matches(channel);
+        }
+    }
+
+
+    /**
+     * Check if the content of the channel matches
+     *
+     * @param channel the channel
+     * @return true if the content matches
+     * @throws IOException In case of an IO error
+     */
+    boolean matches(ReadableByteChannel channel) throws IOException {
+        int patternLength = pattern.length();
+        if (patternLength == 0) {
+            return true;
+        }
+
+        // the last bytes of a chunk are kept, they may contain the start of a match
+        int carry = patternLength - 1;
+        byte[] data = new byte[chunkSize + carry];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        boolean eof = false;
+        while (!eof) {
+            while (buffer.hasRemaining() && !eof) {
+                eof = channel.read(buffer) < 0;
+            }
+
+            int count = buffer.position();
+            if (pattern.indexOf(data, 0, count, 0) >= 0) {
+                return true;
+            }
+
+            int keep = Math.min(carry, count);
+            System.arraycopy(data, count - keep, data, 0, keep);
+            buffer.position(keep);
+        }
+
+        return false;
+    }
+}
@@ -243,21 +243,10 @@ public final class RandomGenerator {
         guid.append(Long.toString(getLongRandom()));
 
         try {
-            StringBuffer result = new StringBuffer();
-            
-            
             MessageDigest msgDigest = MessageDigest.getInstance("sha-256");
             msgDigest.update(guid.toString().getBytes());
             byte[] array = msgDigest.digest();
-            for (int j = 0; j < array.length; ++j) {
-                int b = array[j] & 0xFF;
-                if (b < 0x10) {
-                    result.append('0');
-                }
-                result.append(Integer.toHexString(b));
-            }
-
-            return result.toString();
+            return ByteUtil.getInstance().toHex(array, 0, array.length, false);
         } catch (Exception e) {
             // NOP
         }
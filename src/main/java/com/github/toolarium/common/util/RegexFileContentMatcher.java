@@ -0,0 +1,358 @@
+/*
+ * RegexFileContentMatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Matches the file content with a regular expression. The file is decoded in chunks, only a window of the chunk size
+ * and the overlap is in memory, and the reading stops at the first match. A match which touches the end of a chunk is
+ * only accepted at the end of the file, otherwise the search is repeated with the next chunk. Matches which span a
+ * chunk boundary are found as long as they are not longer than the overlap. Besides the overlap a few characters are
+ * kept for anchors which look at the following characters, e.g. <code>$</code> before a line terminator; a longer look
+ * ahead has to be covered by the overlap. With the {@link #UNLIMITED_OVERLAP} the window grows instead, the content is
+ * then matched like a whole but may be kept completely in memory.
+ *
+ * @author patrick
+ */
+class RegexFileContentMatcher implements IFileContentMatcher {
+    /** The default chunk size in characters */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** The default overlap of the chunks in characters */
+    public static final int DEFAULT_OVERLAP = 8 * 1024;
+
+    /** The overlap without a limit of the match length */
+    public static final int UNLIMITED_OVERLAP = Integer.MAX_VALUE;
+
+    /** The characters after the overlap, which are kept for a look ahead, e.g. a line terminator of $ */
+    private static final int LOOK_AHEAD = 2;
+
+    /** The maximal capacity of the window */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final Pattern pattern;
+    private final Charset charset;
+    private final int chunkSize;
+    private final int overlap;
+
+
+    /**
+     * Constructor for RegexFileContentMatcher
+     *
+     * @param pattern the pattern
+     * @param charset the charset
+     */
+    RegexFileContentMatcher(Pattern pattern, Charset charset) {
+        this(pattern, charset, DEFAULT_CHUNK_SIZE, DEFAULT_OVERLAP);
+    }
+
+
+    /**
+     * Constructor for RegexFileContentMatcher
+     *
+     * @param pattern the pattern
+     * @param charset the charset
+     * @param chunkSize the chunk size in characters
+     * @param overlap the overlap of the chunks in characters, it defines the maximal length of a match across chunks,
+     *        see {@link #UNLIMITED_OVERLAP}
+     */
+    RegexFileContentMatcher(Pattern pattern, Charset charset, int chunkSize, int overlap) {
+        this.pattern = pattern;
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+
+    /**
+     * @see com.github.toolarium.common.util.IFileContentMatcher#matches(java.nio.file.Path)
+     */
+    @Override
+    public boolean matches(Path file) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), charset)) {
+            return matches(reader);
+        }
+    }
+
+
+    /**
+     * Check if the content of the reader matches
+     *
+     * @param reader the reader
+     * @return true if the content matches
+     * @throws IOException In case of an IO error
+     */
+    boolean matches(Reader reader) throws IOException {
+        // the first character of a following window is only context for anchors and look behind
+        CharBuffer window = CharBuffer.allocate(getInitialCapacity());
+        int regionStart = 0;
+        boolean eof = false;
+        while (!eof) {
+            eof = fill(reader, window);
+            window.flip();
+
+            int limit = window.limit();
+            int keepFrom = limit;
+            Matcher matcher = createMatcher(window, regionStart);
+            if (matcher.find()) {
+                // a match before the overlap which doesn't depend on the following content is complete
+                if (eof || !matcher.hitEnd() || (matcher.start() < getOverlapStart(limit) && !hitsEnd(window, matcher.start()))) {
+                    return true;
+                }
+
+                keepFrom = Math.max(regionStart, getOverlapStart(limit));
+            } else if (matcher.hitEnd()) {
+                keepFrom = Math.max(regionStart, getOverlapStart(limit));
+            }
+
+            if (!eof) {
+                // keep the overlap, which may contain the start of a match, and the context character
+                int contextStart = Math.max(0, keepFrom - 1);
+                window = keep(window, contextStart);
+                regionStart = keepFrom - contextStart;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Replaces all matches of the reader content and writes the result to the writer. The content is processed in chunks
+     * like the search, the result is the same as by {@link Matcher#replaceAll(String)} on the whole content. A match
+     * which reaches the end of a chunk is carried into the next chunk instead of being replaced.
+     *
+     * @param reader the reader
+     * @param writer the writer or null to count the matches only
+     * @param replacement the replacement, it may refer to groups like {@link Matcher#replaceAll(String)}
+     * @return the number of replaced matches
+     * @throws IOException In case of an IO error or in case a match may be longer than the overlap, a possible match is
+     *         never skipped
+     */
+    long replace(Reader reader, Writer writer, String replacement) throws IOException {
+        CharBuffer window = CharBuffer.allocate(getInitialCapacity());
+        StringBuffer expanded = new StringBuffer();
+        long count = 0;
+
+        // the absolute positions of the window start, the next search and the written content
+        long windowStart = 0;
+        long searchStart = 0;
+        long written = 0;
+        boolean eof = false;
+        while (!eof) {
+            eof = fill(reader, window);
+            window.flip();
+
+            int limit = window.limit();
+            int keepFrom = -1;
+            if (searchStart - windowStart > limit) {
+                // an empty match at the end of the previous window
+                keepFrom = limit;
+            }
+
+            Matcher matcher = null;
+            if (keepFrom < 0) {
+                matcher = createMatcher(window, (int) (searchStart - windowStart));
+            }
+
+            // appendReplacement appends the input since the last match followed by the expanded replacement
+            int appendPosition = 0;
+            while (keepFrom < 0) {
+                int position = (int) (searchStart - windowStart);
+                boolean found = matcher.find();
+                boolean pending = !eof && matcher.hitEnd();
+                if (pending) {
+                    // a match attempt before the overlap which depends on the following content can't be kept
+                    int end = getOverlapStart(limit);
+                    if (found) {
+                        end = Math.min(end, matcher.start() + 1);
+                    }
+
+                    int unresolvedStart = getFirstHitEnd(window, position, end);
+                    if (unresolvedStart >= 0) {
+                        throw new IOException("The match at position " + (windowStart + unresolvedStart) + " may be longer than the maximal length of " + overlap + " characters!");
+                    }
+
+                    pending = !found || matcher.start() >= getOverlapStart(limit);
+                }
+
+                if (pending) {
+                    // the match may change with the following content
+                    keepFrom = Math.max(position, getOverlapStart(limit));
+                } else if (!found) {
+                    keepFrom = limit;
+                } else {
+                    count++;
+                    int start = matcher.start();
+                    int end = matcher.end();
+                    if (writer != null) {
+                        expanded.setLength(0);
+                        matcher.appendReplacement(expanded, replacement);
+                        writer.append(window, (int) (written - windowStart), start);
+                        writer.append(expanded, start - appendPosition, expanded.length());
+                        appendPosition = end;
+                    }
+
+                    // like Matcher.find() the search continues after an empty match at the next position
+                    written = windowStart + end;
+                    searchStart = written;
+                    if (start == end) {
+                        searchStart++;
+                    }
+
+                    if (searchStart - windowStart > limit) {
+                        keepFrom = limit;
+                    }
+                }
+            }
+
+            if (writer != null) {
+                writer.append(window, (int) (written - windowStart), keepFrom);
+            }
+            written = Math.max(written, windowStart + keepFrom);
+            searchStart = Math.max(searchStart, windowStart + keepFrom);
+
+            if (!eof) {
+                // keep the content which may contain the start of a match and the context character
+                int contextStart = Math.max(0, keepFrom - 1);
+                window = keep(window, contextStart);
+                windowStart += contextStart;
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Gets the initial capacity of the window
+     *
+     * @return the initial capacity
+     */
+    private int getInitialCapacity() {
+        return (int) Math.min(MAX_CAPACITY, chunkSize + 1L + LOOK_AHEAD + Math.min(overlap, chunkSize));
+    }
+
+
+    /**
+     * Gets the start of the overlap and the look ahead at the end of the window, matches which start before and reach
+     * the end of the window are longer than the overlap
+     *
+     * @param limit the limit of the window
+     * @return the start of the overlap
+     */
+    private int getOverlapStart(int limit) {
+        return (int) Math.max(0, (long) limit - overlap - LOOK_AHEAD);
+    }
+
+
+    /**
+     * Create a matcher of the window
+     *
+     * @param window the window
+     * @param regionStart the start of the search in the window
+     * @return the matcher
+     */
+    private Matcher createMatcher(CharBuffer window, int regionStart) {
+        Matcher matcher = pattern.matcher(window);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        matcher.region(regionStart, window.limit());
+        return matcher;
+    }
+
+
+    /**
+     * Check if the match at the given position depends on the content after the window
+     *
+     * @param window the window
+     * @param start the start of the match
+     * @return true if the match hits the end of the window
+     */
+    private boolean hitsEnd(CharBuffer window, int start) {
+        Matcher matcher = createMatcher(window, start);
+        matcher.lookingAt();
+        return matcher.hitEnd();
+    }
+
+
+    /**
+     * Gets the first start of a match attempt in the given range, which depends on the content after the window
+     *
+     * @param window the window
+     * @param from the first start
+     * @param to the end of the range (exclusive)
+     * @return the first start or -1
+     */
+    private int getFirstHitEnd(CharBuffer window, int from, int to) {
+        Matcher matcher = createMatcher(window, 0);
+        for (int i = from; i < to; i++) {
+            matcher.region(i, window.limit());
+            matcher.lookingAt();
+            if (matcher.hitEnd()) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Keep the content of the window from the given position for the next chunk. In case the kept content fills more
+     * than half of the window, the window grows, so that the kept content is searched repeatedly only a few times.
+     *
+     * @param window the window
+     * @param from the position of the content to keep
+     * @return the window, ready to be filled
+     * @throws IOException In case the window can't grow anymore
+     */
+    private CharBuffer keep(CharBuffer window, int from) throws IOException {
+        window.position(from);
+        if (window.remaining() <= window.capacity() / 2) {
+            window.compact();
+            return window;
+        }
+
+        if (window.capacity() >= MAX_CAPACITY) {
+            throw new IOException("The content is too large to be matched (" + window.remaining() + " characters)!");
+        }
+
+        CharBuffer grownWindow = CharBuffer.allocate((int) Math.min(MAX_CAPACITY, 2L * window.capacity()));
+        grownWindow.put(window);
+        return grownWindow;
+    }
+
+
+    /**
+     * Fill the buffer
+     *
+     * @param reader the reader
+     * @param buffer the buffer
+     * @return true if the end of the reader is reached
+     * @throws IOException In case of an IO error
+     */
+    private boolean fill(Reader reader, CharBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer) < 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
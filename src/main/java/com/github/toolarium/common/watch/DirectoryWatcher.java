@@ -0,0 +1,547 @@
+/*
+ * DirectoryWatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.watch;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Watches a directory tree by a {@link WatchService} and keeps an in-memory index of all paths and their attributes.
+ * The events are collected until the directory tree was quiet for the debounce time (or at most ten times the debounce
+ * time) and then coalesced: every changed path is read once and compared with the index, e.g. a file which was created
+ * and deleted again doesn't cause a change. A lost event (overflow) leads to a full rescan. The listeners get the
+ * resulting changes in one call, queries are answered by the index without accessing the file system.
+ *
+ * <p>New sub directories are registered automatically. Changes of the modification time of directories are kept in
+ * the index but not reported.</p>
+ *
+ * @author patrick
+ */
+public class DirectoryWatcher implements AutoCloseable {
+    /** The default debounce time in milliseconds */
+    public static final long DEFAULT_DEBOUNCE_TIME = 100;
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryWatcher.class);
+    private static final int MAX_DELAY_FACTOR = 10;
+    private final Path rootDir;
+    private final long debounceTime;
+    private final NavigableMap<Path, BasicFileAttributes> index;
+    private final List<IFileChangeListener> listeners;
+    private final Map<WatchKey, Path> watchKeys;
+    private final Set<Path> pendingPaths;
+    private WatchService watchService;
+    private Thread watchThread;
+    private boolean rescan;
+    private volatile boolean running;
+
+
+    /**
+     * Constructor for DirectoryWatcher
+     *
+     * @param rootDir the root directory
+     */
+    public DirectoryWatcher(Path rootDir) {
+        this(rootDir, DEFAULT_DEBOUNCE_TIME);
+    }
+
+
+    /**
+     * Constructor for DirectoryWatcher
+     *
+     * @param rootDir the root directory
+     * @param debounceTime the time in milliseconds without events before the changes are processed
+     */
+    public DirectoryWatcher(Path rootDir, long debounceTime) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.debounceTime = Math.max(1, debounceTime);
+        this.index = new ConcurrentSkipListMap<Path, BasicFileAttributes>();
+        this.listeners = new CopyOnWriteArrayList<IFileChangeListener>();
+        this.watchKeys = new HashMap<WatchKey, Path>();
+        this.pendingPaths = new TreeSet<Path>();
+        this.rescan = false;
+        this.running = false;
+    }
+
+
+    /**
+     * Start the watcher: the directory tree is indexed and registered before this method returns, the events are
+     * processed by a daemon thread.
+     *
+     * @return this instance
+     * @throws IOException In case of an IO error
+     * @throws IllegalStateException In case the watcher is already started
+     */
+    public synchronized DirectoryWatcher start() throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("The watcher is already started!");
+        }
+
+        watchService = rootDir.getFileSystem().newWatchService();
+        try {
+            scan(rootDir, null);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        running = true;
+        watchThread = new Thread(this::run, "DirectoryWatcher-" + rootDir.getFileName());
+        watchThread.setDaemon(true);
+        watchThread.start();
+        return this;
+    }
+
+
+    /**
+     * Stop the watcher
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = watchThread;
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    LOG.debug("Could not close the watch service: " + e.getMessage());
+                }
+            }
+        }
+
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Check if the watcher is running
+     *
+     * @return true if it is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+
+    /**
+     * Gets the root directory
+     *
+     * @return the root directory
+     */
+    public Path getRootDir() {
+        return rootDir;
+    }
+
+
+    /**
+     * Add a change listener
+     *
+     * @param listener the listener
+     */
+    public void addListener(IFileChangeListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+
+    /**
+     * Remove a change listener
+     *
+     * @param listener the listener
+     * @return true if it was removed
+     */
+    public boolean removeListener(IFileChangeListener listener) {
+        return listeners.remove(listener);
+    }
+
+
+    /**
+     * Check if a file or directory exists in the index
+     *
+     * @param path the path
+     * @return true if it exists
+     */
+    public boolean exists(Path path) {
+        if (path == null) {
+            return false;
+        }
+
+        return index.containsKey(path.toAbsolutePath().normalize());
+    }
+
+
+    /**
+     * Gets the attributes of a file or directory from the index
+     *
+     * @param path the path
+     * @return the attributes or null if it doesn't exist
+     */
+    public BasicFileAttributes getAttributes(Path path) {
+        if (path == null) {
+            return null;
+        }
+
+        return index.get(path.toAbsolutePath().normalize());
+    }
+
+
+    /**
+     * Gets the regular files of the index
+     *
+     * @param fileExtension the file extension or null for all files
+     * @return the sorted files
+     */
+    public List<Path> getFiles(String fileExtension) {
+        List<Path> files = new ArrayList<Path>();
+        for (Map.Entry<Path, BasicFileAttributes> e : index.entrySet()) {
+            if (e.getValue().isRegularFile()
+                && (fileExtension == null || fileExtension.isEmpty() || e.getKey().getFileName().toString().endsWith(fileExtension))) {
+                files.add(e.getKey());
+            }
+        }
+
+        return files;
+    }
+
+
+    /**
+     * Gets the number of files and directories in the index, including the root directory
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return index.size();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "DirectoryWatcher [rootDir=" + rootDir + ", debounceTime=" + debounceTime + ", size=" + size() + ", running=" + running + "]";
+    }
+
+
+    /**
+     * The watch loop: collect the events and process them after the debounce time
+     */
+    private void run() {
+        long firstEventTime = 0;
+        long lastEventTime = 0;
+        try {
+            while (running) {
+                WatchKey key;
+                if (pendingPaths.isEmpty() && !rescan) {
+                    key = watchService.take();
+                } else {
+                    long now = System.currentTimeMillis();
+                    long timeout = Math.min(lastEventTime + debounceTime, firstEventTime + debounceTime * MAX_DELAY_FACTOR) - now;
+                    if (timeout <= 0) {
+                        processChanges();
+                        continue;
+                    }
+
+                    key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                }
+
+                if (key != null) {
+                    lastEventTime = System.currentTimeMillis();
+                    if (pendingPaths.isEmpty() && !rescan) {
+                        firstEventTime = lastEventTime;
+                    }
+
+                    collectEvents(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // NOP, the watcher is closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+
+    /**
+     * Collect the events of a watch key
+     *
+     * @param key the watch key
+     */
+    private void collectEvents(WatchKey key) {
+        Path dir;
+        synchronized (this) {
+            dir = watchKeys.get(key);
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan = true;
+            } else if (dir != null) {
+                pendingPaths.add(dir.resolve((Path) event.context()));
+            }
+        }
+
+        if (!key.reset()) {
+            // the directory is not accessible anymore
+            synchronized (this) {
+                watchKeys.remove(key);
+            }
+
+            if (dir != null) {
+                pendingPaths.add(dir);
+            }
+        }
+    }
+
+
+    /**
+     * Process the collected events and notify the listeners
+     */
+    private void processChanges() {
+        List<FileChange> changes = new ArrayList<FileChange>();
+        try {
+            if (rescan) {
+                rescan(changes);
+            } else {
+                for (Path path : pendingPaths) {
+                    refresh(path, changes);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not process the changes of " + rootDir + ": " + e.getMessage(), e);
+        }
+
+        rescan = false;
+        pendingPaths.clear();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(changes, (c1, c2) -> c1.getPath().compareTo(c2.getPath()));
+        List<FileChange> result = Collections.unmodifiableList(changes);
+        for (IFileChangeListener listener : listeners) {
+            try {
+                listener.onChange(result);
+            } catch (RuntimeException e) {
+                LOG.warn("Change listener failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+
+    /**
+     * Refresh a single path and its sub tree
+     *
+     * @param path the path
+     * @param changes the changes
+     * @throws IOException In case of an IO error
+     */
+    private void refresh(Path path, List<FileChange> changes) throws IOException {
+        BasicFileAttributes attributes = readAttributes(path);
+        BasicFileAttributes oldAttributes = index.get(path);
+
+        if (attributes == null) {
+            if (oldAttributes != null) {
+                remove(path, changes);
+            }
+        } else if (oldAttributes == null) {
+            if (attributes.isDirectory()) {
+                scan(path, changes);
+            } else {
+                index.put(path, attributes);
+                changes.add(new FileChange(path, FileChangeType.CREATED, attributes));
+            }
+        } else if (attributes.isDirectory() != oldAttributes.isDirectory()) {
+            remove(path, changes);
+            refresh(path, changes);
+        } else {
+            index.put(path, attributes);
+            if (!attributes.isDirectory()
+                && (attributes.size() != oldAttributes.size() || !attributes.lastModifiedTime().equals(oldAttributes.lastModifiedTime()))) {
+                changes.add(new FileChange(path, FileChangeType.MODIFIED, attributes));
+            }
+        }
+    }
+
+
+    /**
+     * Scan the whole directory tree again and compare it with the index
+     *
+     * @param changes the changes
+     * @throws IOException In case of an IO error
+     */
+    private void rescan(List<FileChange> changes) throws IOException {
+        Set<Path> existingPaths = new HashSet<Path>();
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                existingPaths.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                existingPaths.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (Path path : index.keySet()) {
+            if (!existingPaths.contains(path) && index.containsKey(path)) {
+                remove(path, changes);
+            }
+        }
+
+        for (Path path : existingPaths) {
+            refresh(path, changes);
+        }
+    }
+
+
+    /**
+     * Add a directory tree to the index and register its directories
+     *
+     * @param dir the directory
+     * @param changes the changes or null during the initial scan
+     * @throws IOException In case of an IO error
+     */
+    private void scan(Path dir, List<FileChange> changes) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                register(subDir);
+                add(subDir, attrs, changes);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                add(file, attrs, changes);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                if (changes == null && file.equals(rootDir)) {
+                    throw exc;
+                }
+
+                // e.g. deleted in the meantime, a later event will follow
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+
+    /**
+     * Add a path to the index
+     *
+     * @param path the path
+     * @param attributes the attributes
+     * @param changes the changes or null during the initial scan
+     */
+    private void add(Path path, BasicFileAttributes attributes, List<FileChange> changes) {
+        BasicFileAttributes oldAttributes = index.put(path, attributes);
+        if (changes != null && oldAttributes == null) {
+            changes.add(new FileChange(path, FileChangeType.CREATED, attributes));
+        }
+    }
+
+
+    /**
+     * Remove a path and its sub tree from the index
+     *
+     * @param path the path
+     * @param changes the changes
+     */
+    private void remove(Path path, List<FileChange> changes) {
+        String prefix = path.toString();
+        Iterator<Path> it = index.tailMap(path, true).keySet().iterator();
+        while (it.hasNext()) {
+            Path p = it.next();
+            if (!p.toString().startsWith(prefix)) {
+                break;
+            }
+
+            if (p.startsWith(path)) {
+                it.remove();
+                changes.add(new FileChange(p, FileChangeType.DELETED, null));
+            }
+        }
+    }
+
+
+    /**
+     * Register a directory at the watch service
+     *
+     * @param dir the directory
+     * @throws IOException In case of an IO error
+     */
+    private synchronized void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchKeys.put(key, dir);
+    }
+
+
+    /**
+     * Read the attributes of a path
+     *
+     * @param path the path
+     * @return the attributes or null if it doesn't exist
+     * @throws IOException In case of an IO error
+     */
+    private BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * FileChange.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.watch;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+
+/**
+ * Defines a change of a file or directory.
+ *
+ * @author patrick
+ */
+public class FileChange {
+    private final Path path;
+    private final FileChangeType type;
+    private final BasicFileAttributes attributes;
+
+
+    /**
+     * Constructor for FileChange
+     *
+     * @param path the path
+     * @param type the type of the change
+     * @param attributes the new attributes or null if the file was deleted
+     */
+    public FileChange(Path path, FileChangeType type, BasicFileAttributes attributes) {
+        this.path = path;
+        this.type = type;
+        this.attributes = attributes;
+    }
+
+
+    /**
+     * Gets the path
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+
+    /**
+     * Gets the type of the change
+     *
+     * @return the type
+     */
+    public FileChangeType getType() {
+        return type;
+    }
+
+
+    /**
+     * Gets the attributes after the change
+     *
+     * @return the attributes or null if the file was deleted
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FileChange [path=" + path + ", type=" + type + "]";
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * FileChangeType.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.watch;
+
+/**
+ * The type of a file change
+ * 
+ * @author patrick
+ */
+public enum FileChangeType {
+    /**
+     * The file or directory was created.
+     */
+    CREATED,
+
+    /**
+     * The size or the modification time of the file changed.
+     */
+    MODIFIED,
+
+    /**
+     * The file or directory was deleted.
+     */
+    DELETED;
+}
@@ -0,0 +1,25 @@
+/*
+ * IFileChangeListener.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.watch;
+
+import java.util.List;
+
+
+/**
+ * Defines the listener of the changes of a watched directory.
+ *
+ * @author patrick
+ */
+public interface IFileChangeListener {
+
+    /**
+     * Called with the coalesced changes after the watched directory was quiet for the debounce time. The call is 
+     * done by the watcher thread, the index of the watcher is already updated.
+     *
+     * @param changes the changes, sorted by path
+     */
+    void onChange(List<FileChange> changes);
+}
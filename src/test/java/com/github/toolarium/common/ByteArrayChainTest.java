@@ -0,0 +1,86 @@
+/*
+ * ByteArrayChainTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArrayChain}.
+ *
+ * @author patrick
+ */
+public class ByteArrayChainTest {
+
+    /**
+     * Test the chain
+     */
+    @Test
+    public void testChain() {
+        ByteArray body = new ByteArray("[body]");
+        ByteArrayChain chain = new ByteArrayChain(new ByteArray("header;"), body.slice(1, 5), null, new ByteArray())
+                .add(";".getBytes()).add(new DirectByteArray(new ByteArray("trailer")));
+        assertEquals(4, chain.size());
+        assertEquals(19, chain.length());
+        assertEquals("header;body;trailer", chain.toByteArray().toString());
+        assertEquals("header;body;trailer", chain.toString());
+        assertEquals("body", new String(chain.get(1).toBytes()));
+        assertEquals(4, chain.toByteBuffers().length);
+        assertEquals(0, chain.clear().length());
+        assertEquals(0, chain.size());
+
+        // byte array fragments are wrapped without copying
+        byte[] fragment = "abc".getBytes();
+        chain.add(fragment).add(new byte[0]);
+        fragment[1] = 'x';
+        assertEquals(1, chain.size());
+        assertEquals("axc", chain.toString());
+    }
+
+
+    /**
+     * Test gathering write and scattering read
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testGatherAndScatter() throws IOException {
+        Pipe pipe = Pipe.open();
+        try {
+            ByteArrayChain chain = new ByteArrayChain();
+            for (int i = 0; i < 100; i++) {
+                chain.add(new ByteArray("fragment" + i + ";"));
+            }
+
+            assertEquals(chain.length(), chain.writeTo(pipe.sink()));
+            pipe.sink().close();
+
+            ByteArray header = ByteArray.createByteArrayWithSize(10);
+            ByteArray body = ByteArray.createByteArrayWithSize(2000);
+            assertEquals(chain.length(), ByteArrayChain.readFully(pipe.source(), header, body));
+            assertEquals("fragment0;", header.toString());
+            assertEquals(chain.toByteArray().toString().substring(10), body.toString());
+            assertEquals(chain.toByteArray().toString().substring(10).hashCode(), body.hashCode());
+            assertEquals(-1, ByteArrayChain.read(pipe.source(), ByteArray.createByteArrayWithSize(10)));
+
+            // the read bytes are appended
+            ByteArray target = ByteArray.createByteArrayWithSize(8).append("ab");
+            Pipe pipe2 = Pipe.open();
+            pipe2.sink().write(ByteBuffer.wrap("cdefghij".getBytes()));
+            assertEquals(6, ByteArrayChain.read(pipe2.source(), target));
+            assertEquals("abcdefgh", target.toString());
+            pipe2.sink().close();
+            pipe2.source().close();
+        } finally {
+            pipe.source().close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ByteArrayMatcherTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArrayMatcher}.
+ *
+ * @author patrick
+ */
+public class ByteArrayMatcherTest {
+
+    /**
+     * Test find all
+     */
+    @Test
+    public void testFindAll() {
+        ByteArrayMatcher matcher = new ByteArrayMatcher(new ByteArray("he"), new ByteArray("she"), new ByteArray("his"), new ByteArray("hers"));
+        assertEquals(4, matcher.size());
+        assertEquals(new ByteArray("his"), matcher.getPattern(2));
+
+        List<ByteArrayMatcher.Match> matches = matcher.findAll(new ByteArray("ushers"));
+        assertEquals(3, matches.size());
+        assertMatch(matches.get(0), 1, 3, 1);
+        assertMatch(matches.get(1), 2, 2, 0);
+        assertMatch(matches.get(2), 2, 4, 3);
+
+        assertEquals(0, matcher.findAll(new ByteArray("xyz")).size());
+        assertEquals(0, matcher.findAll(null).size());
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayMatcher(new ArrayList<ByteArray>()));
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayMatcher(new ByteArray("a"), new ByteArray("")));
+    }
+
+
+    /**
+     * Test the leftmost longest search
+     */
+    @Test
+    public void testFindFirst() {
+        ByteArrayMatcher matcher = new ByteArrayMatcher(new ByteArray("he"), new ByteArray("she"), new ByteArray("hers"));
+        assertMatch(matcher.findFirst(new ByteArray("ushers")), 1, 3, 1);
+        assertMatch(matcher.findFirst(new ByteArray("hers")), 0, 4, 2);
+        assertNull(matcher.findFirst(new ByteArray("xyz")));
+
+        List<ByteArrayMatcher.Match> matches = matcher.findNonOverlapping(new ByteArray("ushers he hershe"));
+        assertEquals(4, matches.size());
+        assertMatch(matches.get(0), 1, 3, 1);
+        assertMatch(matches.get(1), 7, 2, 0);
+        assertMatch(matches.get(2), 10, 4, 2);
+        assertMatch(matches.get(3), 14, 2, 0);
+    }
+
+
+    /**
+     * Test replace
+     */
+    @Test
+    public void testReplace() {
+        Map<ByteArray, ByteArray> replacements = new LinkedHashMap<ByteArray, ByteArray>();
+        replacements.put(new ByteArray("\r\n"), new ByteArray("\n"));
+        replacements.put(new ByteArray("\t"), new ByteArray("    "));
+        replacements.put(new ByteArray("${name}"), new ByteArray("toolarium"));
+        replacements.put(new ByteArray("${n}"), new ByteArray("x"));
+        replacements.put(new ByteArray("ignore"), null);
+
+        ByteArray data = new ByteArray("\tHello ${name}!\r\n${n}${name}\r\n\r");
+        assertEquals(new ByteArray("    Hello toolarium!\nxtoolarium\n\r"), data.replace(replacements));
+        assertEquals(new ByteArray("abc"), new ByteArray("abc").replace(replacements));
+        assertEquals(new ByteArray(""), new ByteArray().replace(replacements));
+        assertSame(data, data.replace(new LinkedHashMap<ByteArray, ByteArray>()));
+        assertSame(data, data.replace((Map<ByteArray, ByteArray>) null));
+
+        // overlapping keys, the longest at the leftmost position wins
+        replacements = new LinkedHashMap<ByteArray, ByteArray>();
+        replacements.put(new ByteArray("AB"), new ByteArray("1"));
+        replacements.put(new ByteArray("ABC"), new ByteArray("2"));
+        replacements.put(new ByteArray("BCD"), new ByteArray("3"));
+        assertEquals(new ByteArray("2D13x"), new ByteArray("ABCDABBCDx").replace(replacements));
+    }
+
+
+    /**
+     * Compare the single pass replace with the replace of each pattern on random data
+     */
+    @Test
+    public void testReplaceRandomData() {
+        Random random = new Random(4711);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append((char) ('a' + random.nextInt(8)));
+        }
+
+        // no suffix of a pattern is a prefix of another pattern and the removal is done last
+        List<ByteArray> patterns = Arrays.asList(new ByteArray("ab"), new ByteArray("cde"), new ByteArray("hhh"), new ByteArray("fg"));
+        List<ByteArray> newData = Arrays.asList(new ByteArray("1"), new ByteArray("22"), new ByteArray("4444"), new ByteArray(""));
+
+        ByteArray expected = new ByteArray(builder.toString());
+        for (int i = 0; i < patterns.size(); i++) {
+            expected = expected.replace(patterns.get(i), newData.get(i));
+        }
+
+        assertEquals(expected, new ByteArrayMatcher(patterns).replace(new ByteArray(builder.toString()), newData));
+    }
+
+
+    /**
+     * Assert a match
+     *
+     * @param match the match
+     * @param start the expected start
+     * @param length the expected length
+     * @param patternIndex the expected pattern index
+     */
+    private void assertMatch(ByteArrayMatcher.Match match, int start, int length, int patternIndex) {
+        assertEquals(start, match.getStart());
+        assertEquals(length, match.getLength());
+        assertEquals(start + length, match.getEnd());
+        assertEquals(patternIndex, match.getPatternIndex());
+    }
+}
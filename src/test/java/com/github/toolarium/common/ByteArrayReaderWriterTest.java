@@ -0,0 +1,116 @@
+/*
+ * ByteArrayReaderWriterTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArrayReader} and {@link ByteArrayWriter}.
+ *
+ * @author patrick
+ */
+public class ByteArrayReaderWriterTest {
+
+    /**
+     * Compare the encoding with the byte buffer in both byte orders
+     */
+    @Test
+    public void testByteOrder() {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer expected = ByteBuffer.allocate(64).order(order);
+            expected.put((byte) -2).putShort((short) -12345).putInt(0x12345678).putLong(0x0102030405060708L).putFloat(1.5f).putDouble(-2.25d).putInt(-1);
+            expected.flip();
+            byte[] expectedBytes = new byte[expected.remaining()];
+            expected.get(expectedBytes);
+
+            ByteArrayWriter writer = new ByteArrayWriter(ByteArray.createByteArrayWithSize(1)).order(order);
+            writer.writeByte(-2).writeShort(-12345).writeInt(0x12345678).writeLong(0x0102030405060708L).writeFloat(1.5f).writeDouble(-2.25d).writeInt(-1);
+            assertEquals(order, writer.order());
+            assertEquals(expectedBytes.length, writer.position());
+            assertArrayEquals(expectedBytes, writer.getByteArray().toBytes());
+            assertEquals(new ByteArray(expectedBytes).hashCode(), writer.getByteArray().hashCode());
+
+            ByteArrayReader reader = new ByteArrayReader(writer.getByteArray()).order(order);
+            assertEquals(-2, reader.readByte());
+            assertEquals(-12345, reader.readShort());
+            assertEquals(0x12345678, reader.readInt());
+            assertEquals(0x0102030405060708L, reader.readLong());
+            assertEquals(1.5f, reader.readFloat());
+            assertEquals(-2.25d, reader.readDouble());
+            assertEquals(0xFFFFFFFFL, reader.readUnsignedInt());
+            assertFalse(reader.hasRemaining());
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> reader.readByte());
+
+            // absolute access
+            assertEquals(0x12345678, reader.getInt(3));
+            assertEquals(0x0102030405060708L, reader.getLong(7));
+            assertEquals(-12345, reader.getShort(1));
+            assertEquals(0xFE, reader.position(0).readUnsignedByte());
+            assertEquals(65536 - 12345, reader.readUnsignedShort());
+        }
+    }
+
+
+    /**
+     * Test variable length values
+     */
+    @Test
+    public void testVarInt() {
+        long[] values = new long[] {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+        ByteArrayWriter writer = new ByteArrayWriter();
+        for (long value : values) {
+            writer.writeVarLong(value);
+        }
+        writer.writeVarInt(-1);
+        writer.writeVarInt(300);
+
+        ByteArrayReader reader = new ByteArrayReader(writer.getByteArray());
+        for (long value : values) {
+            assertEquals(value, reader.readVarLong());
+        }
+        assertEquals(-1, reader.readVarInt());
+        assertEquals(300, reader.readVarInt());
+        assertFalse(reader.hasRemaining());
+
+        assertArrayEquals(new byte[] {(byte) 0xAC, 0x02}, new ByteArrayWriter().writeVarInt(300).getByteArray().toBytes());
+        assertEquals(1, new ByteArrayWriter().writeVarLong(0).position());
+        assertEquals(10, new ByteArrayWriter().writeVarLong(-1L).position());
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayReader(new ByteArrayWriter().writeVarLong(-1L).getByteArray()).readVarInt());
+    }
+
+
+    /**
+     * Test slices, bytes and patching
+     */
+    @Test
+    public void testSliceAndPatch() {
+        ByteArrayWriter writer = new ByteArrayWriter(new ByteArray("xx"));
+        writer.writeInt(0);
+        writer.writeBytes("payload".getBytes(), 0, 7);
+        writer.putInt(2, 7);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> writer.putLong(6, 0));
+
+        ByteArrayReader reader = new ByteArrayReader(writer.getByteArray().slice(2, writer.position()));
+        int len = reader.readInt();
+        assertEquals(7, len);
+        assertEquals("payload", reader.readSlice(len).toString());
+        assertEquals(0, reader.remaining());
+
+        byte[] dst = new byte[4];
+        new ByteArrayReader("abcdef".getBytes(), 1, 4).skip(1).readBytes(dst, 1, 3);
+        assertArrayEquals(new byte[] {0, 'c', 'd', 'e'}, dst);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> new ByteArrayReader("abcdef".getBytes(), 1, 4).skip(5));
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayReader("abc".getBytes(), 1, 4));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ByteArrayRecordSplitterTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArrayRecordSplitter}.
+ *
+ * @author patrick
+ */
+public class ByteArrayRecordSplitterTest {
+
+    /**
+     * Test split lines
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testSplitLines() throws IOException {
+        List<String> records = split("line1\nline2\n\nline4", ByteArray.NL, 4, 100);
+        assertEquals(4, records.size());
+        assertEquals("line1", records.get(0));
+        assertEquals("line2", records.get(1));
+        assertEquals("", records.get(2));
+        assertEquals("line4", records.get(3));
+
+        assertEquals(2, split("a\nb\n", ByteArray.NL, 1, 100).size());
+        assertEquals(0, split("", ByteArray.NL, 1, 100).size());
+    }
+
+
+    /**
+     * Test delimiters which span chunk boundaries
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testDelimiterAcrossChunks() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            String record = "record-" + i + "-" + "xyz".substring(0, i % 4);
+            expected.add(record);
+            builder.append(record).append("\r\n");
+        }
+
+        for (int chunkSize = 1; chunkSize < 20; chunkSize++) {
+            assertEquals(expected, split(builder.toString(), new ByteArray("\r\n"), chunkSize, 64));
+        }
+
+        assertEquals(expected, split(builder.toString(), new ByteArray("\r\n"), ByteArrayRecordSplitter.DEFAULT_CHUNK_SIZE, ByteArrayRecordSplitter.DEFAULT_MAX_RECORD_SIZE));
+    }
+
+
+    /**
+     * Test the maximal record size
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testMaxRecordSize() throws IOException {
+        assertEquals(1, split("0123456789", ByteArray.NL, 4, 16).size());
+        assertThrows(IOException.class, () -> split("0123456789012345678901234567890123456789\n", ByteArray.NL, 4, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayRecordSplitter(channel(""), new ByteArray()));
+
+        try (ByteArrayRecordSplitter splitter = new ByteArrayRecordSplitter(channel("a\nb"))) {
+            assertEquals("a", splitter.nextRecord().toString());
+            assertEquals("b", splitter.nextRecord().toString());
+            assertNull(splitter.nextRecord());
+            assertNull(splitter.nextRecord());
+            assertEquals(2, splitter.getRecordCount());
+        }
+    }
+
+
+    /**
+     * Split the data
+     *
+     * @param data the data
+     * @param delimiter the delimiter
+     * @param chunkSize the chunk size
+     * @param maxRecordSize the maximal record size
+     * @return the records
+     * @throws IOException in case of an I/O error
+     */
+    private List<String> split(String data, ByteArray delimiter, int chunkSize, int maxRecordSize) throws IOException {
+        List<String> result = new ArrayList<String>();
+        try (ByteArrayRecordSplitter splitter = new ByteArrayRecordSplitter(channel(data), delimiter, chunkSize, maxRecordSize)) {
+            ByteArraySlice record;
+            while ((record = splitter.nextRecord()) != null) {
+                result.add(record.toString());
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Create a channel
+     *
+     * @param data the data
+     * @return the channel
+     */
+    private ReadableByteChannel channel(String data) {
+        return Channels.newChannel(new ByteArrayInputStream(data.getBytes()));
+    }
+}
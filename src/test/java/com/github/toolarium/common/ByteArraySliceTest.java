@@ -0,0 +1,132 @@
+/*
+ * ByteArraySliceTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArraySlice}.
+ *
+ * @author patrick
+ */
+public class ByteArraySliceTest {
+    private static final String RECORD = "name=toolarium;type=common;version=1.0.1";
+
+
+    /**
+     * Test slice creation
+     */
+    @Test
+    public void testSlice() {
+        ByteArray array = new ByteArray("1234567890");
+        assertEquals("1234567890", array.slice().toString());
+        assertEquals("", array.slice(-1, -1).toString());
+        assertEquals("", array.slice(5, 2).toString());
+        assertEquals("12", array.slice(0, 2).toString());
+        assertEquals("67890", array.slice(5, 20).toString());
+        assertEquals("78", array.slice(5, 20).slice(1, 3).toString());
+        assertEquals(5, array.slice(5, 20).length());
+        assertEquals((byte) '6', array.slice(5, 20).get(0));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> array.slice(5, 20).get(5));
+
+        // shares the internal buffer
+        ByteArraySlice slice = array.slice(0, 3);
+        array.set(0, (byte) 'A');
+        assertEquals("A23", slice.toString());
+        assertEquals(new ByteArray("A23"), slice.toByteArray());
+        assertEquals(new ByteArray("xA23"), new ByteArray("x").append(slice));
+    }
+
+
+    /**
+     * Test search in a slice
+     */
+    @Test
+    public void testIndexOf() {
+        ByteArraySlice slice = new ByteArray("xxTest Testyy").slice(2, 11);
+        assertEquals(0, slice.indexOf((byte) 'T'));
+        assertEquals(5, slice.indexOf((byte) 'T', 1));
+        assertEquals(-1, slice.indexOf((byte) 'y'));
+        assertEquals(8, slice.lastIndexOf((byte) 't'));
+        assertEquals(-1, slice.lastIndexOf((byte) 'x'));
+        assertEquals(2, slice.indexOf(new ByteArray("st")));
+        assertEquals(7, slice.indexOf(new ByteArray("st"), 3));
+        assertEquals(-1, slice.indexOf(new ByteArray("ty")));
+        assertEquals(-1, slice.indexOf((ByteArray) null));
+        assertEquals(5, slice.indexOf(new ByteArray("Test").slice(), 1));
+    }
+
+
+    /**
+     * Test starts and ends with
+     */
+    @Test
+    public void testStartsAndEndsWith() {
+        ByteArraySlice slice = new ByteArray("xxTest Testyy").slice(2, 11);
+        assertTrue(slice.startsWith((byte) 'T'));
+        assertTrue(slice.startsWith(new ByteArray("Test ")));
+        assertTrue(slice.startsWith(new ByteArray("Test").slice()));
+        assertFalse(slice.startsWith(new ByteArray("xx")));
+        assertFalse(slice.startsWith(new ByteArray("")));
+        assertFalse(slice.startsWith((ByteArray) null));
+        assertTrue(slice.endsWith((byte) 't'));
+        assertTrue(slice.endsWith(new ByteArray(" Test")));
+        assertTrue(slice.endsWith(new ByteArray("est").slice()));
+        assertFalse(slice.endsWith(new ByteArray("yy")));
+        assertFalse(slice.endsWith(new ByteArray("Test Test ")));
+        assertFalse(new ByteArray().slice().endsWith((byte) 't'));
+    }
+
+
+    /**
+     * Test equals and hash code
+     */
+    @Test
+    public void testEqualsAndHashCode() {
+        ByteArray array = new ByteArray("abcabc");
+        assertEquals(array.slice(0, 3), array.slice(3, 6));
+        assertEquals(array.slice(0, 3).hashCode(), array.slice(3, 6).hashCode());
+        assertEquals(new ByteArray("abc").hashCode(), array.slice(3, 6).hashCode());
+        assertEquals(array.slice(0, 0), new ByteArray().slice());
+        assertNotEquals(array.slice(0, 3), array.slice(1, 4));
+        assertTrue(array.slice(3, 6).contentEquals(new ByteArray("abc")));
+        assertTrue(new ByteArray().slice().contentEquals(new ByteArray("")));
+        assertFalse(array.slice(3, 6).contentEquals(new ByteArray("abd")));
+    }
+
+
+    /**
+     * Tokenize a record without copying the fields
+     */
+    @Test
+    public void testTokenize() {
+        ByteArray record = new ByteArray(RECORD);
+        ByteArraySlice remaining = record.slice();
+        List<ByteArraySlice> fields = new ArrayList<ByteArraySlice>();
+        int idx;
+        while ((idx = remaining.indexOf((byte) ';')) >= 0) {
+            fields.add(remaining.slice(0, idx));
+            remaining = remaining.slice(idx + 1, remaining.length());
+        }
+        fields.add(remaining);
+
+        assertEquals(3, fields.size());
+        assertEquals("name=toolarium", fields.get(0).toString());
+        assertEquals("type=common", fields.get(1).toString());
+        assertEquals("version=1.0.1", fields.get(2).toString());
+        assertTrue(fields.get(2).startsWith(new ByteArray("version=")));
+        assertEquals("1.0.1", fields.get(2).slice(fields.get(2).indexOf((byte) '=') + 1, fields.get(2).length()).toString());
+    }
+}
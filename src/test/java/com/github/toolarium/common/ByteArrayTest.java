@@ -9,11 +9,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.github.toolarium.common.util.ByteUtil;
+import java.nio.ByteBuffer;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -22,6 +26,7 @@ import org.junit.jupiter.api.Test;
  * @author patrick
  */
 public class ByteArrayTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ByteArrayTest.class);
     private static final String TEST_STRING = "12345678901234567890";
 
 
@@ -61,6 +66,55 @@ public class ByteArrayTest {
         assertEqualsHash(new ByteArray("ABCDEFGHIJKLMNOPQRSTUVWXYZ"), new ByteArray("ABCDEFGHIJKLMNOPQRSTUVWXYZ"));
     }
 
+
+    /**
+     * Test the cached hash is invalidated on modification
+     */
+    @Test
+    public void testCachedHash() {
+        ByteArray data = new ByteArray("ABCDEF");
+        assertEquals("ABCDEF".hashCode(), data.hashCode());
+        data.append((byte) 'G');
+        assertEquals("ABCDEFG".hashCode(), data.hashCode());
+        data.set(0, (byte) 'X');
+        assertEquals("XBCDEFG".hashCode(), data.hashCode());
+        data.replace((byte) 'B', (byte) 'Y');
+        assertEquals("XYCDEFG".hashCode(), data.hashCode());
+        data.chopLeft(2);
+        assertEquals("CDEFG".hashCode(), data.hashCode());
+        data.chopRight(1);
+        assertEquals("CDEF".hashCode(), data.hashCode());
+        data.trimLeft((byte) 'C');
+        assertEquals("DEF".hashCode(), data.hashCode());
+        data.write(ByteBuffer.wrap("GH".getBytes()));
+        assertEquals("DEFGH".hashCode(), data.hashCode());
+        data.erase();
+        assertEquals(0, data.hashCode());
+        data.append("AB");
+        assertEquals("AB".hashCode(), data.hashCode());
+    }
+
+
+    /**
+     * Test the 64-bit hash
+     */
+    @Test
+    public void testHash64() {
+        // reference values of XXH64 with seed 0
+        assertEquals(0xEF46DB3751D8E999L, new ByteArray().hash64());
+        assertEquals(0x44BC2CF5AD770999L, new ByteArray("abc").hash64());
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append((char) ('a' + (i % 26)));
+            ByteArray data = new ByteArray("xx" + builder + "yy");
+            assertEquals(new ByteArray(builder).hash64(), data.slice(2, data.length() - 2).hash64());
+            assertEquals(ByteUtil.getInstance().hash64(builder.toString().getBytes()), new ByteArray(builder).hash64());
+        }
+
+        assertTrue(new ByteArray("abcd").hash64() != new ByteArray("abce").hash64());
+    }
+
     
     /**
      * Test trim
@@ -587,6 +641,44 @@ public class ByteArrayTest {
 
     
 
+    /**
+     * Test the growth strategies
+     */
+    @Test
+    public void testGrowthStrategy() {
+        assertEquals(192, ByteArrayGrowthStrategy.FIXED_BLOCK.getNewCapacity(96, 97));
+        assertEquals(96, ByteArrayGrowthStrategy.FIXED_BLOCK.getNewCapacity(0, 1));
+        assertEquals(200, ByteArrayGrowthStrategy.DOUBLING.getNewCapacity(100, 101));
+        assertEquals(500, ByteArrayGrowthStrategy.DOUBLING.getNewCapacity(100, 500));
+        assertEquals(1, ByteArrayGrowthStrategy.DOUBLING.getNewCapacity(0, 1));
+        assertEquals(Integer.MAX_VALUE - 8, ByteArrayGrowthStrategy.DOUBLING.getNewCapacity(Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 9));
+        assertEquals(300, ByteArrayGrowthStrategy.cappedDoubling(1000).getNewCapacity(150, 151));
+        assertEquals(2000, ByteArrayGrowthStrategy.cappedDoubling(1000).getNewCapacity(1000, 1001));
+        assertEquals(1024, ByteArrayGrowthStrategy.fixedBlock(512).getNewCapacity(512, 513));
+        assertThrows(IllegalArgumentException.class, () -> ByteArrayGrowthStrategy.fixedBlock(0));
+        assertThrows(IllegalArgumentException.class, () -> ByteArrayGrowthStrategy.cappedDoubling(0));
+
+        ByteArray array = new ByteArray("12345").setGrowthStrategy(ByteArrayGrowthStrategy.FIXED_BLOCK);
+        array.append((byte) '6');
+        assertEquals(ByteArray.DEFAULT_BLOCK_SIZE, array.capacity());
+        assertEquals("123456", array.toString());
+        assertEquals(ByteArrayGrowthStrategy.DOUBLING, new ByteArray().setGrowthStrategy(null).getGrowthStrategy());
+    }
+
+
+    /**
+     * Benchmark the append of single bytes with the different growth strategies
+     */
+    @Test
+    public void testGrowthStrategyPerformance() {
+        final int size = 1024 * 1024;
+        assertEquals(size, appendBytes(ByteArrayGrowthStrategy.DOUBLING, size, 32));
+        assertEquals(size, appendBytes(ByteArrayGrowthStrategy.cappedDoubling(64 * 1024), size, 64));
+
+        // the fixed block strategy copies the data again and again, therefore only a smaller payload
+        assertEquals(64 * 1024, appendBytes(ByteArrayGrowthStrategy.FIXED_BLOCK, 64 * 1024, 1024));
+    }
+
     
     /**
      * Test the hash code of the given object
@@ -598,6 +690,36 @@ public class ByteArrayTest {
         assertEquals(o1.hashCode(), o2.hashCode());
     }
 
+
+    /**
+     * Append single bytes and verify the number of internal buffer reallocations
+     *
+     * @param growthStrategy the growth strategy
+     * @param size the number of bytes to append
+     * @param maxReallocations the max number of reallocations
+     * @return the length of the byte array
+     */
+    private int appendBytes(IByteArrayGrowthStrategy growthStrategy, int size, int maxReallocations) {
+        ByteArray array = new ByteArray().setGrowthStrategy(growthStrategy);
+        int reallocations = 0;
+        int capacity = array.capacity();
+
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            array.append((byte) i);
+            if (capacity != array.capacity()) {
+                capacity = array.capacity();
+                reallocations++;
+            }
+        }
+
+        final long duration = System.nanoTime() - startTime;
+        LOG.debug("Append " + size + " bytes with " + growthStrategy + " growth: " + (duration / 1000000) + "ms, " + (duration / size) + "ns per append, " + reallocations + " reallocations.");
+        assertTrue(reallocations <= maxReallocations, "Too many reallocations: " + reallocations);
+        assertEquals((byte) (size - 1), array.get(size - 1));
+        return array.length();
+    }
+
     
     /**
      * Test the hash code of the given object
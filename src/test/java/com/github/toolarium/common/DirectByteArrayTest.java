@@ -0,0 +1,117 @@
+/*
+ * DirectByteArrayTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.common.util.BytePattern;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link DirectByteArray}.
+ *
+ * @author patrick
+ */
+public class DirectByteArrayTest {
+
+    /**
+     * Test append and access
+     */
+    @Test
+    public void testAppend() {
+        DirectByteArray array = new DirectByteArray(2);
+        array.append((byte) 'a').append("bcd".getBytes()).append(new ByteArray("ef")).append(new ByteArray("xghx").slice(1, 3)).append(ByteBuffer.wrap("ij".getBytes()));
+        assertEquals(10, array.length());
+        assertTrue(array.capacity() >= 10);
+        assertTrue(array.toByteBuffer().isDirect());
+        assertEquals("abcdefghij", array.toString());
+        assertEquals(new ByteArray("abcdefghij"), array.toByteArray());
+        assertArrayEquals("abcdefghij".getBytes(), array.toBytes());
+        assertEquals(new ByteArray("abcdefghij").toHex(), array.toHex());
+        assertEquals(new ByteArray("abcdefghij").hashCode(), array.hashCode());
+        assertEquals((byte) 'c', array.get(2));
+        assertEquals((byte) 'c', array.set(2, (byte) 'C'));
+        assertEquals("abCdefghij", array.toString());
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> array.get(10));
+
+        assertEquals(new DirectByteArray(new ByteArray("abCdefghij")), array);
+        assertNotEquals(new DirectByteArray(new ByteArray("abcdefghij")), array);
+        assertTrue(array.contentEquals(new ByteArray("abCdefghij")));
+        assertFalse(array.contentEquals(new ByteArray("abCdefghi")));
+        assertEquals(0, array.erase().length());
+        assertEquals(0, new DirectByteArray(new ByteArray()).length());
+    }
+
+
+    /**
+     * Test search
+     */
+    @Test
+    public void testIndexOf() {
+        DirectByteArray array = new DirectByteArray(new ByteArray("Test Test Test"));
+        assertEquals(0, array.indexOf((byte) 'T'));
+        assertEquals(5, array.indexOf((byte) 'T', 1));
+        assertEquals(13, array.lastIndexOf((byte) 't'));
+        assertEquals(-1, array.indexOf((byte) 'x'));
+        assertEquals(2, array.indexOf(new ByteArray("st")));
+        assertEquals(7, array.indexOf(new ByteArray("st"), 3));
+        assertEquals(10, array.indexOf(new BytePattern(new ByteArray("Test")), 6));
+        assertEquals(-1, array.indexOf(new ByteArray("tx")));
+        assertEquals(-1, array.indexOf((IByteArray) null));
+    }
+
+
+    /**
+     * Read from a channel, search and write to another channel
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testChannels() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+
+        DirectByteArray array = new DirectByteArray(16);
+        ReadableByteChannel input = Channels.newChannel(new ByteArrayInputStream(builder.toString().getBytes()));
+        while (array.readFrom(input) >= 0) {
+            // NOP
+        }
+
+        assertEquals(builder.length(), array.length());
+        assertEquals(builder.indexOf("line 999"), array.indexOf(new ByteArray("line 999")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel output = Channels.newChannel(out);
+        assertEquals(builder.length(), array.writeTo(output));
+        assertEquals(builder.toString(), out.toString());
+
+        // channel interfaces
+        assertEquals(array.length(), new DirectByteArray().append(array).length());
+        DirectByteArray target = new DirectByteArray();
+        assertEquals(3, target.write(ByteBuffer.wrap("abc".getBytes())));
+        ByteBuffer dst = ByteBuffer.allocate(2);
+        assertEquals(2, target.read(dst));
+        assertEquals("ab", new String(dst.array()));
+        target.close();
+        assertFalse(target.isOpen());
+        assertEquals(0, target.write(ByteBuffer.wrap("abc".getBytes())));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * ByteBandwidthThrottlingTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.bandwidth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test {@link ByteBandwidthThrottling}.
+ *
+ * @author patrick
+ */
+public class ByteBandwidthThrottlingTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ByteBandwidthThrottlingTest.class);
+
+
+    /**
+     * Test the pacing
+     */
+    @Test
+    public void testPacing() {
+        long bandwidth = 2 * 1024 * 1024;
+        ByteBandwidthThrottling throttling = new ByteBandwidthThrottling(bandwidth, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 32; i++) {
+            assertFalse(throttling.bandwidthCheck(16 * 1024));
+        }
+        long duration = (System.nanoTime() - start) / 1_000_000L;
+        LOG.debug(throttling.toString());
+
+        // 512 KB with 2 MB/s takes 250 ms
+        assertTrue(duration >= 240, "Duration: " + duration);
+        assertEquals(512 * 1024, throttling.getCounter());
+        assertTrue(throttling.getCurrentBandwidth() <= bandwidth * 1.05, "Bandwidth: " + throttling.getCurrentBandwidth());
+        assertEquals(32, throttling.getBandwidthStatisticCounter().getCounter());
+        assertEquals(32, throttling.getSleepStatisticCounter().getCounter());
+
+        // the sleeps are short, no sleep exceeds the time of a chunk substantially
+        assertTrue(throttling.getSleepStatisticCounter().getMaxValue() < 100, "Max sleep: " + throttling.getSleepStatisticCounter().getMaxValue());
+    }
+
+
+    /**
+     * Test without bandwidth
+     */
+    @Test
+    public void testNoBandwidth() {
+        ByteBandwidthThrottling throttling = new ByteBandwidthThrottling();
+        assertNull(throttling.getStartTime());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            throttling.bandwidthCheck(1024 * 1024);
+        }
+        assertTrue((System.nanoTime() - start) / 1_000_000L < 1000);
+        assertEquals(1000L * 1024 * 1024, throttling.getCounter());
+
+        throttling.reset();
+        assertEquals(0, throttling.getCounter());
+        assertNull(throttling.getStartTime());
+        assertEquals(0, throttling.getCurrentBandwidth());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ByteArrayPoolTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.common.ByteArray;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteArrayPool}.
+ *
+ * @author patrick
+ */
+public class ByteArrayPoolTest {
+
+    /**
+     * Test acquire and release
+     */
+    @Test
+    public void testAcquireAndRelease() {
+        ByteArrayPool pool = new ByteArrayPool(64, 1024, 4);
+
+        ByteArray first;
+        try (PooledByteArray pooledByteArray = pool.acquire(100)) {
+            first = pooledByteArray.getByteArray();
+            assertEquals(0, first.length());
+            assertEquals(128, first.capacity());
+            first.append("test data");
+        }
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(1, pool.getReleaseCount());
+
+        try (PooledByteArray pooledByteArray = pool.acquire(128)) {
+            assertSame(first, pooledByteArray.getByteArray());
+            assertEquals(0, pooledByteArray.getByteArray().length());
+        }
+
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(2, pool.getReleaseCount());
+    }
+
+
+    /**
+     * Test the released state
+     */
+    @Test
+    public void testReleaseTwice() {
+        ByteArrayPool pool = new ByteArrayPool(64, 1024, 4);
+        PooledByteArray pooledByteArray = pool.acquire(10);
+        assertFalse(pooledByteArray.isReleased());
+        pooledByteArray.release();
+        pooledByteArray.release();
+        assertTrue(pooledByteArray.isReleased());
+        assertEquals(1, pool.getReleaseCount());
+        assertThrows(IllegalStateException.class, () -> pooledByteArray.getByteArray());
+    }
+
+
+    /**
+     * Test the size classes and discard
+     */
+    @Test
+    public void testSizeClasses() {
+        ByteArrayPool pool = new ByteArrayPool(64, 1024, 1);
+
+        // too large to be pooled
+        try (PooledByteArray pooledByteArray = pool.acquire(4096)) {
+            assertTrue(pooledByteArray.getByteArray().capacity() >= 4096);
+        }
+        assertEquals(1, pool.getDiscardCount());
+
+        // grown array is given back to the matching size class
+        try (PooledByteArray pooledByteArray = pool.acquire(64)) {
+            pooledByteArray.getByteArray().append(new byte[300]);
+        }
+
+        try (PooledByteArray pooledByteArray = pool.acquire(256)) {
+            assertTrue(pooledByteArray.getByteArray().capacity() >= 256);
+        }
+        assertEquals(1, pool.getHitCount());
+
+        // closed arrays are not pooled
+        PooledByteArray pooledByteArray = pool.acquire(64);
+        pooledByteArray.getByteArray().close();
+        pooledByteArray.release();
+        assertEquals(2, pool.getDiscardCount());
+
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayPool(0, 1024, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayPool(1024, 64, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayPool(64, 1024, 0));
+    }
+
+
+    /**
+     * Test the shared buckets with multiple threads
+     *
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ByteArrayPool pool = new ByteArrayPool();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        try (PooledByteArray a = pool.acquire(512); PooledByteArray b = pool.acquire(512)) {
+                            a.getByteArray().append("a" + i);
+                            b.getByteArray().append("b" + i);
+                            if (a.getByteArray() == b.getByteArray() || !("a" + i).equals(a.getByteArray().toString())) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                    }
+                    return Boolean.TRUE;
+                }));
+            }
+
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(16000, pool.getHitCount() + pool.getMissCount());
+        assertTrue(pool.getHitCount() > pool.getAllocationCount());
+    }
+}
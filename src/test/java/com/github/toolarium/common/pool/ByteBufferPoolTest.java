@@ -0,0 +1,109 @@
+/*
+ * ByteBufferPoolTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ByteBufferPool}.
+ *
+ * @author patrick
+ */
+public class ByteBufferPoolTest {
+
+    /**
+     * Test acquire and release of heap and direct buffers
+     */
+    @Test
+    public void testAcquireAndRelease() {
+        ByteBufferPool pool = new ByteBufferPool(1024, 8192);
+
+        ByteBuffer direct;
+        try (PooledByteBuffer pooledByteBuffer = pool.acquire(1500, true)) {
+            direct = pooledByteBuffer.getByteBuffer();
+            assertTrue(direct.isDirect());
+            assertEquals(2048, direct.capacity());
+            assertEquals(1500, direct.limit());
+            assertEquals(0, direct.position());
+            direct.put((byte) 1);
+        }
+
+        ByteBuffer heap;
+        try (PooledByteBuffer pooledByteBuffer = pool.acquire(2000, false)) {
+            heap = pooledByteBuffer.getByteBuffer();
+            assertFalse(heap.isDirect());
+            assertEquals(2048, heap.capacity());
+        }
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getAllocationCount());
+        assertEquals(2, pool.getReleaseCount());
+
+        try (PooledByteBuffer a = pool.acquire(2048, true); PooledByteBuffer b = pool.acquire(2048, false)) {
+            assertSame(direct, a.getByteBuffer());
+            assertEquals(0, a.getByteBuffer().position());
+            assertEquals(2048, a.getByteBuffer().limit());
+            assertSame(heap, b.getByteBuffer());
+        }
+        assertEquals(2, pool.getHitCount());
+
+        PooledByteBuffer pooledByteBuffer = pool.acquire(10, true);
+        pooledByteBuffer.release();
+        pooledByteBuffer.release();
+        assertTrue(pooledByteBuffer.isReleased());
+        assertThrows(IllegalStateException.class, () -> pooledByteBuffer.getByteBuffer());
+    }
+
+
+    /**
+     * Test the size classes and discard
+     */
+    @Test
+    public void testSizeClasses() {
+        ByteBufferPool pool = new ByteBufferPool(1000, 4000);
+
+        // too large to be pooled
+        try (PooledByteBuffer pooledByteBuffer = pool.acquire(5000, false)) {
+            assertEquals(5000, pooledByteBuffer.getByteBuffer().capacity());
+        }
+        assertEquals(1, pool.getDiscardCount());
+
+        // two buffers per size class are kept, e.g. for double buffering, the slots of the thread are then occupied
+        try (PooledByteBuffer a = pool.acquire(1024, false); PooledByteBuffer b = pool.acquire(1024, false)) {
+            assertNotSame(a.getByteBuffer(), b.getByteBuffer());
+        }
+        assertEquals(1, pool.getDiscardCount());
+        long hits = pool.getHitCount();
+        try (PooledByteBuffer a = pool.acquire(1024, false); PooledByteBuffer b = pool.acquire(1024, false); PooledByteBuffer c = pool.acquire(1024, false)) {
+            assertNotSame(a.getByteBuffer(), b.getByteBuffer());
+            assertNotSame(b.getByteBuffer(), c.getByteBuffer());
+        }
+        assertEquals(hits + 2, pool.getHitCount());
+        assertEquals(2, pool.getDiscardCount());
+
+        // foreign buffers are taken by their capacity
+        assertTrue(pool.release(ByteBuffer.allocate(3000)));
+        try (PooledByteBuffer pooledByteBuffer = pool.acquire(2048, false)) {
+            assertEquals(3000, pooledByteBuffer.getByteBuffer().capacity());
+        }
+        assertFalse(pool.release(ByteBuffer.allocate(10)));
+        assertFalse(pool.release(null));
+
+        pool.clear();
+        assertThrows(IllegalArgumentException.class, () -> pool.acquire(0, true));
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(1024, 64));
+    }
+}
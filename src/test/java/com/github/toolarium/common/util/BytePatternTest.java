@@ -0,0 +1,158 @@
+/*
+ * BytePatternTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.toolarium.common.ByteArray;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link BytePattern}.
+ *
+ * @author patrick
+ */
+public class BytePatternTest {
+    private static final Logger LOG = LoggerFactory.getLogger(BytePatternTest.class);
+
+
+    /**
+     * Test the index of
+     */
+    @Test
+    public void testIndexOf() {
+        ByteArray source = new ByteArray("abcabcabdabcabd");
+        assertEquals(6, new BytePattern(new ByteArray("abd")).indexOf(source));
+        assertEquals(12, new BytePattern(new ByteArray("abd")).indexOf(source, 7));
+        assertEquals(-1, new BytePattern(new ByteArray("abd")).indexOf(source, 13));
+        assertEquals(-1, new BytePattern(new ByteArray("abx")).indexOf(source));
+        assertEquals(2, new BytePattern(new ByteArray("c")).indexOf(source));
+        assertEquals(0, new BytePattern(new ByteArray("")).indexOf(source));
+        assertEquals(3, new BytePattern(new ByteArray("")).indexOf(source, 3));
+        assertEquals(15, new BytePattern(new ByteArray("")).indexOf(source, 20));
+        assertEquals(0, new BytePattern(new ByteArray("abcabcabdabcabd")).indexOf(source));
+        assertEquals(-1, new BytePattern(new ByteArray("abcabcabdabcabdx")).indexOf(source));
+        assertEquals(-1, new BytePattern(new ByteArray("abc")).indexOf(null));
+
+        // relative to the source offset
+        byte[] data = "xxxxabcabd".getBytes();
+        assertEquals(3, new BytePattern("abd".getBytes()).indexOf(data, 4, 6, 0));
+        assertEquals(-1, new BytePattern("abd".getBytes()).indexOf(data, 4, 5, 0));
+        assertEquals(1, new BytePattern("xxabc".getBytes(), 2, 2).indexOf(data, 3, 7, 0));
+    }
+
+
+    /**
+     * Compare the results with the simple search on random data
+     */
+    @Test
+    public void testRandomData() {
+        Random random = new Random(4711);
+        byte[] source = new byte[64 * 1024];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (byte) ('a' + random.nextInt(4));
+        }
+
+        for (int patternLength = 1; patternLength < 12; patternLength++) {
+            for (int n = 0; n < 20; n++) {
+                int start = random.nextInt(source.length - patternLength);
+                BytePattern pattern = new BytePattern(source, start, patternLength);
+                int fromIndex = random.nextInt(source.length);
+                int expected = simpleIndexOf(source, source, start, patternLength, fromIndex);
+                assertEquals(expected, pattern.indexOf(source, 0, source.length, fromIndex));
+                assertEquals(expected, ByteUtil.getInstance().indexOf(source, 0, source.length, source, start, patternLength, fromIndex));
+            }
+        }
+    }
+
+
+    /**
+     * Test repeated searches of the byte utility with a changed target
+     */
+    @Test
+    public void testIndexOfChangedTarget() {
+        byte[] source = new byte[4096];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (byte) ('a' + (i % 7));
+        }
+        System.arraycopy("wxyz".getBytes(), 0, source, 3000, 4);
+        System.arraycopy("zyxw".getBytes(), 0, source, 2000, 4);
+
+        byte[] target = "wxyz".getBytes();
+        assertEquals(3000, ByteUtil.getInstance().indexOf(source, 0, source.length, target, 0, target.length, 0));
+        assertEquals(3000, ByteUtil.getInstance().indexOf(source, 0, source.length, target, 0, target.length, 100));
+
+        // the same array with a changed content
+        System.arraycopy("zyxw".getBytes(), 0, target, 0, 4);
+        assertEquals(2000, ByteUtil.getInstance().indexOf(source, 0, source.length, target, 0, target.length, 0));
+        assertEquals(-1, ByteUtil.getInstance().indexOf(source, 0, source.length, "zyxwv".getBytes(), 0, 5, 0));
+        assertEquals(2000, ByteUtil.getInstance().indexOf(source, 0, source.length, "zyxwv".getBytes(), 0, 4, 0));
+    }
+
+
+    /**
+     * Compare the performance with the simple search
+     */
+    @Test
+    public void testPerformance() {
+        byte[] source = new byte[8 * 1024 * 1024];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (byte) ('a' + (i % 23));
+        }
+
+        byte[] target = "abcdefghijklmnopqrstuvwX".getBytes();
+        System.arraycopy(target, 0, source, source.length - target.length, target.length);
+        BytePattern pattern = new BytePattern(target);
+
+        int expected = source.length - target.length;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            assertEquals(expected, simpleIndexOf(source, target, 0, target.length, 0));
+            long simpleDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(expected, pattern.indexOf(source, 0, source.length, 0));
+            long patternDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(expected, ByteUtil.getInstance().indexOf(source, 0, source.length, target, 0, target.length, 0));
+            long byteUtilDuration = System.nanoTime() - start;
+
+            LOG.debug("Search " + target.length + " bytes in " + source.length + " bytes, simple: " + (simpleDuration / 1000) + "us, pattern: "
+                      + (patternDuration / 1000) + "us, ByteUtil: " + (byteUtilDuration / 1000) + "us");
+        }
+    }
+
+
+    /**
+     * The simple search as reference implementation
+     *
+     * @param source the source
+     * @param target the target
+     * @param targetOffset the target offset
+     * @param targetCount the target count
+     * @param fromIndex the from index
+     * @return the index or -1
+     */
+    private int simpleIndexOf(byte[] source, byte[] target, int targetOffset, int targetCount, int fromIndex) {
+        for (int i = fromIndex; i <= source.length - targetCount; i++) {
+            int j = 0;
+            while (j < targetCount && source[i + j] == target[targetOffset + j]) {
+                j++;
+            }
+
+            if (j == targetCount) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
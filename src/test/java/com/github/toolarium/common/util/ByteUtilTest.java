@@ -0,0 +1,263 @@
+/*
+ * ByteUtilTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.common.ByteArray;
+import com.github.toolarium.common.ByteArrayReader;
+import com.github.toolarium.common.ByteArrayWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link ByteUtil}.
+ *
+ * @author patrick
+ */
+public class ByteUtilTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ByteUtilTest.class);
+
+
+    /**
+     * Test hex encoding and decoding
+     */
+    @Test
+    public void testHex() {
+        byte[] data = new byte[] {0, 0x11, (byte) 0xAB, (byte) 0xFF, 0x7F};
+        assertEquals("0011ABFF7F", ByteUtil.getInstance().toHex(data));
+        assertEquals("11abff", ByteUtil.getInstance().toHex(data, 1, 3, false));
+        assertArrayEquals(data, ByteUtil.getInstance().toByteArray("0011ABFF7F"));
+        assertArrayEquals(data, ByteUtil.getInstance().toByteArray("00:11:ab:ff:7f:a"));
+        assertArrayEquals(new byte[0], ByteUtil.getInstance().toByteArray(""));
+
+        char[] encoded = new char[12];
+        assertEquals(10, ByteUtil.getInstance().encodeHex(data, 0, data.length, encoded, 2, true));
+        assertEquals("0011ABFF7F", new String(encoded, 2, 10));
+
+        assertEquals(new ByteArray(data), new ByteArray().appendHex("0011ABFF7F"));
+        assertEquals(new ByteArray("ABC"), new ByteArray("A").appendHex("4243"));
+        assertEquals("414243", new ByteArray("ABC").slice().toHex());
+    }
+
+
+    /**
+     * Test Base64 encoding and decoding
+     */
+    @Test
+    public void testBase64() {
+        assertEquals("", ByteUtil.getInstance().toBase64(new byte[0]));
+        assertEquals("QQ==", ByteUtil.getInstance().toBase64("A".getBytes()));
+        assertEquals("QUI=", ByteUtil.getInstance().toBase64("AB".getBytes()));
+        assertEquals("QUJD", ByteUtil.getInstance().toBase64("ABC".getBytes()));
+        assertArrayEquals("AB".getBytes(), ByteUtil.getInstance().fromBase64("QUI="));
+        assertArrayEquals("AB".getBytes(), ByteUtil.getInstance().fromBase64("QU\r\nI"));
+        assertArrayEquals(new byte[] {(byte) 0xFB, (byte) 0xFF}, ByteUtil.getInstance().fromBase64("-_8="));
+        assertThrows(IllegalArgumentException.class, () -> ByteUtil.getInstance().fromBase64("QU*I"));
+        assertThrows(IllegalArgumentException.class, () -> ByteUtil.getInstance().fromBase64("QUJDR"));
+
+        assertEquals("QUJD", new ByteArray("ABC").toBase64());
+        assertEquals(new ByteArray("xABC"), new ByteArray("x").appendBase64("QUJD"));
+
+        Random random = new Random(4711);
+        for (int len = 0; len < 300; len++) {
+            byte[] data = new byte[len];
+            random.nextBytes(data);
+            String expected = Base64.getEncoder().encodeToString(data);
+            assertEquals(expected, ByteUtil.getInstance().toBase64(data));
+            assertArrayEquals(data, ByteUtil.getInstance().fromBase64(expected));
+            assertEquals(ByteUtil.getInstance().getBase64Length(len), expected.length());
+        }
+    }
+
+
+    /**
+     * Test the streaming variants
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testStream() throws IOException {
+        byte[] data = new byte[100 * 1024 + 1];
+        new Random(4711).nextBytes(data);
+
+        StringWriter hex = new StringWriter();
+        assertEquals(data.length, ByteUtil.getInstance().encodeHex(new ByteArrayInputStream(data), hex, true));
+        assertEquals(ByteUtil.getInstance().toHex(data), hex.toString());
+
+        ByteArrayOutputStream base64 = new ByteArrayOutputStream();
+        assertEquals(data.length, ByteUtil.getInstance().encodeBase64(new ByteArrayInputStream(data), base64));
+        assertEquals(Base64.getEncoder().encodeToString(data), base64.toString());
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        byte[] mime = Base64.getMimeEncoder().encode(data);
+        assertEquals(data.length, ByteUtil.getInstance().decodeBase64(new ByteArrayInputStream(mime), decoded));
+        assertArrayEquals(data, decoded.toByteArray());
+    }
+
+
+    /**
+     * Test variable length values and the zigzag encoding
+     */
+    @Test
+    public void testVarInt() {
+        byte[] buffer = new byte[12];
+        long[] values = new long[] {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+        for (long value : values) {
+            int size = ByteUtil.getInstance().putVarLong(buffer, 2, value);
+            assertEquals(ByteUtil.getInstance().getVarLongSize(value), size);
+            assertEquals(value, ByteUtil.getInstance().getVarLong(buffer, 2));
+            assertEquals(value, ByteUtil.getInstance().decodeZigZag(ByteUtil.getInstance().encodeZigZag(value)));
+        }
+
+        assertEquals(2, ByteUtil.getInstance().putVarInt(buffer, 0, 300));
+        assertEquals((byte) 0xAC, buffer[0]);
+        assertEquals(0x02, buffer[1]);
+        assertEquals(300, ByteUtil.getInstance().getVarInt(buffer, 0));
+        assertEquals(5, ByteUtil.getInstance().putVarInt(buffer, 0, -1));
+        assertEquals(-1, ByteUtil.getInstance().getVarInt(buffer, 0));
+        assertEquals(10, ByteUtil.getInstance().putVarLong(buffer, 0, -1L));
+        assertThrows(IllegalArgumentException.class, () -> ByteUtil.getInstance().getVarInt(buffer, 0));
+
+        assertEquals(0, ByteUtil.getInstance().encodeZigZag(0));
+        assertEquals(1, ByteUtil.getInstance().encodeZigZag(-1));
+        assertEquals(2, ByteUtil.getInstance().encodeZigZag(1));
+        assertEquals(3L, ByteUtil.getInstance().encodeZigZag(-2L));
+        assertEquals(-1, ByteUtil.getInstance().encodeZigZag(Integer.MIN_VALUE));
+        assertEquals(Integer.MIN_VALUE, ByteUtil.getInstance().decodeZigZag(-1));
+    }
+
+
+    /**
+     * Test the delta encoding round trip
+     */
+    @Test
+    public void testDeltaVarLong() {
+        Random random = new Random(4711);
+        long[] values = new long[1000];
+        int[] intValues = new int[values.length];
+        values[0] = System.currentTimeMillis();
+        intValues[0] = -5;
+        for (int i = 1; i < values.length; i++) {
+            values[i] = values[i - 1] + random.nextInt(100);
+            intValues[i] = intValues[i - 1] + random.nextInt(100) - 20;
+        }
+        values[500] = Long.MIN_VALUE;
+        values[501] = Long.MAX_VALUE;
+        intValues[500] = Integer.MIN_VALUE;
+        intValues[501] = Integer.MAX_VALUE;
+
+        byte[] encoded = new byte[values.length * 10];
+        int size = ByteUtil.getInstance().encodeDeltaVarLong(values, 0, values.length, encoded, 0);
+        assertTrue(size < values.length * 2 + 40);
+        long[] decoded = new long[values.length];
+        assertEquals(size, ByteUtil.getInstance().decodeDeltaVarLong(encoded, 0, size, decoded, 0, decoded.length));
+        assertArrayEquals(values, decoded);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> ByteUtil.getInstance().decodeDeltaVarLong(encoded, 0, size - 1, decoded, 0, decoded.length));
+
+        int intSize = ByteUtil.getInstance().encodeDeltaVarInt(intValues, 0, intValues.length, encoded, 0);
+        int[] decodedInts = new int[intValues.length];
+        assertEquals(intSize, ByteUtil.getInstance().decodeDeltaVarInt(encoded, 0, intSize, decodedInts, 0, decodedInts.length));
+        assertArrayEquals(intValues, decodedInts);
+
+        ByteArrayWriter writer = new ByteArrayWriter().writeSignedVarLong(-3).writeDeltaVarLongs(values, 0, values.length).writeSignedVarInt(-64).writeDeltaVarInts(intValues, 0, intValues.length);
+        ByteArrayReader reader = new ByteArrayReader(writer.getByteArray());
+        assertEquals(-3, reader.readSignedVarLong());
+        long[] readValues = new long[values.length];
+        reader.readDeltaVarLongs(readValues, 0, readValues.length);
+        assertArrayEquals(values, readValues);
+        assertEquals(-64, reader.readSignedVarInt());
+        int[] readInts = new int[intValues.length];
+        reader.readDeltaVarInts(readInts, 0, readInts.length);
+        assertArrayEquals(intValues, readInts);
+        assertEquals(0, reader.remaining());
+        assertEquals(1, new ByteArrayWriter().writeSignedVarInt(-64).position());
+    }
+
+
+    /**
+     * Compare the throughput of the delta variable length encoding with fixed 8 byte longs
+     */
+    @Test
+    public void testDeltaVarLongPerformance() {
+        long[] values = new long[1000000];
+        values[0] = System.currentTimeMillis();
+        Random random = new Random(4711);
+        for (int i = 1; i < values.length; i++) {
+            values[i] = values[i - 1] + random.nextInt(1000);
+        }
+
+        byte[] fixed = new byte[values.length * 8];
+        byte[] encoded = new byte[values.length * 10];
+        long[] decoded = new long[values.length];
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < values.length; i++) {
+                ByteUtil.getInstance().putLong(fixed, i * 8, values[i], ByteOrder.BIG_ENDIAN);
+            }
+            long fixedDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int size = ByteUtil.getInstance().encodeDeltaVarLong(values, 0, values.length, encoded, 0);
+            long encodeDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ByteUtil.getInstance().decodeDeltaVarLong(encoded, 0, size, decoded, 0, decoded.length);
+            long decodeDuration = System.nanoTime() - start;
+            assertArrayEquals(values, decoded);
+
+            LOG.debug("Encode " + values.length + " longs, fixed: " + fixed.length + " bytes in " + (fixedDuration / 1000) + "us, delta varint: " + size + " bytes in "
+                      + (encodeDuration / 1000) + "us, decode: " + (decodeDuration / 1000) + "us");
+        }
+    }
+
+
+    /**
+     * Compare the performance of the table driven hex encoding with the previous implementation
+     */
+    @Test
+    public void testHexPerformance() {
+        byte[] data = new byte[1024 * 1024];
+        new Random(4711).nextBytes(data);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            StringBuilder hexNumber = new StringBuilder(data.length * 2);
+            for (int i = 0; i < data.length; i++) {
+                int b = data[i] & 0xFF;
+                if (b < 0x10) {
+                    hexNumber.append('0');
+                }
+                hexNumber.append(Integer.toHexString(b).toUpperCase());
+            }
+            long simpleDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            String hex = ByteUtil.getInstance().toHex(data);
+            long tableDuration = System.nanoTime() - start;
+            assertEquals(hexNumber.toString(), hex);
+
+            start = System.nanoTime();
+            ByteArray decoded = new ByteArray().appendHex(hex);
+            long decodeDuration = System.nanoTime() - start;
+            assertEquals(data.length, decoded.length());
+
+            LOG.debug("Hex encode " + data.length + " bytes, simple: " + (simpleDuration / 1000) + "us, table: " + (tableDuration / 1000) + "us, decode: " + (decodeDuration / 1000) + "us");
+        }
+    }
+}
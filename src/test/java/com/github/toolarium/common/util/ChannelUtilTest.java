@@ -0,0 +1,470 @@
+/*
+ * ChannelUtilTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.common.bandwidth.ByteBandwidthThrottling;
+import com.github.toolarium.common.pool.ByteBufferPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link ChannelUtil}.
+ *
+ * @author patrick
+ */
+public class ChannelUtilTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ChannelUtilTest.class);
+
+
+    /**
+     * Test the copy between streams
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testStreamCopy() throws IOException {
+        byte[] data = createData(100_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, ChannelUtil.getInstance().channelCopy(new ByteArrayInputStream(data), out));
+        assertArrayEquals(data, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        ChannelCopyResult result = ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(out), 7);
+        assertEquals(data.length, result.getSize());
+        assertFalse(result.isZeroCopy());
+        assertTrue(result.getBytesPerSecond() > 0);
+        assertArrayEquals(data, out.toByteArray());
+
+        assertThrows(IllegalArgumentException.class, () -> ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(new ByteArrayOutputStream()), 0));
+    }
+
+
+    /**
+     * Test the copy with file channels
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testFileChannelCopy() throws IOException {
+        byte[] data = createData(300_000);
+        Path source = Files.createTempFile("channelutil", ".src");
+        Path target = Files.createTempFile("channelutil", ".dest");
+        try {
+            Files.write(source, data);
+
+            // file to file, starting at the current position
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                in.position(10);
+                long acquiredBuffers = acquiredBuffers();
+                ChannelCopyResult result = ChannelUtil.getInstance().copy(in, out, 1024);
+                LOG.debug("File to file: " + result);
+                assertTrue(result.isZeroCopy());
+                assertEquals(acquiredBuffers, acquiredBuffers());
+                assertEquals(data.length - 10, result.getSize());
+                assertEquals(data.length, in.position());
+                assertEquals(data.length - 10, out.position());
+            }
+            assertEquals(data.length - 10, Files.size(target));
+            assertArrayEquals(Arrays.copyOfRange(data, 10, data.length), Files.readAllBytes(target));
+
+            // file to stream
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ); WritableByteChannel outChannel = Channels.newChannel(out)) {
+                assertEquals(data.length, ChannelUtil.getInstance().channelCopy(in, outChannel));
+            }
+            assertArrayEquals(data, out.toByteArray());
+
+            // stream to file
+            try (FileChannel outChannel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long acquiredBuffers = acquiredBuffers();
+                ChannelCopyResult result = ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), outChannel, 4096);
+                assertTrue(result.isZeroCopy());
+                assertEquals(acquiredBuffers, acquiredBuffers());
+                assertEquals(data.length, result.getSize());
+                assertEquals(data.length, outChannel.position());
+            }
+            assertArrayEquals(data, Files.readAllBytes(target));
+
+            // file streams
+            assertEquals(data.length, ChannelUtil.getInstance().channelCopy(new FileInputStream(source.toFile()), new FileOutputStream(target.toFile())));
+            assertArrayEquals(data, Files.readAllBytes(target));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+
+
+    /**
+     * Test the copy with several digests and checksums
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testMultiDigestCopy() throws Exception {
+        byte[] data = createData(1_000_003);
+        String expectedSha256 = ByteUtil.getInstance().toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        String expectedMd5 = ByteUtil.getInstance().toHex(MessageDigest.getInstance("MD5").digest(data));
+        CRC32C expectedCrc = new CRC32C();
+        expectedCrc.update(data, 0, data.length);
+
+        for (boolean parallelHashing : new boolean[] {false, true}) {
+            for (int bufferSize : new int[] {1000, 4096, ChannelUtil.DEFAULT_BUFFER_SIZE}) {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                CRC32C crc = new CRC32C();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ChannelCopyResult result = ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(out), bufferSize, 
+                                                                         Arrays.asList(sha256, md5), Arrays.<Checksum>asList(crc), parallelHashing);
+                assertEquals(data.length, result.getSize());
+                assertArrayEquals(data, out.toByteArray());
+                assertEquals(expectedSha256, ByteUtil.getInstance().toHex(sha256.digest()));
+                assertEquals(expectedMd5, ByteUtil.getInstance().toHex(md5.digest()));
+                assertEquals(expectedCrc.getValue(), crc.getValue());
+            }
+        }
+
+        // stream variants
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        assertEquals(data.length, ChannelUtil.getInstance().channelCopy(new ByteArrayInputStream(data), new ByteArrayOutputStream(), sha256));
+        assertEquals(expectedSha256, ByteUtil.getInstance().toHex(sha256.digest()));
+
+        CRC32C crc = new CRC32C();
+        assertEquals(data.length, ChannelUtil.getInstance().channelCopy(new ByteArrayInputStream(data), new ByteArrayOutputStream(), null, Arrays.<Checksum>asList(crc), true));
+        assertEquals(expectedCrc.getValue(), crc.getValue());
+
+        // repeated parallel copies reuse both pooled buffers and the shared daemon hashing threads
+        long allocations = ByteBufferPool.getInstance().getAllocationCount();
+        for (int i = 0; i < 10; i++) {
+            crc = new CRC32C();
+            ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(new ByteArrayOutputStream()), 4096, null, Arrays.<Checksum>asList(crc), true);
+            assertEquals(expectedCrc.getValue(), crc.getValue());
+        }
+        assertEquals(allocations, ByteBufferPool.getInstance().getAllocationCount());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("ChannelUtil")) {
+                assertTrue(thread.isDaemon());
+            }
+        }
+
+        // a failed write returns only after the running hashing of the buffer is completed
+        AtomicBoolean hashing = new AtomicBoolean();
+        CountDownLatch hashingStarted = new CountDownLatch(1);
+        Checksum slowChecksum = new Checksum() {
+            @Override
+            public void update(int b) {
+                update(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void update(byte[] b, int off, int len) {
+                // like a digest the update doesn't react on an interruption
+                hashing.set(true);
+                hashingStarted.countDown();
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+                while (System.nanoTime() < end) {
+                    Thread.yield();
+                }
+                hashing.set(false);
+            }
+
+            @Override
+            public long getValue() {
+                return 0;
+            }
+
+            @Override
+            public void reset() {
+                // NOP
+            }
+        };
+        WritableByteChannel failingChannel = Channels.newChannel(new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    hashingStarted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Write failed");
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), failingChannel, 4096, null, Arrays.<Checksum>asList(slowChecksum), true));
+        assertFalse(hashing.get());
+
+        // empty source
+        crc = new CRC32C();
+        assertEquals(0, ChannelUtil.getInstance().channelCopy(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), null, Arrays.<Checksum>asList(crc), true));
+        assertEquals(new CRC32C().getValue(), crc.getValue());
+    }
+
+
+    /**
+     * Test the copy with a limited bandwidth
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testThrottledCopy() throws IOException {
+        byte[] data = createData(256 * 1024);
+        ByteBandwidthThrottling throttling = new ByteBandwidthThrottling(1024 * 1024, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChannelCopyResult result = ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(out), 16 * 1024, throttling);
+        LOG.debug("Throttled copy: " + result);
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(result.getDuration() >= 240, "Duration: " + result.getDuration());
+        assertTrue(throttling.getBandwidthStatisticCounter().getCounter() > 0);
+
+        Path source = Files.createTempFile("channelutil", ".src");
+        try {
+            Files.write(source, data);
+            throttling.reset();
+            out = new ByteArrayOutputStream();
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ); WritableByteChannel outChannel = Channels.newChannel(out)) {
+                result = ChannelUtil.getInstance().copy(in, outChannel, 32 * 1024, throttling);
+            }
+            assertTrue(result.isZeroCopy());
+            assertArrayEquals(data, out.toByteArray());
+            assertTrue(result.getDuration() >= 240, "Duration: " + result.getDuration());
+            assertEquals(data.length, throttling.getCounter());
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+
+    /**
+     * Test the asynchronous copy
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testAsyncCopy() throws Exception {
+        byte[] data = createData(1_000_003);
+        Path source = Files.createTempFile("channelutil", ".src");
+        Path target = Files.createTempFile("channelutil", ".dest");
+        try {
+            Files.write(source, data);
+
+            AtomicLong progress = new AtomicLong();
+            AtomicInteger progressCalls = new AtomicInteger();
+            AtomicBoolean listenerActive = new AtomicBoolean();
+            AtomicBoolean listenerOverlap = new AtomicBoolean();
+            CompletableFuture<Long> future = ChannelUtil.getInstance().copyAsync(source, target, 8 * 1024, written -> {
+                // the calls are sequential and in the order of the writes
+                if (!listenerActive.compareAndSet(false, true) || written <= progress.get()) {
+                    listenerOverlap.set(true);
+                }
+                progress.set(written);
+                progressCalls.incrementAndGet();
+                Thread.yield();
+                listenerActive.set(false);
+            });
+            assertEquals(data.length, future.get(30, TimeUnit.SECONDS).longValue());
+            assertFalse(listenerOverlap.get());
+            assertEquals(data.length, progress.get());
+            assertTrue(progressCalls.get() >= data.length / (8 * 1024));
+            assertArrayEquals(data, Files.readAllBytes(target));
+
+            // positions
+            try (AsynchronousFileChannel in = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+                 AsynchronousFileChannel out = AsynchronousFileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                assertEquals(data.length - 3, ChannelUtil.getInstance().copyAsync(in, 3, out, 10, 1000, null).get(30, TimeUnit.SECONDS).longValue());
+            }
+            byte[] result = Files.readAllBytes(target);
+            assertEquals(data.length + 7, result.length);
+            assertArrayEquals(Arrays.copyOfRange(data, 3, data.length), Arrays.copyOfRange(result, 10, result.length));
+
+            // empty file
+            Files.write(source, new byte[0]);
+            assertEquals(0L, ChannelUtil.getInstance().copyAsync(source, target, 1024, null).get(30, TimeUnit.SECONDS).longValue());
+            assertEquals(0, Files.size(target));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+
+
+    /**
+     * Test the cancellation and the error handling of the asynchronous copy
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testAsyncCopyCancelAndError() throws Exception {
+        byte[] data = createData(4 * 1024 * 1024);
+        Path source = Files.createTempFile("channelutil", ".src");
+        Path target = Files.createTempFile("channelutil", ".dest");
+        try {
+            Files.write(source, data);
+
+            CountDownLatch firstWrite = new CountDownLatch(1);
+            CompletableFuture<Long> future = ChannelUtil.getInstance().copyAsync(source, target, 1024, written -> firstWrite.countDown());
+            assertTrue(firstWrite.await(30, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+            assertTrue(future.isCancelled());
+            assertThrows(CancellationException.class, () -> future.join());
+            assertTrue(Files.size(target) <= data.length);
+
+            // a failing progress listener aborts the copy
+            CompletableFuture<Long> failingFuture = ChannelUtil.getInstance().copyAsync(source, target, 1024, written -> {
+                throw new IllegalStateException("Listener failed at " + written);
+            });
+            ExecutionException listenerException = assertThrows(ExecutionException.class, () -> failingFuture.get(30, TimeUnit.SECONDS));
+            assertTrue(listenerException.getCause() instanceof IllegalStateException);
+
+            // the source channel is not readable
+            try (AsynchronousFileChannel in = AsynchronousFileChannel.open(source, StandardOpenOption.WRITE);
+                 AsynchronousFileChannel out = AsynchronousFileChannel.open(target, StandardOpenOption.WRITE)) {
+                assertThrows(ExecutionException.class, () -> ChannelUtil.getInstance().copyAsync(in, 0, out, 0, 1024, null).get(30, TimeUnit.SECONDS));
+            }
+
+            assertThrows(IOException.class, () -> ChannelUtil.getInstance().copyAsync(source.resolveSibling("not-existing-file"), target, 1024, null));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+
+
+    /**
+     * Measure the copy throughput by buffer size and buffer type
+     *
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testBufferSizePerformance() throws IOException {
+        byte[] data = createData(16 * 1024 * 1024);
+        for (boolean direct : new boolean[] {false, true}) {
+            for (int bufferSize = 4 * 1024; bufferSize <= 1024 * 1024; bufferSize *= 4) {
+                // warm up
+                copyToNull(data, bufferSize, direct);
+
+                ChannelCopyResult result = copyToNull(data, bufferSize, direct);
+                assertEquals(data.length, result.getSize());
+                LOG.debug("Copy " + data.length + " bytes with " + (bufferSize / 1024) + " KB " + bufferType(direct) + " buffer: " + result.getDuration() + "ms, " + (result.getBytesPerSecond() / (1024 * 1024)) + " MB/s");
+            }
+        }
+    }
+
+
+    /**
+     * Copy the data to a channel which discards it
+     *
+     * @param data the data
+     * @param bufferSize the buffer size
+     * @param direct true to use a direct buffer
+     * @return the copy result
+     * @throws IOException in case of an I/O error
+     */
+    private ChannelCopyResult copyToNull(byte[] data, int bufferSize, boolean direct) throws IOException {
+        WritableByteChannel nullChannel = new WritableByteChannel() {
+            private boolean open = true;
+
+            /**
+             * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+             */
+            @Override
+            public int write(ByteBuffer src) {
+                int len = src.remaining();
+                src.position(src.limit());
+                return len;
+            }
+
+            /**
+             * @see java.nio.channels.Channel#isOpen()
+             */
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            /**
+             * @see java.nio.channels.Channel#close()
+             */
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+
+        return ChannelUtil.getInstance().copy(Channels.newChannel(new ByteArrayInputStream(data)), nullChannel, bufferSize, direct);
+    }
+
+
+    /**
+     * Gets the buffer type name
+     *
+     * @param direct true for a direct buffer
+     * @return the name
+     */
+    private String bufferType(boolean direct) {
+        if (direct) {
+            return "direct";
+        }
+
+        return "heap";
+    }
+
+
+    /**
+     * Gets the number of buffers acquired from the shared buffer pool
+     *
+     * @return the number of acquired buffers
+     */
+    private long acquiredBuffers() {
+        return ByteBufferPool.getInstance().getHitCount() + ByteBufferPool.getInstance().getMissCount();
+    }
+
+
+    /**
+     * Create random data
+     *
+     * @param size the size
+     * @return the data
+     */
+    private byte[] createData(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * FileCharSequenceTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link FileCharSequence}.
+ *
+ * @author patrick
+ */
+public class FileCharSequenceTest {
+    private static final Logger LOG = LoggerFactory.getLogger(FileCharSequenceTest.class);
+    private static final String CONTENT = "line 1 äöü\r\nline 2 😀 emoji\rline 3 €\n\nlast line without terminator";
+
+
+    /**
+     * Test the lazy decoding with different block sizes and charsets
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void decodeInBlocks() throws IOException {
+        for (Charset charset : new Charset[] {StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, StandardCharsets.ISO_8859_1}) {
+            String expected = new String(CONTENT.getBytes(charset), charset);
+            Path file = Files.createTempFile("filecharsequence", ".txt");
+            try {
+                Files.write(file, expected.getBytes(charset));
+                for (boolean memoryMapped : new boolean[] {false, true}) {
+                    for (int blockSize = 16; blockSize < 100; blockSize += 5) {
+                        try (FileCharSequence content = new FileCharSequence(file, charset, memoryMapped, blockSize)) {
+                            assertEquals(memoryMapped, content.isMemoryMapped());
+                            assertEquals(expected.charAt(40), content.charAt(40));
+                            assertEquals(expected.length(), content.length());
+                            assertEquals(expected, content.toString());
+                            assertEquals(expected.substring(5, 50), content.subSequence(5, 50).toString());
+                            for (int i = expected.length() - 1; i >= 0; i -= 3) {
+                                assertEquals(expected.charAt(i), content.charAt(i));
+                            }
+                            assertThrows(IndexOutOfBoundsException.class, () -> content.charAt(expected.length()));
+                            assertEquals(expected, content.chunks().collect(Collectors.joining()));
+                            assertEquals(new BufferedReader(new StringReader(expected)).lines().collect(Collectors.toList()), content.lines().collect(Collectors.toList()));
+                        }
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+
+    /**
+     * Test the lazy decoding of charsets with a byte order mark
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void decodeInBlocksWithByteOrderMark() throws IOException {
+        String[][] encodings = new String[][] {{"UTF-16LE", "UTF-16"}, {"UTF-16BE", "UTF-16"}, {"UTF-16", "UTF-16"}, {"UTF-16LE", "x-UTF-16LE-BOM"},
+                                               {"UTF-32LE", "UTF-32"}, {"UTF-32BE", "UTF-32"}, {"UTF-32LE", "X-UTF-32LE-BOM"}, {"UTF-32BE", "X-UTF-32BE-BOM"}};
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.append(CONTENT).append('\n');
+        }
+
+        for (String[] encoding : encodings) {
+            Charset charset = Charset.forName(encoding[1]);
+            byte[] bytes = ("\uFEFF" + builder).getBytes(Charset.forName(encoding[0]));
+            if ("UTF-16".equals(encoding[0])) {
+                // the encoder writes the byte order mark itself
+                bytes = builder.toString().getBytes(charset);
+            }
+
+            String expected = new String(bytes, charset);
+            Path file = Files.createTempFile("filecharsequence", ".txt");
+            try {
+                Files.write(file, bytes);
+                for (boolean memoryMapped : new boolean[] {false, true}) {
+                    for (int blockSize = 16; blockSize < 100; blockSize += 16) {
+                        try (FileCharSequence content = new FileCharSequence(file, charset, memoryMapped, blockSize)) {
+                            assertEquals(expected, content.toString(), encoding[0] + " / " + encoding[1] + " / " + blockSize);
+                            assertEquals(expected.charAt(expected.length() - 1), content.charAt(expected.length() - 1));
+                            assertEquals(expected, content.chunks().collect(Collectors.joining()));
+                        }
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+
+    /**
+     * Test the stream methods of the file utility
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void readFileContentAsStream() throws IOException {
+        Path file = Files.createTempFile("filecharsequence", ".txt");
+        try {
+            Files.write(file, new byte[0]);
+            try (FileCharSequence content = FileUtil.getInstance().readFileContentAsCharSequence(file, StandardCharsets.UTF_8, true)) {
+                assertEquals(0, content.length());
+                assertEquals("", content.toString());
+            }
+            try (Stream<String> lines = FileUtil.getInstance().readFileLines(file, StandardCharsets.UTF_8, false)) {
+                assertEquals(0, lines.count());
+            }
+
+            // malformed input is replaced
+            Files.write(file, new byte[] {'a', (byte) 0xC3, 'b'});
+            try (Stream<CharBuffer> chunks = FileUtil.getInstance().readFileContentAsStream(file, StandardCharsets.UTF_8, false)) {
+                assertEquals(new String(new byte[] {'a', (byte) 0xC3, 'b'}, StandardCharsets.UTF_8), chunks.collect(Collectors.joining()));
+            }
+
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) {
+                builder.append("line ").append(i).append(" äöü\n");
+            }
+            Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+
+            try (Stream<String> lines = FileUtil.getInstance().readFileLines(file, StandardCharsets.UTF_8, true)) {
+                List<String> lineList = lines.collect(Collectors.toList());
+                assertEquals(100_000, lineList.size());
+                assertEquals("line 99999 äöü", lineList.get(99_999));
+            }
+
+            try (Stream<CharBuffer> chunks = FileUtil.getInstance().readFileContentAsStream(file, StandardCharsets.UTF_8, false)) {
+                assertEquals(builder.length(), chunks.mapToInt(CharBuffer::remaining).sum());
+            }
+
+            // regular expressions work directly on the lazily decoded content
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                try (FileCharSequence content = FileUtil.getInstance().readFileContentAsCharSequence(file, StandardCharsets.UTF_8, memoryMapped)) {
+                    long start = System.nanoTime();
+                    Matcher matcher = Pattern.compile("line (9999\\d) äöü").matcher(content);
+                    assertTrue(matcher.find());
+                    assertEquals("99990", matcher.group(1));
+                    assertFalse(Pattern.compile("line 100000").matcher(content).find());
+                    LOG.debug("Regex on " + builder.length() + " characters, memory mapped " + memoryMapped + ": " + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
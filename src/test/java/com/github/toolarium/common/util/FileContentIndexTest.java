@@ -0,0 +1,206 @@
+/*
+ * FileContentIndexTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link FileContentIndex}.
+ *
+ * @author patrick
+ */
+public class FileContentIndexTest {
+    private static final Logger LOG = LoggerFactory.getLogger(FileContentIndexTest.class);
+
+
+    /**
+     * Test the required literals of a regular expression
+     */
+    @Test
+    public void requiredLiterals() {
+        assertEquals(Arrays.asList("hello world"), FileContentIndex.getRequiredLiterals("hello world"));
+        assertEquals(Arrays.asList("key", "value"), FileContentIndex.getRequiredLiterals("key\\s*=\\s*value"));
+        assertEquals(Arrays.asList("abc", "ghi"), FileContentIndex.getRequiredLiterals("abc(def)?ghi"));
+        assertEquals(Arrays.asList("abc"), FileContentIndex.getRequiredLiterals("abcx?ghi*"));
+        assertEquals(Arrays.asList("abc"), FileContentIndex.getRequiredLiterals("abcd?"));
+        assertEquals(Arrays.asList("abcd"), FileContentIndex.getRequiredLiterals("abcd+"));
+        assertEquals(Arrays.asList("a.b"), FileContentIndex.getRequiredLiterals("a\\.b[xyz]"));
+        assertEquals(Arrays.asList("a*b"), FileContentIndex.getRequiredLiterals("\\Qa*b\\E"));
+        assertEquals(Arrays.asList("line ", "end"), FileContentIndex.getRequiredLiterals("^line [0-9]{2}.*end$"));
+        assertEquals(Arrays.asList("abc"), FileContentIndex.getRequiredLiterals("[]x]abc[^]]"));
+        assertTrue(FileContentIndex.getRequiredLiterals("\\d+\\w").isEmpty());
+        assertNull(FileContentIndex.getRequiredLiterals("abc|def"));
+        assertNull(FileContentIndex.getRequiredLiterals("(?i)abc"));
+        assertNull(FileContentIndex.getRequiredLiterals("abc(?!def)"));
+        assertEquals(Arrays.asList("bcd", "def"), FileContentIndex.getRequiredLiterals("\\x41bcd\\u0041def"));
+        assertEquals(Arrays.asList("bcd"), FileContentIndex.getRequiredLiterals("\\x{41}\\0101\\cAbcd\\pLx\\p{Lu}\\N{LATIN SMALL LETTER A}"));
+        assertEquals(Arrays.asList("abc"), FileContentIndex.getRequiredLiterals("(?<n>x)\\k<n>abc\\12"));
+        assertEquals(Arrays.asList("Abcd"), FileContentIndex.getRequiredLiterals(" Abcd "));
+        assertEquals(0, FileContentIndex.getRequiredTrigrams("ab").length);
+        assertEquals(2, FileContentIndex.getRequiredTrigrams("abcd").length);
+    }
+
+
+    /**
+     * Test the search by the index
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchByIndex() throws IOException {
+        Path rootDir = Files.createTempDirectory("fileindex");
+        Path indexFile = Files.createTempFile("fileindex", ".idx");
+        Files.delete(indexFile);
+        try {
+            for (int i = 0; i < 20; i++) {
+                Path dir = Files.createDirectories(rootDir.resolve("dir" + (i % 4)));
+                Files.write(dir.resolve("file" + i + ".txt"), ("line " + i + "\nname=value" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            Files.write(rootDir.resolve("other.cfg"), "name=value7\n".getBytes(StandardCharsets.UTF_8));
+
+            FileContentIndex index = new FileContentIndex(rootDir, indexFile);
+            assertEquals(21, index.update());
+            assertEquals(0, index.update());
+            assertTrue(Files.exists(indexFile));
+
+            // the index narrows the candidates, the pattern verifies them
+            assertEquals(2, index.getCandidates("value7").size());
+            assertEquals(21, index.getCandidates("value\\d").size());
+            assertEquals(21, index.getCandidates("value1|value2").size());
+            assertEquals(sorted(FileUtil.getInstance().searchFiles(rootDir, ".txt", "name=value1\\d")),
+                         FileUtil.getInstance().searchFiles(index, ".txt", "name=value1\\d"));
+            assertEquals(sorted(FileUtil.getInstance().searchFiles(rootDir, ".txt", "^line [02-9]")),
+                         FileUtil.getInstance().searchFiles(index, ".txt", "^line [02-9]"));
+            assertEquals(Arrays.asList(rootDir.resolve("dir3").resolve("file7.txt"), rootDir.resolve("other.cfg")),
+                         FileUtil.getInstance().searchFiles(index, null, "value7\n"));
+
+            // incremental update: changed, deleted and new files
+            Path changedFile = rootDir.resolve("dir1").resolve("file5.txt");
+            Files.write(changedFile, "name=changed\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(changedFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+            Files.delete(rootDir.resolve("other.cfg"));
+            Files.write(rootDir.resolve("new.txt"), "name=changed\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals(2, index.update());
+            assertEquals(21, index.size());
+            assertEquals(Arrays.asList(changedFile, rootDir.resolve("new.txt")), FileUtil.getInstance().searchFiles(index, ".txt", "=changed"));
+
+            // reload the stored index
+            FileContentIndex reloadedIndex = new FileContentIndex(rootDir, indexFile);
+            assertEquals(21, reloadedIndex.size());
+            assertEquals(0, reloadedIndex.update());
+            assertEquals(index.getCandidates("value1"), reloadedIndex.getCandidates("value1"));
+
+            // a corrupt index file is rebuilt
+            Files.write(indexFile, "corrupt".getBytes(StandardCharsets.UTF_8));
+            FileContentIndex rebuiltIndex = new FileContentIndex(rootDir, indexFile);
+            assertEquals(0, rebuiltIndex.size());
+            assertEquals(21, rebuiltIndex.update());
+
+            // files with too many trigrams are always candidates
+            FileContentIndex smallIndex = new FileContentIndex(rootDir, null, 3);
+            smallIndex.update();
+            assertEquals(21, smallIndex.getCandidates("does not exist").size());
+        } finally {
+            FileUtil.getInstance().removeDirectory(rootDir);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+
+    /**
+     * Test the search by the index with escape sequences
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchByIndexWithEscapes() throws IOException {
+        Path rootDir = Files.createTempDirectory("fileindex");
+        try {
+            Path file = Files.write(rootDir.resolve("file.txt"), "Abcd\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(rootDir.resolve("other.txt"), "bcd\n".getBytes(StandardCharsets.UTF_8));
+            FileContentIndex index = new FileContentIndex(rootDir);
+            assertEquals(2, index.update());
+
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchFiles(index, ".txt", "\\x41bcd"));
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchFiles(index, ".txt", "\\u0041bcd"));
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchFiles(index, ".txt", "\\0101bcd"));
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchFiles(index, ".txt", " Abcd"));
+        } finally {
+            FileUtil.getInstance().removeDirectory(rootDir);
+        }
+    }
+
+
+    /**
+     * Compare the repeated search by the index with the full search
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchByIndexPerformance() throws IOException {
+        Path rootDir = Files.createTempDirectory("fileindex");
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                builder.append("key").append(i).append(" = some configuration value ").append(i * 31).append('\n');
+            }
+            byte[] content = builder.toString().getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < 200; i++) {
+                Files.write(rootDir.resolve("config" + i + ".properties"), content);
+            }
+            Files.write(rootDir.resolve("special.properties"), "needle = found\n".getBytes(StandardCharsets.UTF_8));
+
+            FileContentIndex index = new FileContentIndex(rootDir);
+            long start = System.nanoTime();
+            index.update();
+            long indexTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Path> indexResult = FileUtil.getInstance().searchFiles(index, null, "needle\\s*=");
+            long indexSearchTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Path> fullResult = FileUtil.getInstance().searchFiles(rootDir, null, "needle\\s*=");
+            long fullSearchTime = System.nanoTime() - start;
+
+            assertEquals(fullResult, indexResult);
+            assertEquals(1, indexResult.size());
+            LOG.debug("Search 200 files: index build " + (indexTime / 1_000_000L) + "ms, indexed search " + (indexSearchTime / 1_000_000L)
+                      + "ms, full search " + (fullSearchTime / 1_000_000L) + "ms");
+        } finally {
+            FileUtil.getInstance().removeDirectory(rootDir);
+        }
+    }
+
+
+    /**
+     * Sort the paths
+     *
+     * @param paths the paths
+     * @return the sorted paths
+     */
+    private List<Path> sorted(List<Path> paths) {
+        List<Path> result = new ArrayList<Path>(paths);
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -6,16 +6,36 @@
 package com.github.toolarium.common.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -150,16 +170,538 @@ public class FileUtilTest {
         for (Path file : files) {
             LOG.debug("Search file => " + file);
         }
-        assertEquals(35, files.size());
+        assertEquals(47, files.size());
 
         files = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "", TEST);
-        assertEquals(35, files.size());
+        assertEquals(47, files.size());
 
         files = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST);
         for (Path file : files) {
             LOG.debug("Search file => " + file);
         }
-        assertEquals(35, files.size());
+        assertEquals(47, files.size());
+    }
+
+
+    /**
+     * Parallel search files test
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchFilesParallel() throws IOException {
+        List<Path> expected = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST);
+        Collections.sort(expected);
+
+        List<Path> files = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST, true, 0);
+        assertEquals(expected, files);
+
+        List<Path> limitedFiles = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST, true, 5);
+        assertEquals(5, limitedFiles.size());
+        assertTrue(expected.containsAll(limitedFiles));
+
+        limitedFiles = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST, false, 3);
+        assertEquals(3, limitedFiles.size());
+        assertTrue(expected.containsAll(limitedFiles));
+
+        assertEquals(0, FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", "no[-]such[-]content[-]anywhere", true, 0).size());
+    }
+
+
+    /**
+     * Literal search files test
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchFilesLiteral() throws IOException {
+        List<Path> expected = FileUtil.getInstance().searchFiles(new File("./src/").toPath(), "java", TEST);
+        assertEquals(expected, FileUtil.getInstance().searchFilesLiteral(new File("./src/").toPath(), "java", TEST));
+
+        Collections.sort(expected);
+        assertEquals(expected, FileUtil.getInstance().searchFilesLiteral(new File("./src/").toPath(), "java", TEST, true, 0));
+
+        // no regular expression
+        List<Path> literalFiles = FileUtil.getInstance().searchFilesLiteral(new File("./src/").toPath(), "java", "getInstance().searchFilesLiteral(");
+        assertEquals(Collections.singletonList(new File("./src/test/java/com/github/toolarium/common/util/FileUtilTest.java").toPath()), literalFiles);
+
+        String content = "0123456789abcdefghijü";
+        for (int chunkSize = 1; chunkSize < 25; chunkSize++) {
+            assertTrue(literalMatches("0123", content, chunkSize));
+            assertTrue(literalMatches("9abc", content, chunkSize));
+            assertTrue(literalMatches("hijü", content, chunkSize));
+            assertTrue(literalMatches(content, content, chunkSize));
+            assertTrue(literalMatches("", content, chunkSize));
+            assertFalse(literalMatches("9abd", content, chunkSize));
+            assertFalse(literalMatches(content + "x", content, chunkSize));
+        }
+    }
+
+
+    /**
+     * Compare the literal search with the regular expression search
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchFilesLiteralPerformance() throws IOException {
+        Path dir = Files.createTempDirectory("fileutil");
+        try {
+            Random random = new Random(1);
+            byte[] data = new byte[1024 * 1024];
+            for (int i = 0; i < 16; i++) {
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + random.nextInt(26));
+                }
+                
+                if (i % 4 == 0) {
+                    System.arraycopy("needle-text".getBytes(StandardCharsets.UTF_8), 0, data, data.length - 20, 11);
+                }
+                Files.write(dir.resolve("file" + i + ".txt"), data);
+            }
+
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                List<Path> regexFiles = FileUtil.getInstance().searchFiles(dir, ".txt", "needle-text");
+                long regexTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<Path> literalFiles = FileUtil.getInstance().searchFilesLiteral(dir, ".txt", "needle-text");
+                long literalTime = System.nanoTime() - start;
+
+                assertEquals(4, literalFiles.size());
+                assertEquals(regexFiles, literalFiles);
+                LOG.debug("Search 16 MB: regex " + (regexTime / 1_000_000L) + "ms, literal " + (literalTime / 1_000_000L) + "ms");
+            }
+        } finally {
+            FileUtil.getInstance().removeDirectory(dir);
+        }
+    }
+
+
+    /**
+     * Test the chunked regular expression search
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchFilesInChunks() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+        String content = builder.toString();
+
+        for (int chunkSize = 3; chunkSize < 50; chunkSize += 7) {
+            assertTrue(matches("line 999\n", content, chunkSize, 16));
+            assertTrue(matches("^line 0\n", content, chunkSize, 16));
+            assertTrue(matches("(?m)^line 512$", content, chunkSize, 16));
+            assertTrue(matches("9\n$", content, chunkSize, 16));
+            assertTrue(matches("\\Aline 0", content, chunkSize, 16));
+            assertFalse(matches("^line 1", content, chunkSize, 16));
+            assertFalse(matches("(?m)^ine", content, chunkSize, 16));
+            assertFalse(matches("\\d\\z", content, chunkSize, 16));
+            assertFalse(matches("line 1000", content, chunkSize, 16));
+        }
+
+        // the match may not be longer than the overlap
+        assertTrue(matches("line 10\nline 11\nline 12", content, 10, 30));
+        assertFalse(matches("(?s)line 3\n.*line 997", content, 10, 30));
+
+        // without a limit the window grows until the match is complete
+        for (int chunkSize = 1; chunkSize < 50; chunkSize += 7) {
+            assertTrue(matches("(?s)line 3\n.*line 997", content, chunkSize, RegexFileContentMatcher.UNLIMITED_OVERLAP));
+            assertTrue(matches("(?s)\\Aline 0\n.*line 999\n\\z", content, chunkSize, RegexFileContentMatcher.UNLIMITED_OVERLAP));
+            assertFalse(matches("(?s)line 997.*line 3\n", content, chunkSize, RegexFileContentMatcher.UNLIMITED_OVERLAP));
+        }
+
+        // compare with the search in the whole content
+        Random random = new Random(4711);
+        String[] regexes = new String[] {"ab+a", "(?s)a.*c", "b{3}", "a(?!b)", "(?<=b)a$", "\\bca", "c\\z", "(?m)^ab"};
+        for (int n = 0; n < 2000; n++) {
+            String text = randomText(random, random.nextInt(40));
+            String regex = regexes[random.nextInt(regexes.length)];
+            int chunkSize = 1 + random.nextInt(8);
+            boolean expected = Pattern.compile(regex).matcher(text).find();
+            assertEquals(expected, matches(regex, text, chunkSize, RegexFileContentMatcher.UNLIMITED_OVERLAP), regex + " / " + text + " / " + chunkSize);
+            if (!expected) {
+                assertFalse(matches(regex, text, chunkSize, 1 + random.nextInt(4)), regex + " / " + text + " / " + chunkSize);
+            }
+        }
+
+        // anchors which look at the following characters, the overlap covers only the match
+        assertTrue(matches("a$", "xbb\nbxa\n", 6, 1));
+        assertTrue(matches("a$", "xbb\nbxa\r\n", 6, 1));
+        String[] anchors = new String[] {"a$", "ab$", "a\\b", "a\\B", "a(?=\n)", "(?m)a$", "a\\Z", "b\\z"};
+        for (int n = 0; n < 2000; n++) {
+            String text = randomText(random, random.nextInt(20)).replace('c', '\n');
+            String regex = anchors[random.nextInt(anchors.length)];
+            Matcher matcher = Pattern.compile(regex).matcher(text);
+            if (matcher.find()) {
+                int chunkSize = 1 + random.nextInt(8);
+                assertTrue(matches(regex, text, chunkSize, matcher.end() - matcher.start()), regex + " / " + text + " / " + chunkSize);
+            }
+        }
+
+        Path file = Files.createTempFile("fileutil", ".txt");
+        try {
+            builder = new StringBuilder();
+            for (int i = 0; i < 200_000; i++) {
+                builder.append('x');
+            }
+            builder.append("needle ü");
+            Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+            assertTrue(new RegexFileContentMatcher(Pattern.compile("needle ü$"), StandardCharsets.UTF_8).matches(file));
+            assertFalse(new RegexFileContentMatcher(Pattern.compile("x{3}needle ä"), StandardCharsets.UTF_8).matches(file));
+
+            // the match length is only limited by the overloads with the parallel mode
+            Files.write(file, ("BEGIN " + builder + " END").getBytes(StandardCharsets.UTF_8));
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchFiles(file, null, "(?s)BEGIN.*END"));
+            assertEquals(0, FileUtil.getInstance().searchFiles(file, null, "(?s)BEGIN.*END", false, 0).size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    /**
+     * Test the chunked regular expression replacement
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void replaceInChunks() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            builder.append("line ").append(i).append("\tvalue=").append(i * 7).append('\n');
+        }
+        String content = builder.toString();
+
+        String[][] replacements = new String[][] {{"line (\\d+)", "L$1"}, {"\\d", "#"}, {"(?m)^", "> "}, {"(?m)$", "<"}, {"x*", "-"}, {"\n", "\r\n"}, {"\\Aline", "first"}, {"=\\d+\n\\z", "=end"}};
+        for (String[] replacement : replacements) {
+            String expected = Pattern.compile(replacement[0]).matcher(content).replaceAll(replacement[1]);
+            for (int chunkSize = 1; chunkSize < 40; chunkSize += 6) {
+                StringWriter writer = new StringWriter();
+                RegexFileContentMatcher matcher = new RegexFileContentMatcher(Pattern.compile(replacement[0]), StandardCharsets.UTF_8, chunkSize, 20);
+                long count = matcher.replace(new StringReader(content), writer, replacement[1]);
+                assertEquals(expected, writer.toString(), replacement[0] + " / " + chunkSize);
+                assertEquals(count, matcher.replace(new StringReader(content), null, replacement[1]));
+            }
+        }
+
+        // a match longer than the overlap is never skipped
+        String longMatch = "xxxxxxxxxxa" + "01234567890123456789" + "bxxxxxxxxxxxxxxx";
+        assertThrows(IOException.class, () -> new RegexFileContentMatcher(Pattern.compile("a.*b"), StandardCharsets.UTF_8, 16, 4).replace(new StringReader(longMatch), new StringWriter(), "X"));
+        assertThrows(IOException.class, () -> new RegexFileContentMatcher(Pattern.compile("a.*?b"), StandardCharsets.UTF_8, 16, 4).replace(new StringReader(longMatch), null, "X"));
+        StringWriter longMatchWriter = new StringWriter();
+        assertEquals(1, new RegexFileContentMatcher(Pattern.compile("a.*?b"), StandardCharsets.UTF_8, 16, 22).replace(new StringReader(longMatch), longMatchWriter, "X"));
+        assertEquals("xxxxxxxxxxXxxxxxxxxxxxxxxx", longMatchWriter.toString());
+
+        // compare with the replacement in the whole content
+        Random random = new Random(4711);
+        String[] regexes = new String[] {"a+", "b?", "x*", "(?m)^", "(?m)$", "ab|b", "(?s)a.*c", "(?<=a)b*", "\\bc", "a\\z"};
+        for (int n = 0; n < 3000; n++) {
+            String text = randomText(random, random.nextInt(40));
+            String regex = regexes[random.nextInt(regexes.length)];
+            int chunkSize = 1 + random.nextInt(8);
+            int overlap = RegexFileContentMatcher.UNLIMITED_OVERLAP;
+            if (random.nextBoolean()) {
+                overlap = 1 + random.nextInt(4);
+            }
+
+            Matcher expectedMatcher = Pattern.compile(regex).matcher(text);
+            long expectedCount = 0;
+            while (expectedMatcher.find()) {
+                expectedCount++;
+            }
+
+            String message = regex + " / " + text + " / " + chunkSize + " / " + overlap;
+            StringWriter writer = new StringWriter();
+            try {
+                long count = new RegexFileContentMatcher(Pattern.compile(regex), StandardCharsets.UTF_8, chunkSize, overlap).replace(new StringReader(text), writer, "<$0>");
+                assertEquals(Pattern.compile(regex).matcher(text).replaceAll("<$0>"), writer.toString(), message);
+                assertEquals(expectedCount, count, message);
+            } catch (IOException e) {
+                // only a limited overlap can fail, in case the match needs more characters
+                assertTrue(overlap < RegexFileContentMatcher.UNLIMITED_OVERLAP, message);
+            }
+        }
+
+        Path file = Files.createTempFile("fileutil", ".txt");
+        try {
+            builder = new StringBuilder();
+            for (int i = 0; i < 200_000; i++) {
+                builder.append('a');
+            }
+            String longContent = "BEGIN " + builder + " END";
+            Files.write(file, longContent.getBytes(StandardCharsets.UTF_8));
+
+            // the match length is only limited by the overloads with the parallel mode
+            assertThrows(IOException.class, () -> FileUtil.getInstance().searchAndReplaceFiles(file, null, "a+", "X", false, false));
+            assertEquals(longContent, FileUtil.getInstance().readFileContent(file));
+            assertEquals(Arrays.asList(file), FileUtil.getInstance().searchAndReplaceFiles(file, null, "a+", "X"));
+            assertEquals("BEGIN X END", FileUtil.getInstance().readFileContent(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    /**
+     * Search and replace files test
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void searchAndReplaceFiles() throws IOException {
+        for (boolean parallel : new boolean[] {false, true}) {
+            Path dir = Files.createTempDirectory("fileutil");
+            try {
+                Path subDir = Files.createDirectories(dir.resolve("a").resolve("b"));
+                Path file1 = Files.write(dir.resolve("file1.txt"), "version=1.0.0\nname=x\nversion=1.0.0".getBytes(StandardCharsets.UTF_8));
+                Path file2 = Files.write(subDir.resolve("file2.txt"), "version=1.0.0 ü".getBytes(StandardCharsets.UTF_8));
+                Path file3 = Files.write(subDir.resolve("file3.properties"), "version=1.0.0".getBytes(StandardCharsets.UTF_8));
+                Path file4 = Files.write(subDir.resolve("file4.txt"), "nothing".getBytes(StandardCharsets.UTF_8));
+
+                // dry run
+                Map<Path, Long> result = FileUtil.getInstance().searchAndReplaceFiles(dir, ".txt", "version=(\\d+)\\.0\\.0", "version=$1.1.0", parallel, true);
+                assertEquals(2, result.size());
+                assertEquals(2L, result.get(file1).longValue());
+                assertEquals(1L, result.get(file2).longValue());
+                assertEquals("version=1.0.0\nname=x\nversion=1.0.0", FileUtil.getInstance().readFileContent(file1));
+
+                result = FileUtil.getInstance().searchAndReplaceFiles(dir, ".txt", "version=(\\d+)\\.0\\.0", "version=$1.1.0", parallel, false);
+                assertEquals(2, result.size());
+                assertEquals("version=1.1.0\nname=x\nversion=1.1.0", FileUtil.getInstance().readFileContent(file1));
+                assertEquals("version=1.1.0 ü", FileUtil.getInstance().readFileContent(file2));
+                assertEquals("version=1.0.0", FileUtil.getInstance().readFileContent(file3));
+                assertEquals("nothing", FileUtil.getInstance().readFileContent(file4));
+
+                List<Path> changedFiles = FileUtil.getInstance().searchAndReplaceFiles(dir, "version=1\\.0\\.0", "version=2.0.0");
+                assertEquals(Collections.singletonList(file3), changedFiles);
+                assertEquals("version=2.0.0", FileUtil.getInstance().readFileContent(file3));
+
+                // no temporary files are left
+                try (Stream<Path> stream = Files.list(subDir)) {
+                    assertEquals(3, stream.count());
+                }
+            } finally {
+                FileUtil.getInstance().removeDirectory(dir);
+            }
+        }
+    }
+
+
+    /**
+     * Test the write modes
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void writeFileContentModes() throws IOException {
+        Path dir = Files.createTempDirectory("fileutil");
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 50_000; i++) {
+                builder.append("ä€😀").append(i);
+            }
+            String content = builder.toString();
+
+            Path file = dir.resolve("state.txt");
+            FileUtil.getInstance().writeFileContent(file, StandardCharsets.UTF_8, content);
+            assertEquals(content, FileUtil.getInstance().readFileContent(file));
+
+            FileUtil.getInstance().writeFileContent(file, StandardCharsets.UTF_8, "short", FileWriteOption.ATOMIC, FileWriteOption.SYNC);
+            assertEquals("short", FileUtil.getInstance().readFileContent(file));
+
+            FileUtil.getInstance().writeFileContent(file, StandardCharsets.UTF_16LE, new StringBuilder(content), FileWriteOption.SYNC);
+            assertEquals(content, FileUtil.getInstance().readFileContent(file, StandardCharsets.UTF_16LE));
+
+            FileUtil.getInstance().writeFileContent(file, StandardCharsets.ISO_8859_1, "ä€", FileWriteOption.ATOMIC);
+            assertEquals("ä?", FileUtil.getInstance().readFileContent(file, StandardCharsets.ISO_8859_1));
+
+            FileUtil.getInstance().writeFileContent(file, StandardCharsets.UTF_8, "");
+            assertEquals(0, Files.size(file));
+
+            // only the directory itself is synchronized, errors are thrown
+            FileUtil.getInstance().syncDirectory(dir);
+            assertThrows(IOException.class, () -> FileUtil.getInstance().syncDirectory(dir.resolve("missing")));
+
+            // no temporary files are left
+            try (Stream<Path> stream = Files.list(dir)) {
+                assertEquals(1, stream.count());
+            }
+        } finally {
+            FileUtil.getInstance().removeDirectory(dir);
+        }
+    }
+
+
+    /**
+     * Test the group commit writer
+     *
+     * @throws Exception in case of an exception
+     */
+    @Test
+    public void groupCommitWriter() throws Exception {
+        Path dir = Files.createTempDirectory("fileutil");
+        try {
+            List<CompletableFuture<Path>> futures = new ArrayList<CompletableFuture<Path>>();
+            long start = System.nanoTime();
+            try (GroupCommitFileWriter writer = FileUtil.getInstance().createGroupCommitWriter(20, 64)) {
+                for (int i = 0; i < 200; i++) {
+                    futures.add(writer.write(dir.resolve("state" + (i % 100) + ".txt"), StandardCharsets.UTF_8, "state " + i));
+                }
+
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+                writer.write(dir.resolve("last.txt"), StandardCharsets.UTF_8, "last");
+                writer.flush();
+                assertEquals("last", FileUtil.getInstance().readFileContent(dir.resolve("last.txt")));
+
+                // coalesced writes of the same file
+                assertTrue(writer.getFileCount() <= 201);
+                assertTrue(writer.getCommitCount() < 201);
+                LOG.debug("Group commit of 200 writes: " + ((System.nanoTime() - start) / 1_000_000L) + "ms, " + writer);
+
+                writer.write(dir.resolve("closed.txt"), StandardCharsets.UTF_8, "closed");
+            }
+
+            assertEquals("closed", FileUtil.getInstance().readFileContent(dir.resolve("closed.txt")));
+            for (int i = 100; i < 200; i++) {
+                assertEquals("state " + i, FileUtil.getInstance().readFileContent(dir.resolve("state" + (i % 100) + ".txt")));
+            }
+
+            // a failed write completes exceptionally
+            try (GroupCommitFileWriter writer = new GroupCommitFileWriter()) {
+                CompletableFuture<Path> future = writer.write(dir.resolve("missing").resolve("file.txt"), StandardCharsets.UTF_8, "x");
+                writer.flush();
+                assertTrue(future.isCompletedExceptionally());
+
+                // a failed move completes exceptionally and removes the temporary file
+                Path busyDir = Files.createDirectory(dir.resolve("busy"));
+                Files.write(busyDir.resolve("file.txt"), "busy".getBytes(StandardCharsets.UTF_8));
+                future = writer.write(busyDir, StandardCharsets.UTF_8, "x");
+                writer.flush();
+                assertTrue(future.isCompletedExceptionally());
+                assertEquals(Arrays.asList(busyDir.resolve("file.txt")), FileUtil.getInstance().searchFiles(dir, null, "busy"));
+            }
+
+            try (Stream<Path> stream = Files.list(dir)) {
+                assertEquals(103, stream.count());
+            }
+        } finally {
+            FileUtil.getInstance().removeDirectory(dir);
+        }
+    }
+
+
+    /**
+     * Stress test of the parallel copy and delete with a deep and a wide directory tree
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void copyAndRemoveDirectoryParallel() throws IOException {
+        Path sourceDir = Files.createTempDirectory("fileutil");
+        Path targetDir = Files.createTempDirectory("fileutil").resolve("copy");
+        try {
+            // deep tree
+            Path dir = sourceDir;
+            for (int i = 0; i < 100; i++) {
+                dir = Files.createDirectory(dir.resolve("d" + i));
+                Files.write(dir.resolve("deep" + i + ".txt"), ("deep " + i).getBytes(StandardCharsets.UTF_8));
+            }
+
+            // wide tree
+            byte[] content = new byte[128];
+            long bytes = 0;
+            for (int i = 0; i < 40; i++) {
+                Path wideDir = Files.createDirectories(sourceDir.resolve("wide").resolve("w" + i));
+                for (int j = 0; j < 100; j++) {
+                    Files.write(wideDir.resolve("file" + j + ".bin"), content);
+                    bytes += content.length;
+                }
+            }
+            for (int i = 0; i < 100; i++) {
+                bytes += ("deep " + i).length();
+            }
+
+            List<FileTreeResult> progress = new ArrayList<FileTreeResult>();
+            FileTreeResult copyResult = FileUtil.getInstance().copyDirectory(sourceDir, targetDir, 8, progress::add);
+            LOG.debug("Parallel copy: " + copyResult);
+            assertEquals(4100, copyResult.getFiles());
+            assertEquals(142, copyResult.getDirectories());
+            assertEquals(bytes, copyResult.getBytes());
+            assertTrue(progress.size() > 4);
+            assertEquals(copyResult.getFiles(), progress.get(progress.size() - 1).getFiles());
+            assertEquals("deep 99", FileUtil.getInstance().readFileContent(targetDir.resolve(sourceDir.relativize(dir)).resolve("deep99.txt")));
+            try (Stream<Path> stream = Files.walk(targetDir)) {
+                assertEquals(4242, stream.count());
+            }
+
+            // copy again replaces the existing files
+            assertEquals(4100, FileUtil.getInstance().copyDirectory(sourceDir, targetDir).getFiles());
+
+            FileTreeResult removeResult = FileUtil.getInstance().removeDirectory(targetDir, 8, null);
+            LOG.debug("Parallel remove: " + removeResult);
+            assertEquals(4100, removeResult.getFiles());
+            assertEquals(142, removeResult.getDirectories());
+            assertFalse(Files.exists(targetDir));
+
+            removeResult = FileUtil.getInstance().removeDirectory(sourceDir, 1, null);
+            assertEquals(4100, removeResult.getFiles());
+            assertFalse(Files.exists(sourceDir));
+        } finally {
+            FileUtil.getInstance().removeDirectory(sourceDir);
+            FileUtil.getInstance().removeDirectory(targetDir.getParent());
+        }
+    }
+
+
+    /**
+     * Match the literal content in chunks
+     *
+     * @param text the text
+     * @param content the content
+     * @param chunkSize the chunk size
+     * @return true if it matches
+     * @throws IOException in case of an I/O exception
+     */
+    private boolean literalMatches(String text, String content, int chunkSize) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        return new LiteralFileContentMatcher(text, StandardCharsets.UTF_8, chunkSize).matches(channel);
+    }
+
+
+    /**
+     * Create a random text of the characters a, b and c
+     *
+     * @param random the random generator
+     * @param length the length
+     * @return the text
+     */
+    private String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(3)));
+        }
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Match the content in chunks
+     *
+     * @param regex the regular expression
+     * @param content the content
+     * @param chunkSize the chunk size
+     * @param overlap the overlap
+     * @return true if it matches
+     * @throws IOException in case of an I/O exception
+     */
+    private boolean matches(String regex, String content, int chunkSize, int overlap) throws IOException {
+        return new RegexFileContentMatcher(Pattern.compile(regex), StandardCharsets.UTF_8, chunkSize, overlap).matches(new StringReader(content));
     }
 
 
@@ -0,0 +1,162 @@
+/*
+ * DirectoryWatcherTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.common.watch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.common.util.FileUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link DirectoryWatcher}.
+ *
+ * @author patrick
+ */
+public class DirectoryWatcherTest {
+    private static final long TIMEOUT = 10;
+
+
+    /**
+     * Test the initial index
+     *
+     * @throws IOException in case of an I/O exception
+     */
+    @Test
+    public void initialIndex() throws IOException {
+        Path rootDir = Files.createTempDirectory("watcher");
+        try {
+            Path subDir = Files.createDirectories(rootDir.resolve("a").resolve("b"));
+            Files.write(subDir.resolve("file.txt"), "content".getBytes(StandardCharsets.UTF_8));
+            Files.write(rootDir.resolve("file.cfg"), "key=value".getBytes(StandardCharsets.UTF_8));
+
+            try (DirectoryWatcher watcher = new DirectoryWatcher(rootDir).start()) {
+                assertTrue(watcher.isRunning());
+                assertEquals(5, watcher.size());
+                assertTrue(watcher.exists(subDir));
+                assertTrue(watcher.exists(subDir.resolve("file.txt")));
+                assertFalse(watcher.exists(subDir.resolve("other.txt")));
+                assertEquals(7, watcher.getAttributes(subDir.resolve("file.txt")).size());
+                assertNull(watcher.getAttributes(rootDir.resolve("unknown")));
+                assertEquals(Arrays.asList(subDir.resolve("file.txt")), watcher.getFiles(".txt"));
+                assertEquals(2, watcher.getFiles(null).size());
+                assertEquals(Arrays.asList(rootDir.resolve("file.cfg")), FileUtil.getInstance().searchFiles(watcher, null, "key=\\w+"));
+            }
+        } finally {
+            FileUtil.getInstance().removeDirectory(rootDir);
+        }
+    }
+
+
+    /**
+     * Test the coalesced change notifications
+     *
+     * @throws IOException in case of an I/O exception
+     * @throws InterruptedException in case of an interruption
+     */
+    @Test
+    public void changeNotifications() throws IOException, InterruptedException {
+        Path rootDir = Files.createTempDirectory("watcher");
+        BlockingQueue<List<FileChange>> notifications = new LinkedBlockingQueue<List<FileChange>>();
+        try {
+            Path file = rootDir.resolve("file.txt");
+            Files.write(file, "1".getBytes(StandardCharsets.UTF_8));
+
+            try (DirectoryWatcher watcher = FileUtil.getInstance().watchDirectory(rootDir, 200, notifications::add)) {
+                // many writes to the same file are coalesced into one modification
+                for (int i = 0; i < 10; i++) {
+                    Files.write(file, ("content " + i).getBytes(StandardCharsets.UTF_8));
+                }
+
+                // a temporary file which is deleted again doesn't cause a change
+                Path tempFile = rootDir.resolve("temp.txt");
+                Files.write(tempFile, "temp".getBytes(StandardCharsets.UTF_8));
+                Files.delete(tempFile);
+
+                List<FileChange> changes = waitForChanges(notifications, 1);
+                assertEquals(1, changes.size());
+                assertEquals(file, changes.get(0).getPath());
+                assertEquals(FileChangeType.MODIFIED, changes.get(0).getType());
+                assertEquals(9, changes.get(0).getAttributes().size());
+                assertEquals(9, watcher.getAttributes(file).size());
+
+                // a new directory tree is registered, its content is reported
+                Path subDir = Files.createDirectories(rootDir.resolve("sub").resolve("dir"));
+                Files.write(subDir.resolve("new.txt"), "new".getBytes(StandardCharsets.UTF_8));
+                changes = waitForChanges(notifications, 3);
+                assertEquals(Arrays.asList(rootDir.resolve("sub"), subDir, subDir.resolve("new.txt")), paths(changes, FileChangeType.CREATED));
+                assertTrue(watcher.exists(subDir.resolve("new.txt")));
+
+                Files.write(subDir.resolve("second.txt"), "second".getBytes(StandardCharsets.UTF_8));
+                changes = waitForChanges(notifications, 1);
+                assertEquals(Arrays.asList(subDir.resolve("second.txt")), paths(changes, FileChangeType.CREATED));
+
+                // deleting a directory tree removes it from the index
+                FileUtil.getInstance().removeDirectory(rootDir.resolve("sub"));
+                changes = waitForChanges(notifications, 4);
+                assertEquals(4, paths(changes, FileChangeType.DELETED).size());
+                assertFalse(watcher.exists(subDir));
+                assertNotNull(watcher.getAttributes(file));
+                assertEquals(Arrays.asList(file), watcher.getFiles(null));
+            }
+        } finally {
+            FileUtil.getInstance().removeDirectory(rootDir);
+        }
+    }
+
+
+    /**
+     * Wait until the given number of changes were notified
+     *
+     * @param notifications the notifications
+     * @param count the number of expected changes
+     * @return the changes
+     * @throws InterruptedException in case of an interruption
+     */
+    private List<FileChange> waitForChanges(BlockingQueue<List<FileChange>> notifications, int count) throws InterruptedException {
+        List<FileChange> changes = new ArrayList<FileChange>();
+        while (changes.size() < count) {
+            List<FileChange> notification = notifications.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertNotNull(notification, "Missing changes, got " + changes);
+            changes.addAll(notification);
+        }
+
+        return changes;
+    }
+
+
+    /**
+     * Gets the paths of the changes of the given type
+     *
+     * @param changes the changes
+     * @param type the type
+     * @return the paths
+     */
+    private List<Path> paths(List<FileChange> changes, FileChangeType type) {
+        List<Path> result = new ArrayList<Path>();
+        for (FileChange change : changes) {
+            if (change.getType() == type) {
+                result.add(change.getPath());
+            }
+        }
+
+        return result;
+    }
+}